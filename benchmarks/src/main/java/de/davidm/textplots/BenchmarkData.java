@@ -0,0 +1,38 @@
+package de.davidm.textplots;
+
+import java.util.Random;
+
+/**
+ * Deterministic input data for the benchmarks
+ */
+public class BenchmarkData {
+
+    public static final long SEED = 42L;
+
+    /**
+     * @param size number of values
+     * @param seed seed of the random generator
+     * @return normally distributed values with mean 100 and standard deviation 15
+     */
+    public static double[] gaussian(int size, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = 100d + 15d * random.nextGaussian();
+        }
+        return data;
+    }
+
+    /**
+     * @param data values to be formatted
+     * @return values joined by a comma as expected by {@link CLI#parseData(String)}
+     */
+    public static String join(double[] data) {
+        StringBuilder builder = new StringBuilder(data.length * 8);
+        for (int i = 0; i < data.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(data[i]);
+        }
+        return builder.toString();
+    }
+}
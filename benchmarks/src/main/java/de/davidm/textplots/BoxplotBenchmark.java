@@ -0,0 +1,154 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoxplotBenchmark {
+
+    /**
+     * Rendering of a single boxplot row, independent of the input size
+     */
+    @State(Scope.Benchmark)
+    public static class RowState {
+        @Param({"20", "50", "100"})
+        int width;
+    }
+
+    /**
+     * Two data series of the given size
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+        int size;
+
+        @Param({"20", "50", "100"})
+        int width;
+
+        /**
+         * Accuracy of the quantile sketch, 0 for exact quartiles
+         */
+        @Param({"0", "200"})
+        int approximation;
+
+        List<Pair<String, double[]>> data;
+
+        /**
+         * A plot rendered once, its statistics and rows are cached
+         */
+        Boxplot warm;
+
+        StringBuilder out = new StringBuilder();
+
+        @Setup
+        public void setup() {
+            data = new ArrayList<>();
+            data.add(Pair.create("series1", BenchmarkData.gaussian(size, BenchmarkData.SEED)));
+            data.add(Pair.create("series2", BenchmarkData.gaussian(size, BenchmarkData.SEED + 1)));
+            warm = builder().plotObject();
+            warm.plot(true);
+        }
+
+        Boxplot.BoxplotBuilder builder() {
+            return new Boxplot.BoxplotBuilder(data)
+                    .setWidth(width)
+                    .setApproximation(approximation > 0 ? approximation : null);
+        }
+    }
+
+    /**
+     * Many data series computed sequentially or on a ForkJoinPool
+     */
+    @State(Scope.Benchmark)
+    public static class SeriesState {
+        @Param({"200"})
+        int series;
+
+        @Param({"100000"})
+        int size;
+
+        @Param({"false", "true"})
+        boolean parallel;
+
+        List<Pair<String, double[]>> data;
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            data = new ArrayList<>();
+            for (int i = 0; i < series; i++) {
+                data.add(Pair.create("series" + i, BenchmarkData.gaussian(size, BenchmarkData.SEED + i)));
+            }
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String boxplotString(RowState state) {
+        return Boxplot.boxplotString(55d, 145d, 58d, 142d, 90d, 110d, 100d, state.width);
+    }
+
+    /**
+     * Statistics of many series, plotObject() is lazy so the rows are forced
+     */
+    @Benchmark
+    public List<Pair<String, String>> boxplotsSeries(SeriesState state) {
+        return new Boxplot.BoxplotBuilder(state.data)
+                .setExecutor(state.parallel ? state.pool : null)
+                .plotObject()
+                .boxplots();
+    }
+
+    /**
+     * Statistics and rows of a new plot
+     */
+    @Benchmark
+    public List<Pair<String, String>> boxplots(DataState state) {
+        return state.builder().plotObject().boxplots();
+    }
+
+    /**
+     * Statistics, rows and legend of a new plot
+     */
+    @Benchmark
+    public String plot(DataState state) {
+        return state.builder().plotObject().plot(true);
+    }
+
+    /**
+     * Rendering only, from the cache of a plot rendered before
+     */
+    @Benchmark
+    public StringBuilder renderWarm(DataState state) throws IOException {
+        state.out.setLength(0);
+        state.warm.render(state.out, true);
+        return state.out;
+    }
+}
@@ -0,0 +1,132 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CLIBenchmark {
+
+    /**
+     * The textual representation of two data series of the given size. The input is held as a single String, which
+     * holds at most 2^31 - 1 characters, so sizes end at 1e7 values of about 20 characters each.
+     */
+    @State(Scope.Benchmark)
+    public static class InputState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        int size;
+
+        CLI cli;
+        String values;
+        String input;
+        String lines;
+
+        @Setup
+        public void setup() {
+            cli = new CLI();
+            values = BenchmarkData.join(BenchmarkData.gaussian(size, BenchmarkData.SEED));
+            input = "{series1|" + values + "}{series2|" + values + "}";
+            lines = "series1\n" + values.replace(',', '\n');
+        }
+    }
+
+    @Benchmark
+    public double[] parseData(InputState state) {
+        return state.cli.parseData(state.values);
+    }
+
+    @Benchmark
+    public List<Pair<String, double[]>> parse(InputState state) {
+        return state.cli.parse(state.input);
+    }
+
+    @Benchmark
+    public List<Pair<String, double[]>> read(InputState state) throws IOException {
+        return state.cli.read(new StringReader(state.lines));
+    }
+
+    /**
+     * A CSV file of the given number of rows and 20 columns, like a wide export
+     */
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"100000", "1000000"})
+        int rows;
+
+        CLI cli;
+        File file;
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() throws IOException {
+            cli = new CLI();
+            file = File.createTempFile("wide", ".csv");
+            Random random = new Random(BenchmarkData.SEED);
+            try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+                for (int column = 0; column < 20; column++) {
+                    writer.print(column == 0 ? "c0" : ",c" + column);
+                }
+                writer.println();
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < 20; column++) {
+                        writer.print(column == 0 ? "" : ",");
+                        writer.print(column % 2 == 0 ? Double.toString(random.nextGaussian()) : Integer.toString(random.nextInt(100000)));
+                    }
+                    writer.println();
+                }
+            }
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public List<Pair<String, double[]>> readFile(FileState state) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(state.file), StandardCharsets.UTF_8)) {
+            return state.cli.read(reader);
+        }
+    }
+
+    @Benchmark
+    public List<Pair<String, double[]>> textFile(FileState state) throws IOException {
+        return TextFile.read(state.file.getPath(), null, state.pool);
+    }
+
+    @Benchmark
+    public List<Pair<String, double[]>> textFileColumns(FileState state) throws IOException {
+        return TextFile.read(state.file.getPath(), Arrays.asList("c0", "c1"), state.pool);
+    }
+}
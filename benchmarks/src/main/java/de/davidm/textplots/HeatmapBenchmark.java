@@ -0,0 +1,75 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeatmapBenchmark {
+
+    /**
+     * X, Y and weight data series of the given size
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+        int size;
+
+        @Param({"20", "50", "100"})
+        int width;
+
+        @Param({"10", "20", "50"})
+        int height;
+
+        @Param({"COUNT", "MEAN"})
+        Heatmap.Aggregation aggregation;
+
+        @Param({"false", "true"})
+        boolean parallel;
+
+        double[] x;
+        double[] y;
+        double[] w;
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            x = BenchmarkData.gaussian(size, BenchmarkData.SEED);
+            y = BenchmarkData.gaussian(size, BenchmarkData.SEED + 1);
+            w = BenchmarkData.gaussian(size, BenchmarkData.SEED + 2);
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String heatmap(DataState state) {
+        return new Heatmap.HeatmapBuilder(Pair.create("x", state.x), Pair.create("y", state.y), Pair.create("w", state.w))
+                .setSize(state.width, state.height)
+                .setAggregation(state.aggregation)
+                .setExecutor(state.parallel ? state.pool : null)
+                .plotObject()
+                .plot(true);
+    }
+}
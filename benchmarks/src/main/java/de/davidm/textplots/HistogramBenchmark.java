@@ -0,0 +1,104 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistogramBenchmark {
+
+    /**
+     * Rendering of a single histogram bar, independent of the input size
+     */
+    @State(Scope.Benchmark)
+    public static class BinState {
+        @Param({"20", "50", "100"})
+        int width;
+    }
+
+    /**
+     * A data series of the given size
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+        int size;
+
+        @Param({"20", "50", "100"})
+        int width;
+
+        Pair<String, double[]> data;
+
+        /**
+         * A histogram rendered once, its bins and bars are cached
+         */
+        Histogram warm;
+
+        StringBuilder out = new StringBuilder();
+
+        @Setup
+        public void setup() {
+            data = Pair.create("series", BenchmarkData.gaussian(size, BenchmarkData.SEED));
+            warm = new Histogram.HistogramBuilder(data).setWidth(width).plotObject();
+            warm.plot(true);
+        }
+    }
+
+    @Benchmark
+    public String stringForBin(BinState state) {
+        return Histogram.stringForBin(731, 1000, state.width);
+    }
+
+    /**
+     * Bins and bars of a new histogram, plotObject() is lazy so they are forced
+     */
+    @Benchmark
+    public List<Pair<double[], String>> histogram(DataState state) {
+        return new Histogram.HistogramBuilder(state.data).setWidth(state.width).plotObject().histogram();
+    }
+
+    @Benchmark
+    public List<Pair<double[], String>> histogramLogLinear(DataState state) {
+        return new Histogram.HistogramBuilder(state.data).setWidth(state.width).setLogLinear(3).plotObject().histogram();
+    }
+
+    @Benchmark
+    public List<Pair<double[], String>> histogramSample(DataState state) {
+        return new Histogram.HistogramBuilder(state.data).setWidth(state.width).setSample(10000).plotObject().histogram();
+    }
+
+    /**
+     * Bins, bars and legend of a new histogram
+     */
+    @Benchmark
+    public String plot(DataState state) {
+        return new Histogram.HistogramBuilder(state.data).setWidth(state.width).plotObject().plot(true);
+    }
+
+    /**
+     * Rendering only, from the cache of a histogram rendered before
+     */
+    @Benchmark
+    public StringBuilder renderWarm(DataState state) throws IOException {
+        state.out.setLength(0);
+        state.warm.render(state.out, true);
+        return state.out;
+    }
+}
@@ -0,0 +1,67 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KernelsBenchmark {
+
+    /**
+     * An array of the given size
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000000", "10000000", "100000000"})
+        int size;
+
+        double[] data;
+
+        @Setup
+        public void setup() {
+            data = BenchmarkData.gaussian(size, BenchmarkData.SEED);
+        }
+    }
+
+    @Benchmark
+    public double[] minMax(DataState state) {
+        double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Kernels.minMax(state.data, 0, state.data.length, minMax);
+        return minMax;
+    }
+
+    @Benchmark
+    public Pair<Double, Double> getMinimumAndMaximum(DataState state) {
+        return Plot.getMinimumAndMaximum(state.data);
+    }
+
+    @Benchmark
+    public long[] count(DataState state) {
+        long[] counts = new long[10];
+        double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Kernels.count(state.data, 0, state.data.length, 0, 20, counts, minMax);
+        return counts;
+    }
+
+    @Benchmark
+    public StreamingHistogram streamingHistogram(DataState state) {
+        StreamingHistogram histogram = new StreamingHistogram(10, 0, 200);
+        histogram.addAll(state.data, 0, state.data.length);
+        return histogram;
+    }
+}
@@ -0,0 +1,73 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineplotBenchmark {
+
+    /**
+     * A time series of the given size, one value per second
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+        int size;
+
+        @Param({"20", "50", "100"})
+        int width;
+
+        @Param({"MIN_MAX", "LTTB"})
+        Lineplot.Decimation decimation;
+
+        @Param({"false", "true"})
+        boolean parallel;
+
+        double[] t;
+        double[] y;
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            t = new double[size];
+            for (int i = 0; i < size; i++) {
+                t[i] = i;
+            }
+            y = BenchmarkData.gaussian(size, BenchmarkData.SEED);
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String lineplot(DataState state) {
+        return new Lineplot.LineplotBuilder(Pair.create("t", state.t), Pair.create("y", state.y))
+                .setSize(state.width, Plot.DEFAULT_HEIGHT)
+                .setDecimation(state.decimation)
+                .setExecutor(state.parallel ? state.pool : null)
+                .plotObject()
+                .plot(true);
+    }
+}
@@ -0,0 +1,87 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScatterplotBenchmark {
+
+    /**
+     * X and Y data series of the given size
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+        int size;
+
+        @Param({"20", "50", "100"})
+        int width;
+
+        @Param({"10", "20", "50"})
+        int height;
+
+        @Param({"true", "false"})
+        boolean smoothing;
+
+        @Param({"false", "true"})
+        boolean parallel;
+
+        double[] x;
+        double[] y;
+        // Limits of x and y, so every point falls into the raster
+        Pair<Double, Double> limitsX;
+        Pair<Double, Double> limitsY;
+        ForkJoinPool pool;
+
+        @Setup
+        public void setup() {
+            x = BenchmarkData.gaussian(size, BenchmarkData.SEED);
+            y = BenchmarkData.gaussian(size, BenchmarkData.SEED + 1);
+            limitsX = Plot.getMinimumAndMaximum(x);
+            limitsY = Plot.getMinimumAndMaximum(y);
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String[] scatterplotString(DataState state) {
+        return Scatterplot.scatterplotString(state.x, state.y, state.width, state.height, null, null, null, null, state.smoothing);
+    }
+
+    @Benchmark
+    public char[] scatterplotChars(DataState state) {
+        return Scatterplot.scatterplotChars(state.x, state.y, state.width, state.height, null, null, null, null,
+                state.smoothing, state.parallel ? state.pool : null, new DensityQuantizer());
+    }
+
+    @Benchmark
+    public char[] brailleRaster(DataState state) {
+        BrailleRaster raster = new BrailleRaster(state.width, state.height, state.limitsX.getFirst(),
+                state.limitsX.getSecond(), state.limitsY.getFirst(), state.limitsY.getSecond());
+        raster.addAll(state.x, state.y);
+        return raster.glyphs(new char[state.width * state.height]);
+    }
+}
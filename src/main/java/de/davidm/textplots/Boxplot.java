@@ -1,11 +1,17 @@
 package de.davidm.textplots;
 
 import com.google.common.base.Preconditions;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.apache.commons.math3.util.Pair;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Boxplots provides a set of static methods to print boxplots to command line or format data to a boxplot string
@@ -19,21 +25,179 @@ public class Boxplot extends Plot {
     public static final String CHARACTER_BOXPLOT_WHISKER = "-";
     public static final String CHARACTER_BOXPLOT_BODY_FILL = "#";
 
-    private final List<Pair<String, double[]>> data;
+    private static final char EMPTY = CHARACTER_EMPTY_BIN.charAt(0);
+    private static final char MINMAX = CHARACTER_BOXPLOT_MINMAX.charAt(0);
+    private static final char MEDIAN = CHARACTER_BOXPLOT_MEDIAN.charAt(0);
+    private static final char QUARTILE_LOW = CHARACTER_BOXPLOT_QUARTILE_LOW.charAt(0);
+    private static final char QUARTILE_HIGH = CHARACTER_BOXPLOT_QUARTILE_HIGH.charAt(0);
+    private static final char WHISKER = CHARACTER_BOXPLOT_WHISKER.charAt(0);
+    private static final char BODY_FILL = CHARACTER_BOXPLOT_BODY_FILL.charAt(0);
+
+    private static final double[] QUARTILES = {0.25, 0.5, 0.75};
+
+    // Positions in the statistics of a variable
+    private static final int STATISTIC_MIN = 0;
+    private static final int STATISTIC_QUARTILE_LOW = 1;
+    private static final int STATISTIC_MEDIAN = 2;
+    private static final int STATISTIC_QUARTILE_HIGH = 3;
+    private static final int STATISTIC_MAX = 4;
+
+    private final List<String> names;
     private final int width;
-    private final Double min;
-    private final Double max;
+    private final Integer approximation;
+
+    // Computed once on first use, rendering only lays out the cached rows and legend
+    private final Supplier<List<double[]>> statistics;
+    private final Supplier<Layout> layout;
+
+    /**
+     * Rows and legend strings of all variables for the resolved plot limits
+     */
+    private static class Layout {
+        final char[][] rows;
+        final String minString, maxString, errorString, sampleString;
+
+        Layout(char[][] rows, String minString, String maxString, String errorString, String sampleString) {
+            this.rows = rows;
+            this.minString = minString;
+            this.maxString = maxString;
+            this.errorString = errorString;
+            this.sampleString = sampleString;
+        }
+    }
 
     private Boxplot(BoxplotBuilder boxplotBuilder) {
-        this.data = boxplotBuilder.data;
         this.width = boxplotBuilder.width;
+        this.names = new ArrayList<>();
 
-        // Set min and max values
-        Pair<Double, Double> minMaxData = getMinimumAndMaximum(data);
-        min = boxplotBuilder.min != null ? boxplotBuilder.min : minMaxData.getFirst();
-        max = boxplotBuilder.max != null ? boxplotBuilder.max : minMaxData.getSecond();
-        // Check for correct min and max value settings
-        Preconditions.checkState(min<=max, "Minimum value needs to be smaller than the maximum");
+        final List<Callable<double[]>> tasks = new ArrayList<>();
+        final Reservoir[] samples;
+        if (boxplotBuilder.sketches != null) {
+            // Take a snapshot of the running sketches, the legend shows the largest error of all sketches
+            Integer k = null;
+            for (Pair<String, QuantileSketch> variable : boxplotBuilder.sketches) {
+                names.add(variable.getFirst());
+                final QuantileSketch sketch = variable.getSecond().copy();
+                tasks.add(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        return statistics(sketch);
+                    }
+                });
+                k = k == null ? sketch.getK() : Math.min(k, sketch.getK());
+            }
+            this.approximation = k;
+            samples = null;
+        } else if (boxplotBuilder.sample != null) {
+            // Each variable is sampled on its own, the legend shows the largest error of all samples
+            this.approximation = boxplotBuilder.approximation;
+            List<DataSeries> sources = new ArrayList<>();
+            if (boxplotBuilder.series != null) {
+                sources.addAll(boxplotBuilder.series);
+            } else {
+                for (Pair<String, double[]> variable : boxplotBuilder.data) {
+                    sources.add(DataSeries.of(variable.getFirst(), variable.getSecond()));
+                }
+            }
+            samples = new Reservoir[sources.size()];
+            final int sampleSize = boxplotBuilder.sample;
+            final long seed = boxplotBuilder.seed;
+            for (int i = 0; i < sources.size(); i++) {
+                final DataSeries series = sources.get(i);
+                final int index = i;
+                names.add(series.getName());
+                tasks.add(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        Reservoir sample = Reservoir.of(sampleSize, seed, series);
+                        // Read after all tasks completed
+                        samples[index] = sample;
+                        return statistics(sample.getSample(0), approximation, null);
+                    }
+                });
+            }
+        } else if (boxplotBuilder.series != null) {
+            this.approximation = boxplotBuilder.approximation;
+            samples = null;
+            final Long memoryBudget = boxplotBuilder.memoryBudget;
+            for (int i = 0; i < boxplotBuilder.series.size(); i++) {
+                final DataSeries series = boxplotBuilder.series.get(i);
+                final DataProfile profile = boxplotBuilder.profiles != null ? boxplotBuilder.profiles.get(i) : null;
+                names.add(series.getName());
+                tasks.add(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        return statistics(series, approximation, memoryBudget, profile);
+                    }
+                });
+            }
+        } else {
+            this.approximation = boxplotBuilder.approximation;
+            samples = null;
+            final Long memoryBudget = boxplotBuilder.memoryBudget;
+            for (int i = 0; i < boxplotBuilder.data.size(); i++) {
+                final Pair<String, double[]> variable = boxplotBuilder.data.get(i);
+                final DataProfile profile = boxplotBuilder.profiles != null ? boxplotBuilder.profiles.get(i) : null;
+                names.add(variable.getFirst());
+                tasks.add(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        double[] values = variable.getSecond();
+                        // Percentile selects in a copy of the values, out of core the copy is bounded by the budget
+                        if (approximation == null && memoryBudget != null && 8L * values.length > memoryBudget) {
+                            return statistics(DataSeries.of(variable.getFirst(), values), null, memoryBudget, profile);
+                        }
+                        return statistics(values, approximation, profile);
+                    }
+                });
+            }
+        }
+
+        // Compute the statistics of all variables on first use (in parallel if an executor is given)
+        final Executor executor = boxplotBuilder.executor;
+        statistics = Suppliers.memoize(new Supplier<List<double[]>>() {
+            @Override
+            public List<double[]> get() {
+                return invokeAll(executor, tasks);
+            }
+        });
+
+        final Double min = boxplotBuilder.min;
+        final Double max = boxplotBuilder.max;
+        layout = Suppliers.memoize(new Supplier<Layout>() {
+            @Override
+            public Layout get() {
+                List<double[]> statistics = Boxplot.this.statistics.get();
+                // Set min and max values, the global min and max follow from the statistics of each variable
+                double minData = Double.POSITIVE_INFINITY;
+                double maxData = Double.NEGATIVE_INFINITY;
+                for (double[] variableStatistics : statistics) {
+                    minData = Math.min(minData, variableStatistics[STATISTIC_MIN]);
+                    maxData = Math.max(maxData, variableStatistics[STATISTIC_MAX]);
+                }
+                double minPlot = min != null ? min : minData;
+                double maxPlot = max != null ? max : maxData;
+                // Check for correct min and max value settings
+                Preconditions.checkState(minPlot <= maxPlot, "Minimum value needs to be smaller than the maximum");
+                char[][] rows = new char[statistics.size()][width];
+                for (int i = 0; i < rows.length; i++) {
+                    boxplotRow(rows[i], minPlot, maxPlot, statistics.get(i));
+                }
+                String errorString = approximation == null ? null
+                        : format(100 * QuantileSketch.getNormalizedRankError(approximation));
+                String sampleString = null;
+                if (samples != null) {
+                    Reservoir largestError = samples[0];
+                    for (Reservoir sample : samples) {
+                        if (sample.getMarginOfError() > largestError.getMarginOfError()) {
+                            largestError = sample;
+                        }
+                    }
+                    sampleString = largestError.note();
+                }
+                return new Layout(rows, format(minPlot), format(maxPlot), errorString, sampleString);
+            }
+        });
     }
 
     /**
@@ -41,9 +205,17 @@ public class Boxplot extends Plot {
      */
     public static class BoxplotBuilder {
         List<Pair<String, double[]>> data;
+        List<Pair<String, QuantileSketch>> sketches;
+        List<? extends DataSeries> series;
+        List<DataProfile> profiles;
         int width = DEFAULT_WIDTH;
         Double min = null;
         Double max = null;
+        Integer approximation = null;
+        Integer sample = null;
+        long seed = Reservoir.DEFAULT_SEED;
+        Long memoryBudget = null;
+        Executor executor = null;
 
         /**
          * Construct a Boxplot
@@ -53,6 +225,44 @@ public class Boxplot extends Plot {
            this.data = data;
         }
 
+        /**
+         * Construct a Boxplot showing the current state of running quantile sketches, later changes to the
+         * sketches are not reflected in the plot
+         * @param sketches Pair(variable name, sketch of the variable) - each sketch needs to contain at least one value
+         */
+        public static BoxplotBuilder fromSketches(List<Pair<String, QuantileSketch>> sketches){
+            for (Pair<String, QuantileSketch> sketch : sketches) {
+                Preconditions.checkArgument(sketch.getSecond().getN() > 0,
+                        "Sketch of " + sketch.getFirst() + " needs to contain at least one value");
+            }
+            BoxplotBuilder builder = new BoxplotBuilder(null);
+            builder.sketches = sketches;
+            return builder;
+        }
+
+        /**
+         * Construct a Boxplot of memory-mapped columns, see {@link #fromSeries(List)}
+         * @param columns values of each variable, named after the column
+         */
+        public static BoxplotBuilder fromColumns(List<Column> columns){
+            return fromSeries(columns);
+        }
+
+        /**
+         * Construct a Boxplot of series, e.g. of float[] or of memory-mapped columns. With
+         * {@link #setApproximation(Integer)} the series are read in chunks, exact quartiles copy each series to a
+         * double[] unless a memory budget is set with {@link #setMemoryBudget(Long)}.
+         * @param series values of each variable, named after the series
+         */
+        public static BoxplotBuilder fromSeries(List<? extends DataSeries> series){
+            for (DataSeries variable : series) {
+                Preconditions.checkArgument(variable.size() > 0, "Series " + variable.getName() + " needs to contain at least one value");
+            }
+            BoxplotBuilder builder = new BoxplotBuilder(null);
+            builder.series = series;
+            return builder;
+        }
+
         /**
          * @param width width of plots - attention: additional width is added by names and table formatting
          * @return
@@ -73,13 +283,90 @@ public class Boxplot extends Plot {
             return this;
         }
 
+        /**
+         * Take minimum, maximum and order of the variables from profiles computed by the caller, e.g. once for
+         * several plots of the same values, instead of another pass over each variable
+         * @param profiles profile of each variable in the order of the variables, an entry or the list may be null
+         *                 to compute them (ignored with an approximation, a sample or running sketches)
+         */
+        public BoxplotBuilder setProfiles(List<DataProfile> profiles){
+            this.profiles = profiles;
+            return this;
+        }
+
+        /**
+         * Estimate quartiles and median with a {@link QuantileSketch} in a single pass with constant memory
+         * instead of computing them exactly, the rank error is shown in the legend
+         * @param k accuracy parameter of the sketch, e.g. {@link QuantileSketch#DEFAULT_K} - null for exact quartiles
+         */
+        public BoxplotBuilder setApproximation(Integer k){
+            this.approximation = k;
+            return this;
+        }
+
+        /**
+         * Compute the statistics of a uniform random sample of each variable drawn in a single pass instead of all
+         * values, the legend notes the size and the margin of error of the samples, see {@link Reservoir}
+         * @param size number of values in the sample of each variable or null to use all values (ignored for running
+         *             sketches)
+         */
+        public BoxplotBuilder setSample(Integer size){
+            this.sample = size;
+            return this;
+        }
+
+        /**
+         * @param seed seed of the random samples, the same seed draws the same samples of the same data
+         */
+        public BoxplotBuilder setSeed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Compute exact quartiles and median of variables larger than the budget out of core: sorted runs of the
+         * values are spilled to temp files in java.io.tmpdir and merged, see {@link ExternalPercentiles}. Variables
+         * computed in parallel take up to the budget each. Ignored with an approximation or a sample.
+         * @param bytes number of bytes of values held on the heap per variable, e.g. 256 MB - null to hold all values
+         */
+        public BoxplotBuilder setMemoryBudget(Long bytes){
+            this.memoryBudget = bytes;
+            return this;
+        }
+
+        /**
+         * Compute the statistics of the variables in parallel, e.g. on a ForkJoinPool
+         * @param executor executor for the computation of each variable - null to compute them in the calling thread
+         */
+        public BoxplotBuilder setExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+
         /**
          * @return a Boxplot object with user settings
          */
         public Boxplot plotObject(){
+            Preconditions.checkState(sample == null || sample > 0, "Sample size needs to be positive");
+            Preconditions.checkState(memoryBudget == null || memoryBudget >= ExternalPercentiles.MIN_MEMORY_BUDGET,
+                    "Memory budget needs to be at least " + ExternalPercentiles.MIN_MEMORY_BUDGET + " bytes");
+            Preconditions.checkState(approximation == null || approximation >= QuantileSketch.MIN_K,
+                    "Approximation is set to " + approximation + " but needs to be at least " + QuantileSketch.MIN_K);
+            if (profiles != null && sketches == null) {
+                int variables = data != null ? data.size() : series.size();
+                Preconditions.checkState(profiles.size() == variables,
+                        "There are " + profiles.size() + " profiles for " + variables + " variables");
+                for (int i = 0; i < variables; i++) {
+                    checkProfile(profiles.get(i), data != null ? data.get(i).getSecond().length : series.get(i).size(),
+                            data != null ? data.get(i).getFirst() : series.get(i).getName());
+                }
+            }
             // Check for correct width
             Preconditions.checkState(width>=MIN_WIDTH && width <=MAX_WIDTH,
                     "Width is set to " + width + " but needs to be in " + "[" + MIN_WIDTH + "," + MAX_WIDTH + "]");
+            // Limits given by the user are checked at once, limits following from the data on first use
+            Preconditions.checkState(min == null || max == null || min <= max,
+                    "Minimum value needs to be smaller than the maximum");
             return new Boxplot(this);
         }
     }
@@ -90,68 +377,74 @@ public class Boxplot extends Plot {
      * @param printLegend switch legend on/off
      */
     @Override
-    public String plot(boolean printLegend){
-        String out = "";
-
-        List<Pair<String, String>> plots = boxplots();
-
+    public void render(Appendable out, boolean printLegend) throws IOException {
+        Layout layout = this.layout.get();
+        int maxLength = 0;
         if(printLegend) {
-            int maxLength = 0;
-
             // Find max length for name of variable
-            for (Pair<String, String> element : plots) {
-                int length = element.getFirst().length();
-                if (length > maxLength) maxLength = length;
+            for (String name : names) {
+                maxLength = Math.max(maxLength, name.length());
             }
+        }
 
-            /*
-             * Add a line for each plot
-             */
-            for (Pair<String, String> element : plots) {
-                String line = "";
-                line += element.getFirst();
+        /*
+         * Add a line for each plot
+         */
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if(printLegend) {
+                out.append(name);
                 // fill blancs
-                for (int i = element.getFirst().length() + 1; i <= maxLength; i++) {
-                    line += CHARACTER_EMPTY_BIN;
-                }
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLength - name.length());
                 // Add a character to divide name and plot
-                line += CHARACTER_COLUMN_DIVISOR;
-                // Plot variable as boxplot
-                line += element.getSecond();
+                out.append(CHARACTER_COLUMN_DIVISOR);
+            }
+            // Plot variable as boxplot
+            appendRow(out, layout.rows[i], 0, width);
+            if(printLegend) {
                 // Add a final character to show that the plot ended
-                line += CHARACTER_COLUMN_DIVISOR;
-                out += line + "\n";
+                out.append(CHARACTER_COLUMN_DIVISOR);
             }
+            out.append('\n');
+        }
 
-            /*
-             * Add a legend below plots
-             */
-            String minString = df.format(min);
-            String maxString = df.format(max);
+        /*
+         * Add a legend below plots
+         */
+        if(printLegend) {
+            String minString = layout.minString;
+            String maxString = layout.maxString;
 
-            String line = "";
             // Fill left
-            for (int i = 0; i < maxLength; i++) {
-                line += CHARACTER_EMPTY_BIN;
-            }
-            line += CHARACTER_COLUMN_DIVISOR;
+            appendRepeated(out, CHARACTER_EMPTY_BIN, maxLength);
+            out.append(CHARACTER_COLUMN_DIVISOR);
             // Write the minimum to the beginning of plots
-            line += minString;
+            out.append(minString);
             // Add spaces between min and max
-            for (int i = 0; i < width - maxString.length() - minString.length(); i++) {
-                line += CHARACTER_EMPTY_BIN;
-            }
+            appendRepeated(out, CHARACTER_EMPTY_BIN, width - maxString.length() - minString.length());
             // Write the maximum to the end of plots
-            line += maxString;
-            line += CHARACTER_COLUMN_DIVISOR;
-            out += line + "\n";
-        } else {
-            for(Pair<String, String> line : plots){
-                out += line.getSecond() + "\n";
+            out.append(maxString);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append('\n');
+
+            // Note the error of approximate quartiles
+            if(approximation != null) {
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLength);
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                out.append("approximate quartiles, rank error ");
+                out.append(layout.errorString);
+                out.append('%');
+                out.append('\n');
             }
-        }
 
-        return out;
+            // Note the size and the error of samples
+            if(layout.sampleString != null) {
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLength);
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                out.append(layout.sampleString);
+                out.append('\n');
+            }
+        }
     }
 
     /**
@@ -160,22 +453,139 @@ public class Boxplot extends Plot {
     public List<Pair<String, String>> boxplots(){
         // Create a string representation of a boxplot for each statistic
         List<Pair<String, String>> output = new ArrayList<>();
-        for(Pair<String,  double[]> variable : data){
-            DescriptiveStatistics stats = new DescriptiveStatistics(variable.getSecond());
-            // Note: this uses a simple approach where the whiskers represent min and max of each statistic
-            double minLocal = stats.getMin();
-            double maxLocal = stats.getMax();
-            double quartileLow = stats.getPercentile(25);
-            double quartileHigh = stats.getPercentile(75);
-            double median = stats.getPercentile(50);
-            // Create string using width bins
-            String boxplotString = boxplotString(min, max, minLocal, maxLocal, quartileLow, quartileHigh, median, width);
-            output.add(Pair.create(variable.getFirst(), boxplotString));
+        Layout layout = this.layout.get();
+        for (int i = 0; i < names.size(); i++) {
+            output.add(Pair.create(names.get(i), new String(layout.rows[i])));
         }
 
         return output;
     }
 
+    /**
+     * Draw the boxplot of a single variable into row
+     */
+    private void boxplotRow(char[] row, double min, double max, double[] statistics) {
+        boxplotChars(row, min, max, statistics[STATISTIC_MIN], statistics[STATISTIC_MAX],
+                statistics[STATISTIC_QUARTILE_LOW], statistics[STATISTIC_QUARTILE_HIGH], statistics[STATISTIC_MEDIAN], width);
+    }
+
+    /**
+     * @param values        data of a variable
+     * @param approximation accuracy of a quantile sketch or null for exact statistics
+     * @param profile       profile of the values or null to compute it
+     * @return minimum, low quartile, median, high quartile and maximum of the variable
+     */
+    private static double[] statistics(double[] values, Integer approximation, DataProfile profile) {
+        double[] statistics = new double[5];
+        // Note: this uses a simple approach where the whiskers represent min and max of each statistic
+        if(approximation != null) {
+            QuantileSketch sketch = new QuantileSketch(approximation);
+            sketch.addAll(values, 0, values.length);
+            return statistics(sketch);
+        } else {
+            if (profile == null) {
+                profile = DataProfile.of(values);
+            }
+            // NaN if there are no values
+            statistics[STATISTIC_MIN] = profile.getMin();
+            statistics[STATISTIC_MAX] = profile.getMax();
+            if (profile.isSorted()) {
+                // Sorted values need neither a copy nor a selection
+                statistics[STATISTIC_QUARTILE_LOW] = percentileOfSorted(values, 25);
+                statistics[STATISTIC_QUARTILE_HIGH] = percentileOfSorted(values, 75);
+                statistics[STATISTIC_MEDIAN] = percentileOfSorted(values, 50);
+            } else {
+                // A single copy of the values in which all percentiles are selected
+                Percentile percentile = new Percentile();
+                percentile.setData(values);
+                statistics[STATISTIC_QUARTILE_LOW] = percentile.evaluate(25);
+                statistics[STATISTIC_QUARTILE_HIGH] = percentile.evaluate(75);
+                statistics[STATISTIC_MEDIAN] = percentile.evaluate(50);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Percentile of sorted values estimated like {@link Percentile} (by default), interpolating between the values
+     * around position p / 100 * (n + 1)
+     *
+     * @param sorted values in ascending order
+     * @param p      percentile in (0, 100]
+     */
+    static double percentileOfSorted(double[] sorted, double p) {
+        int n = sorted.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if (n == 1) {
+            return sorted[0];
+        }
+        double position = p / 100 * (n + 1);
+        if (position < 1) {
+            return sorted[0];
+        }
+        if (position >= n) {
+            return sorted[n - 1];
+        }
+        int index = (int) Math.floor(position);
+        double fraction = position - index;
+        double lower = sorted[index - 1];
+        return lower + fraction * (sorted[index] - lower);
+    }
+
+    /**
+     * @param series        values of a variable
+     * @param approximation accuracy of a quantile sketch or null for exact statistics
+     * @param memoryBudget  number of bytes of values held on the heap for exact statistics or null to copy the series
+     * @param profile       profile of the series or null to compute it
+     * @return minimum, low quartile, median, high quartile and maximum of the series
+     */
+    private static double[] statistics(DataSeries series, Integer approximation, Long memoryBudget, DataProfile profile) {
+        if(approximation == null && memoryBudget == null) {
+            return statistics(series.toArray(), null, profile);
+        } else if(approximation == null) {
+            if (profile == null) {
+                profile = DataProfile.of(series);
+            }
+            double[] quartiles;
+            try {
+                quartiles = ExternalPercentiles.evaluate(series, profile, new double[]{25, 50, 75}, memoryBudget, null);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not spill " + series.getName() + " to temp files", e);
+            }
+            double[] statistics = new double[5];
+            statistics[STATISTIC_MIN] = profile.getMin();
+            statistics[STATISTIC_MAX] = profile.getMax();
+            statistics[STATISTIC_QUARTILE_LOW] = quartiles[0];
+            statistics[STATISTIC_MEDIAN] = quartiles[1];
+            statistics[STATISTIC_QUARTILE_HIGH] = quartiles[2];
+            return statistics;
+        }
+        QuantileSketch sketch = new QuantileSketch(approximation);
+        double[] chunk = new double[(int) Math.min(DataSeries.CHUNK_SIZE, series.size())];
+        for (long position = 0; position < series.size(); ) {
+            int count = series.read(position, chunk, 0, chunk.length);
+            sketch.addAll(chunk, 0, count);
+            position += count;
+        }
+        return statistics(sketch);
+    }
+
+    /**
+     * @return estimated minimum, low quartile, median, high quartile and maximum of a sketch
+     */
+    private static double[] statistics(QuantileSketch sketch) {
+        double[] statistics = new double[5];
+        double[] quartiles = sketch.getQuantiles(QUARTILES);
+        statistics[STATISTIC_MIN] = sketch.getMin();
+        statistics[STATISTIC_MAX] = sketch.getMax();
+        statistics[STATISTIC_QUARTILE_LOW] = quartiles[0];
+        statistics[STATISTIC_MEDIAN] = quartiles[1];
+        statistics[STATISTIC_QUARTILE_HIGH] = quartiles[2];
+        return statistics;
+    }
+
     /**
      * Create a string representation of a Boxplot for given variables
      * @param min visual minimum value
@@ -190,11 +600,20 @@ public class Boxplot extends Plot {
      */
     protected static String boxplotString(
         double min, double max, double minLocal, double maxLocal, double quartileLow, double quartileHigh, double median, int width) {
-        String[] out = new String[width];
+        char[] out = new char[width];
+        boxplotChars(out, min, max, minLocal, maxLocal, quartileLow, quartileHigh, median, width);
+        return new String(out);
+    }
+
+    /**
+     * Draw a Boxplot for given variables into the first width characters of out
+     *
+     * @see #boxplotString(double, double, double, double, double, double, double, int)
+     */
+    protected static void boxplotChars(char[] out,
+        double min, double max, double minLocal, double maxLocal, double quartileLow, double quartileHigh, double median, int width) {
         // Initially fill
-        for(int i = 0; i < out.length; i++){
-            out[i] = CHARACTER_EMPTY_BIN;
-        }
+        Arrays.fill(out, 0, width, EMPTY);
 
         // Locate bins for visual boundaries
         int minBound = locateBin(min, width, min, max);
@@ -202,50 +621,43 @@ public class Boxplot extends Plot {
 
         // Draw quartiles
         int binQuartileLow = locateBin(quartileLow, width, min, max);
-        if(!isOutOfBounds(binQuartileLow, minBound, maxBound)&&out[binQuartileLow].equals(CHARACTER_EMPTY_BIN)) {
-            out[binQuartileLow] = CHARACTER_BOXPLOT_QUARTILE_LOW;
+        if(!isOutOfBounds(binQuartileLow, minBound, maxBound)&&out[binQuartileLow] == EMPTY) {
+            out[binQuartileLow] = QUARTILE_LOW;
         }
         int binQuartileHigh = locateBin(quartileHigh, width, min, max);
-        if(!isOutOfBounds(binQuartileHigh, minBound, maxBound)&&out[binQuartileHigh].equals(CHARACTER_EMPTY_BIN)) {
-            out[binQuartileHigh] = CHARACTER_BOXPLOT_QUARTILE_HIGH;
+        if(!isOutOfBounds(binQuartileHigh, minBound, maxBound)&&out[binQuartileHigh] == EMPTY) {
+            out[binQuartileHigh] = QUARTILE_HIGH;
         }
 
         // Draw median
         int binMedian = locateBin(median, width, min, max);
-        if(!isOutOfBounds(binMedian, minBound, maxBound)&&out[binMedian].equals(CHARACTER_EMPTY_BIN)) out[binMedian] = CHARACTER_BOXPLOT_MEDIAN;
+        if(!isOutOfBounds(binMedian, minBound, maxBound)&&out[binMedian] == EMPTY) out[binMedian] = MEDIAN;
 
         // Fill bins between median and quartiles
         for(int i = binQuartileLow + 1; i < binMedian; i++){
-            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = CHARACTER_BOXPLOT_BODY_FILL;
+            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = BODY_FILL;
         }
         for(int i = binMedian + 1; i < binQuartileHigh; i++){
-            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = CHARACTER_BOXPLOT_BODY_FILL;
+            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = BODY_FILL;
         }
 
         // Draw min/max
         int binMin = locateBin(minLocal, width, min, max);
-        if(!isOutOfBounds(binMin, minBound, maxBound)&&out[binMin].equals(CHARACTER_EMPTY_BIN)) {
-            out[binMin] = CHARACTER_BOXPLOT_MINMAX;
+        if(!isOutOfBounds(binMin, minBound, maxBound)&&out[binMin] == EMPTY) {
+            out[binMin] = MINMAX;
         }
         int binMax = locateBin(maxLocal, width, min, max);
-        if(!isOutOfBounds(binMax, minBound, maxBound)&&out[binMax].equals(CHARACTER_EMPTY_BIN)) {
-            out[binMax] = CHARACTER_BOXPLOT_MINMAX;
+        if(!isOutOfBounds(binMax, minBound, maxBound)&&out[binMax] == EMPTY) {
+            out[binMax] = MINMAX;
         }
 
         // Fill bins between min/max and quartiles
         for(int i = binMin + 1; i < binQuartileLow; i++){
-            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = CHARACTER_BOXPLOT_WHISKER;
+            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = WHISKER;
         }
         for(int i = binQuartileHigh + 1; i < binMax; i++){
-            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = CHARACTER_BOXPLOT_WHISKER;
-        }
-
-        // Create the output string
-        String output = "";
-        for(String s : out){
-            output += s;
+            if(!isOutOfBounds(i, minBound, maxBound)) out[i] = WHISKER;
         }
-        return output;
     }
 
 }
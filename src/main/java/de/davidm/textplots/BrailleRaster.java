@@ -0,0 +1,137 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The occupancy of xy-values in a grid of height rows with width cells each, where every cell is split into 2x4
+ * dots drawn as a Braille pattern (U+2800 - U+28FF). A point sets a single bit, the 8 dots of a cell form one byte
+ * of a packed long[] and the byte is the offset of the cell's glyph in the Braille block. Rasters with the same size
+ * and limits can be merged. A BrailleRaster is not thread-safe.
+ */
+public class BrailleRaster {
+
+    public static final int DOTS_X = 2;
+    public static final int DOTS_Y = 4;
+
+    private static final char BRAILLE_BLANK = '\u2800';
+    private static final char EMPTY = Plot.CHARACTER_EMPTY_BIN.charAt(0);
+    private static final int CELLS_PER_LONG = Long.SIZE / Byte.SIZE;
+
+    // Bit of a dot in the byte of its cell by [dy][dx], dy = 0 is the top row of the cell
+    private static final int[][] DOT_BITS = {
+            {0x01, 0x08},
+            {0x02, 0x10},
+            {0x04, 0x20},
+            {0x40, 0x80}
+    };
+
+    private final int width, height;
+    private final double minX, maxX, minY, maxY;
+    private final long[] bits;
+
+    /**
+     * @param width  number of cells in a row, each 2 dots wide
+     * @param height number of rows, each 4 dots high
+     * @param minX   lower limit of x
+     * @param maxX   upper limit of x
+     * @param minY   lower limit of y
+     * @param maxY   upper limit of y
+     */
+    public BrailleRaster(int width, int height, double minX, double maxX, double minY, double maxY) {
+        Preconditions.checkArgument(width > 0 && height > 0, "Width and height need to be positive");
+        Preconditions.checkArgument(minX <= maxX, "Minimum value for X needs to be smaller than the maximum");
+        Preconditions.checkArgument(minY <= maxY, "Minimum value for Y needs to be smaller than the maximum");
+        this.width = width;
+        this.height = height;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.bits = new long[(width * height + CELLS_PER_LONG - 1) / CELLS_PER_LONG];
+    }
+
+    /**
+     * @param X x values
+     * @param Y y values, same length as X
+     */
+    public void addAll(double[] X, double[] Y) {
+        Preconditions.checkArgument(X.length == Y.length,
+                "Input vectors need to be of the same length. Currently X=" + X.length + " and Y=" + Y.length);
+        addAll(X, Y, 0, X.length);
+    }
+
+    /**
+     * Set the dots of pairs of values, values outside of the limits are ignored
+     *
+     * @param X   x values
+     * @param Y   y values
+     * @param off index of the first pair of values to be added
+     * @param len number of pairs of values to be added
+     */
+    public void addAll(double[] X, double[] Y, int off, int len) {
+        int dotsX = width * DOTS_X;
+        int dotsY = height * DOTS_Y;
+        double scaleX = dotsX / (maxX - minX);
+        double scaleY = dotsY / (maxY - minY);
+        for (int i = off; i < off + len; i++) {
+            double x = X[i];
+            double y = Y[i];
+            // Also skips NaN values
+            if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+                continue;
+            }
+            // The maximum belongs to the last dot like in Plot#locateBin, rounding must not pass it either
+            int dotX = x >= maxX ? dotsX - 1 : Math.min(dotsX - 1, (int) ((x - minX) * scaleX));
+            int dotY = dotsY - 1 - (y >= maxY ? dotsY - 1 : Math.min(dotsY - 1, (int) ((y - minY) * scaleY)));
+            int cell = (dotY / DOTS_Y) * width + dotX / DOTS_X;
+            int bit = DOT_BITS[dotY % DOTS_Y][dotX % DOTS_X];
+            bits[cell / CELLS_PER_LONG] |= (long) bit << ((cell % CELLS_PER_LONG) * Byte.SIZE);
+        }
+    }
+
+    /**
+     * Sets all dots of another raster with the same size and limits in this raster
+     */
+    public void merge(BrailleRaster other) {
+        Preconditions.checkArgument(width == other.width && height == other.height,
+                "Rasters of size " + width + "x" + height + " and " + other.width + "x" + other.height + " cannot be merged");
+        Preconditions.checkArgument(minX == other.minX && maxX == other.maxX && minY == other.minY && maxY == other.maxY,
+                "Rasters with different limits cannot be merged");
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param row    row of the raster, 0 holds the largest y values
+     * @param column column of the raster, 0 holds the smallest x values
+     * @return the dots of the cell as offset in the Braille block, 0 if the cell is empty
+     */
+    public int getDots(int row, int column) {
+        int cell = row * width + column;
+        return (int) (bits[cell / CELLS_PER_LONG] >>> ((cell % CELLS_PER_LONG) * Byte.SIZE)) & 0xFF;
+    }
+
+    /**
+     * Draw all cells row by row, empty cells are blank
+     *
+     * @param output array of at least width * height characters
+     * @return output
+     */
+    public char[] glyphs(char[] output) {
+        int cells = width * height;
+        for (int cell = 0; cell < cells; cell++) {
+            int dots = (int) (bits[cell / CELLS_PER_LONG] >>> ((cell % CELLS_PER_LONG) * Byte.SIZE)) & 0xFF;
+            output[cell] = dots == 0 ? EMPTY : (char) (BRAILLE_BLANK + dots);
+        }
+        return output;
+    }
+}
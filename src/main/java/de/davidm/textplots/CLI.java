@@ -4,22 +4,84 @@ import org.apache.commons.math3.util.Pair;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.StringArrayOptionHandler;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A command line interface for textplots
  */
 public class CLI {
+    private static final Pattern DURATION = Pattern.compile("(\\d+)(ms|s|m|)");
+    private static final Pattern SIZE = Pattern.compile("(\\d+)([kmg]?)", Pattern.CASE_INSENSITIVE);
+
+    // Text input needs about twice its size on the heap while it is read
+    private static final int BATCH_MEMORY_FACTOR = 2;
+
     @Option(name="-width", usage="width of printed plots")
     private Integer cmdWidth = Plot.DEFAULT_WIDTH;
 
     @Option(name="-height", usage="height of printed plots")
     private Integer cmdHeight= Plot.DEFAULT_HEIGHT;
 
-    @Option(name="-data", usage="data to be plotted in the form of {name|value1, value2, ...}{...}", required=true)
-    private String cmdData = "";
+    @Option(name="-data", usage="data to be plotted in the form of {name|value1, value2, ...}{...}")
+    private String cmdData = null;
+
+    @Option(name="-input", usage="file with one value or comma separated row of values per line, - for stdin")
+    private String cmdInput = null;
+
+    @Option(name="-columns", usage="comma separated names of the columns of -input to be plotted, e.g. latency,size - V1, V2, ... without header, by default all")
+    private String cmdColumns = null;
+
+    @Option(name="-format", usage="format of -input {text, float64, float32, int64} - binary files are memory-mapped, column files are detected")
+    private String cmdFormat = "text";
+
+    @Option(name="-follow", usage="file to follow like tail -f, the plot is redrawn as lines are appended")
+    private String cmdFollow = null;
+
+    @Option(name="-refresh", usage="interval between redraws in follow mode, e.g. 500ms or 2s")
+    private String cmdRefresh = "500ms";
+
+    @Option(name="-batch", usage="directory of input files to be plotted, each plot is written to a file in -out")
+    private String cmdBatch = null;
+
+    @Option(name="-out", usage="directory for the plots of -batch, plots are named after the input with .txt appended")
+    private String cmdOut = null;
+
+    @Option(name="-threads", usage="number of input files plotted in parallel in batch mode or of chunks of a text -input file parsed in parallel, by default the number of processors")
+    private Integer cmdThreads = null;
+
+    @Option(name="-memory", usage="maximum size of input files read at the same time in batch mode, e.g. 512m - by default a quarter of the heap")
+    private String cmdMemory = null;
+
+    @Option(name="-merge", handler=StringArrayOptionHandler.class,
+            usage="summary files to be merged and plotted instead of raw data")
+    private String[] cmdMerge = null;
+
+    @Option(name="-summarize", usage="write a summary of the data to the given file instead of plotting it")
+    private String cmdSummarize = null;
 
     @Option(name="-min", aliases="-minX", usage="maximum value in plot (for X)")
     private Double cmdMin = null;
@@ -36,49 +98,770 @@ public class CLI {
     @Option(name="-disableLegend", usage="set if no legend should be printed")
     private boolean cmdDisableLegend = false;
 
-    @Option(name="-type", usage="type of plot {boxplot, scatterplot, histogram}")
+    @Option(name="-approximate", usage="estimate boxplot quartiles with a sketch of given accuracy, e.g. 200")
+    private Integer cmdApproximate = null;
+
+    @Option(name="-memoryBudget", usage="compute exact boxplot quartiles out of core with at most this size of values on the heap per variable, e.g. 256m")
+    private String cmdMemoryBudget = null;
+
+    @Option(name="-ramp", usage="glyphs for scatterplot densities and heatmaps {default, ascii8, ascii10, shades}, by default default and shades")
+    private String cmdRamp = null;
+
+    @Option(name="-scale", usage="scaling of scatterplot densities and heatmaps {rank, linear, log}, by default rank and linear")
+    private String cmdScale = null;
+
+    @Option(name="-braille", usage="draw scatterplots with Braille dots, 2x4 points per character, instead of densities")
+    private boolean cmdBraille = false;
+
+    @Option(name="-logLinear", usage="count histograms in log-linear buckets of given significant digits, e.g. 2 for latencies")
+    private Integer cmdLogLinear = null;
+
+    @Option(name="-sample", usage="plot a random sample of given size of boxplots, scatterplots and histograms, e.g. 1000000")
+    private Integer cmdSample = null;
+
+    @Option(name="-seed", usage="seed of -sample, the same seed draws the same sample")
+    private long cmdSeed = Reservoir.DEFAULT_SEED;
+
+    @Option(name="-decimation", usage="reduction of lineplots to the width {minmax, lttb}")
+    private String cmdDecimation = "minmax";
+
+    @Option(name="-aggregate", usage="aggregation of heatmap cells {count, sum, mean, max}, by default count of 2 and sum of 3 variables")
+    private String cmdAggregate = null;
+
+    @Option(name="-type", usage="type of plot {boxplot, scatterplot, histogram, lineplot, heatmap}")
     private String type = "boxplot";
 
-    public static void main(String[] args) throws CmdLineException {
+    private final InputStream in;
+    private final PrintStream out;
+
+    public CLI() {
+        this(System.in, System.out);
+    }
+
+    /**
+     * @param in  source of -input -
+     * @param out target of plots and messages
+     */
+    public CLI(InputStream in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws CmdLineException, IOException {
         new CLI().run(args);
     }
 
-    public void run(String[] args) throws CmdLineException {
+    public void run(String[] args) throws CmdLineException, IOException {
         CmdLineParser parser = new CmdLineParser(this);
         try {
             parser.parseArgument(args);
-            // Transform data string to descriptive stat objects
-            List<Pair<String, double[]>> data = parse(cmdData);
-            Plot plot = null;
-            if(type.equals("boxplot")){
-                plot = new Boxplot.BoxplotBuilder(data)
-                        .setPlotLimits(cmdMin, cmdMax)
-                        .setWidth(cmdWidth)
-                        .plotObject();
-            } else if(type.equals("scatterplot")){
-                if(data.size()!=2){
-                    throw new IllegalArgumentException("Data needs to contain exactly 2 variables which will be parsed to X and Y values");
-                }
-                plot = new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1))
-                        .setPlotLimits(cmdMin, cmdMax, cmdMinY, cmdMaxY)
-                        .setSize(cmdWidth, cmdHeight)
-                        .plotObject();
-            } else if(type.equals("histogram")){
-                if(data.size()!=1){
-                    throw new IllegalArgumentException("Data needs to contain exactly 1 variable");
-                }
-                plot = new Histogram.HistogramBuilder(data.get(0))
-                        .setWidth(cmdWidth)
-                        .plotObject();
+            if((cmdData != null ? 1 : 0) + (cmdInput != null ? 1 : 0) + (cmdFollow != null ? 1 : 0) + (cmdMerge != null ? 1 : 0)
+                    + (cmdBatch != null ? 1 : 0) != 1){
+                throw new IllegalArgumentException("Exactly one of -data, -input, -follow, -merge or -batch needs to be given");
+            }
+            if(cmdBatch != null){
+                if(cmdOut == null){
+                    throw new IllegalArgumentException("Batch mode needs an output directory -out");
+                }
+                int threads = threads();
+                long memory = cmdMemory != null ? parseSize(cmdMemory) : Runtime.getRuntime().maxMemory() / 4;
+                out.println(batch(new File(cmdBatch), new File(cmdOut), threads, memory));
+                return;
+            }
+            if(cmdFollow != null){
+                follow(cmdFollow, new Utf8Sink(out), parseDuration(cmdRefresh), -1);
+                return;
+            }
+            if(cmdMerge != null){
+                List<Summary> summaries = new ArrayList<>();
+                for(String file : cmdMerge){
+                    try (InputStream stream = new FileInputStream(file)) {
+                        summaries.addAll(Summary.readAll(stream));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Could not read summary file " + file + ": " + e.getMessage(), e);
+                    }
+                }
+                print(plot(Summary.mergeAll(summaries)));
+                return;
+            }
+            // Transform input to data series
+            List<Pair<String, double[]>> data;
+            if(cmdInput != null && isBinary(cmdInput)){
+                try (ColumnFile file = openBinary(cmdInput)) {
+                    if(cmdSummarize == null){
+                        // Plot binary columns without copying them to the heap
+                        print(plotColumns(selectColumns(file.getColumns())));
+                        return;
+                    }
+                    data = new ArrayList<>();
+                    for(Column column : selectColumns(file.getColumns())){
+                        data.add(Pair.create(column.getName(), column.toArray()));
+                    }
+                }
+            } else if(cmdData != null){
+                data = parse(cmdData);
             } else {
-                throw new IllegalArgumentException("Could not match plot type. Needs to be one of (boxplot, scatterplot, heatmap)");
+                // Chunks of a text file are parsed in parallel
+                ForkJoinPool pool = new ForkJoinPool(threads());
+                try {
+                    data = read(cmdInput, pool);
+                } finally {
+                    pool.shutdown();
+                }
             }
-            plot.printPlot(!cmdDisableLegend);
+            if(cmdSummarize != null){
+                try (OutputStream stream = new FileOutputStream(cmdSummarize)) {
+                    Summary.writeAll(stream, summarize(data));
+                }
+                return;
+            }
+            print(plotData(data));
         } catch (CmdLineException e) {
             throw new CmdLineException(parser, "Could not parse given arguments", e);
         }
     }
 
+    /**
+     * Summarize data series for the plot type, summaries of different hosts can be merged if they were written with
+     * the same settings: histograms with the same -min and -max, scatterplots with the same size and limits
+     *
+     * @param data a list of pairs (column name, column data)
+     * @return histogram, quantile sketches or density grid of the data
+     */
+    protected List<Summary> summarize(List<Pair<String, double[]>> data) {
+        List<Summary> summaries = new ArrayList<>();
+        if(type.equals("boxplot")){
+            for(Pair<String, double[]> variable : data){
+                QuantileSketch sketch = new QuantileSketch(cmdApproximate != null ? cmdApproximate : QuantileSketch.DEFAULT_K);
+                sketch.addAll(variable.getSecond(), 0, variable.getSecond().length);
+                summaries.add(Summary.of(variable.getFirst(), sketch));
+            }
+        } else if(type.equals("scatterplot")){
+            if(data.size()!=2){
+                throw new IllegalArgumentException("Data needs to contain exactly 2 variables which will be parsed to X and Y values");
+            }
+            // Summaries are read back only with the size of a plot
+            if(cmdWidth < Plot.MIN_WIDTH || cmdWidth > Plot.MAX_WIDTH || cmdHeight < Plot.MIN_HEIGHT || cmdHeight > Plot.MAX_HEIGHT){
+                throw new IllegalArgumentException("Width and height need to be in [" + Plot.MIN_WIDTH + "," + Plot.MAX_WIDTH
+                        + "] and [" + Plot.MIN_HEIGHT + "," + Plot.MAX_HEIGHT + "]");
+            }
+            DataProfile profileX = profile(data.get(0).getSecond(), cmdMin == null || cmdMax == null);
+            DataProfile profileY = profile(data.get(1).getSecond(), cmdMinY == null || cmdMaxY == null);
+            DensityGrid grid = new DensityGrid(cmdWidth, cmdHeight,
+                    cmdMin != null ? cmdMin : profileX.getMin(), cmdMax != null ? cmdMax : profileX.getMax(),
+                    cmdMinY != null ? cmdMinY : profileY.getMin(), cmdMaxY != null ? cmdMaxY : profileY.getMax(), true);
+            grid.addAll(data.get(0).getSecond(), data.get(1).getSecond());
+            summaries.add(Summary.of(data.get(0).getFirst(), data.get(1).getFirst(), grid));
+        } else if(type.equals("histogram")){
+            if(data.size()!=1){
+                throw new IllegalArgumentException("Data needs to contain exactly 1 variable");
+            }
+            // A fixed range keeps the bins of different hosts aligned
+            StreamingHistogram histogram = cmdMin != null && cmdMax != null
+                    ? new StreamingHistogram(Histogram.DEFAULT_NR_BINS, cmdMin, cmdMax)
+                    : new StreamingHistogram(Histogram.DEFAULT_NR_BINS);
+            histogram.addAll(data.get(0).getSecond(), 0, data.get(0).getSecond().length);
+            summaries.add(Summary.of(data.get(0).getFirst(), histogram));
+        } else {
+            throw new IllegalArgumentException("Could not match plot type. Needs to be one of (boxplot, scatterplot, histogram, lineplot, heatmap)");
+        }
+        return summaries;
+    }
+
+    /**
+     * @param summaries merged summaries of a single type
+     * @return a plot of the summaries, the type of plot follows from the type of the summaries
+     */
+    protected Plot plot(List<Summary> summaries) {
+        if(summaries.isEmpty()){
+            throw new IllegalArgumentException("Input does not contain any summaries");
+        }
+        Summary.Type summaryType = summaries.get(0).getType();
+        for(Summary summary : summaries){
+            if(summary.getType() != summaryType){
+                throw new IllegalArgumentException("Summaries of type " + summaryType + " and " + summary.getType() + " cannot be plotted together");
+            }
+        }
+        if(summaryType == Summary.Type.QUANTILE_SKETCH){
+            List<Pair<String, QuantileSketch>> sketches = new ArrayList<>();
+            for(Summary summary : summaries){
+                sketches.add(Pair.create(summary.getNames()[0], summary.getSketch()));
+            }
+            return Boxplot.BoxplotBuilder.fromSketches(sketches)
+                    .setPlotLimits(cmdMin, cmdMax)
+                    .setWidth(cmdWidth)
+                    .plotObject();
+        }
+        if(summaries.size()!=1){
+            throw new IllegalArgumentException("Summaries need to contain exactly 1 variable but contain " + summaries.size());
+        }
+        Summary summary = summaries.get(0);
+        if(summaryType == Summary.Type.HISTOGRAM){
+            return new Histogram.HistogramBuilder(summary.getHistogram())
+                    .setWidth(cmdWidth)
+                    .plotObject();
+        }
+        return new Scatterplot.ScatterplotBuilder(summary.getNames()[0], summary.getNames()[1], summary.getGrid())
+                .setDensityRamp(DensityQuantizer.Ramp.forName(cmdRamp != null ? cmdRamp : "default"))
+                .setDensityScale(DensityQuantizer.Scale.forName(cmdScale != null ? cmdScale : "rank"))
+                .plotObject();
+    }
+
+    /**
+     * @param data a list of pairs (column name, column data)
+     * @return a plot of the data with the settings of the command line
+     */
+    protected Plot plotData(List<Pair<String, double[]>> data) {
+        if(type.equals("boxplot")){
+            return new Boxplot.BoxplotBuilder(data)
+                    .setProfiles(profiles(data, cmdApproximate == null && cmdSample == null))
+                    .setPlotLimits(cmdMin, cmdMax)
+                    .setWidth(cmdWidth)
+                    .setApproximation(cmdApproximate)
+                    .setMemoryBudget(cmdMemoryBudget != null ? parseSize(cmdMemoryBudget) : null)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("scatterplot")){
+            if(data.size()!=2){
+                throw new IllegalArgumentException("Data needs to contain exactly 2 variables which will be parsed to X and Y values");
+            }
+            return new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1))
+                    .setProfiles(profile(data.get(0).getSecond(), cmdSample == null && (cmdMin == null || cmdMax == null)),
+                            profile(data.get(1).getSecond(), cmdSample == null && (cmdMinY == null || cmdMaxY == null)))
+                    .setPlotLimits(cmdMin, cmdMax, cmdMinY, cmdMaxY)
+                    .setSize(cmdWidth, cmdHeight)
+                    .setDensityRamp(DensityQuantizer.Ramp.forName(cmdRamp != null ? cmdRamp : "default"))
+                    .setDensityScale(DensityQuantizer.Scale.forName(cmdScale != null ? cmdScale : "rank"))
+                    .setBraille(cmdBraille)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("histogram")){
+            if(data.size()!=1){
+                throw new IllegalArgumentException("Data needs to contain exactly 1 variable");
+            }
+            return new Histogram.HistogramBuilder(data.get(0))
+                    .setProfile(profile(data.get(0).getSecond(), cmdLogLinear == null && cmdSample == null))
+                    .setWidth(cmdWidth)
+                    .setLogLinear(cmdLogLinear)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("lineplot")){
+            return lineplot(data);
+        } else if(type.equals("heatmap")){
+            return heatmap(data);
+        }
+        throw new IllegalArgumentException("Could not match plot type. Needs to be one of (boxplot, scatterplot, histogram, lineplot, heatmap)");
+    }
+
+    /**
+     * @param data a single variable plotted over its index or pairs of ascending X and Y values
+     */
+    private Plot lineplot(List<Pair<String, double[]>> data) {
+        Lineplot.LineplotBuilder builder;
+        if(data.size()==1){
+            builder = new Lineplot.LineplotBuilder(data.get(0));
+        } else if(data.size()==2){
+            builder = new Lineplot.LineplotBuilder(data.get(0), data.get(1));
+        } else {
+            throw new IllegalArgumentException("Data needs to contain 1 variable or 2 variables which will be parsed to X and Y values");
+        }
+        if(data.size()==2){
+            builder.setProfileX(profile(data.get(0).getSecond(), true));
+        }
+        return builder
+                .setPlotLimits(cmdMin, cmdMax, cmdMinY, cmdMaxY)
+                .setSize(cmdWidth, cmdHeight)
+                .setDecimation(Lineplot.Decimation.forName(cmdDecimation))
+                .plotObject();
+    }
+
+    /**
+     * @param data X and Y values and optionally weights
+     */
+    private Plot heatmap(List<Pair<String, double[]>> data) {
+        Heatmap.HeatmapBuilder builder;
+        if(data.size()==2){
+            builder = new Heatmap.HeatmapBuilder(data.get(0), data.get(1));
+        } else if(data.size()==3){
+            builder = new Heatmap.HeatmapBuilder(data.get(0), data.get(1), data.get(2));
+        } else {
+            throw new IllegalArgumentException("Data needs to contain 2 variables which will be parsed to X and Y values or 3 variables with weights");
+        }
+        if(cmdAggregate != null){
+            builder.setAggregation(Heatmap.Aggregation.forName(cmdAggregate));
+        }
+        return builder
+                .setProfiles(profile(data.get(0).getSecond(), cmdMin == null || cmdMax == null),
+                        profile(data.get(1).getSecond(), cmdMinY == null || cmdMaxY == null))
+                .setPlotLimits(cmdMin, cmdMax, cmdMinY, cmdMaxY)
+                .setSize(cmdWidth, cmdHeight)
+                .setDensityRamp(DensityQuantizer.Ramp.forName(cmdRamp != null ? cmdRamp : "shades"))
+                .setDensityScale(DensityQuantizer.Scale.forName(cmdScale != null ? cmdScale : "linear"))
+                .plotObject();
+    }
+
+    /**
+     * @param columns memory-mapped columns of a binary file
+     * @return a plot of the columns which reads them in chunks
+     */
+    protected Plot plotColumns(List<Column> columns) {
+        if(type.equals("boxplot")){
+            return Boxplot.BoxplotBuilder.fromColumns(columns)
+                    .setProfiles(columnProfiles(columns, cmdApproximate == null && cmdSample == null))
+                    .setPlotLimits(cmdMin, cmdMax)
+                    .setWidth(cmdWidth)
+                    .setApproximation(cmdApproximate)
+                    .setMemoryBudget(cmdMemoryBudget != null ? parseSize(cmdMemoryBudget) : null)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("scatterplot")){
+            if(columns.size()!=2){
+                throw new IllegalArgumentException("Data needs to contain exactly 2 variables which will be parsed to X and Y values");
+            }
+            return new Scatterplot.ScatterplotBuilder(columns.get(0), columns.get(1))
+                    .setProfiles(profile(columns.get(0), cmdSample == null && (cmdMin == null || cmdMax == null)),
+                            profile(columns.get(1), cmdSample == null && (cmdMinY == null || cmdMaxY == null)))
+                    .setPlotLimits(cmdMin, cmdMax, cmdMinY, cmdMaxY)
+                    .setSize(cmdWidth, cmdHeight)
+                    .setDensityRamp(DensityQuantizer.Ramp.forName(cmdRamp != null ? cmdRamp : "default"))
+                    .setDensityScale(DensityQuantizer.Scale.forName(cmdScale != null ? cmdScale : "rank"))
+                    .setBraille(cmdBraille)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("histogram")){
+            if(columns.size()!=1){
+                throw new IllegalArgumentException("Data needs to contain exactly 1 variable");
+            }
+            return new Histogram.HistogramBuilder(columns.get(0))
+                    .setProfile(profile(columns.get(0), cmdLogLinear == null && cmdSample == null))
+                    .setWidth(cmdWidth)
+                    .setLogLinear(cmdLogLinear)
+                    .setSample(cmdSample)
+                    .setSeed(cmdSeed)
+                    .plotObject();
+        } else if(type.equals("lineplot") || type.equals("heatmap")){
+            // Lineplots select points by their index and heatmaps bin weights, so the columns are read into arrays
+            List<Pair<String, double[]>> data = new ArrayList<>();
+            for(Column column : columns){
+                data.add(new Pair<String, double[]>(column.getName(), column.toArray()));
+            }
+            return type.equals("lineplot") ? lineplot(data) : heatmap(data);
+        }
+        throw new IllegalArgumentException("Could not match plot type. Needs to be one of (boxplot, scatterplot, histogram, lineplot, heatmap)");
+    }
+
+    /**
+     * Profile an input column once in the CLI and hand it to the plot, so the plot does not scan the column again
+     *
+     * @param used true if the plot takes its limits or the order of the values from the profile with the settings of
+     *             the command line
+     * @return the profile of the values or null if the plot does not use it
+     */
+    private static DataProfile profile(double[] values, boolean used) {
+        return used ? DataProfile.of(values) : null;
+    }
+
+    /**
+     * @see #profile(double[], boolean)
+     */
+    private static DataProfile profile(DataSeries series, boolean used) {
+        return used ? DataProfile.of(series) : null;
+    }
+
+    /**
+     * @return the profile of each variable or null if the plot does not use them, see {@link #profile(double[], boolean)}
+     */
+    private static List<DataProfile> profiles(List<Pair<String, double[]>> data, boolean used) {
+        if(!used){
+            return null;
+        }
+        List<DataProfile> profiles = new ArrayList<>();
+        for(Pair<String, double[]> variable : data){
+            profiles.add(DataProfile.of(variable.getSecond()));
+        }
+        return profiles;
+    }
+
+    /**
+     * @return the profile of each column or null if the plot does not use them, see {@link #profile(double[], boolean)}
+     */
+    private static List<DataProfile> columnProfiles(List<Column> columns, boolean used) {
+        if(!used){
+            return null;
+        }
+        List<DataProfile> profiles = new ArrayList<>();
+        for(Column column : columns){
+            profiles.add(DataProfile.of(column));
+        }
+        return profiles;
+    }
+
+    /**
+     * Follow a growing file and redraw the plot in place whenever lines were appended. Values are counted in a
+     * {@link StreamingHistogram} or {@link QuantileSketch} per column, so memory does not grow with the file.
+     *
+     * @param file          path of the file, see {@link DataReader} for the format
+     * @param out           terminal output
+     * @param refreshMillis interval between polls of the file
+     * @param refreshes     number of polls or -1 to follow until interrupted
+     */
+    protected void follow(String file, Utf8Sink out, long refreshMillis, int refreshes) throws IOException {
+        if(!type.equals("boxplot") && !type.equals("histogram")){
+            throw new IllegalArgumentException("Follow mode supports plot types (boxplot, histogram)");
+        }
+        try (FileFollower follower = new FileFollower(file)) {
+            DataReader reader = new DataReader(follower);
+            List<QuantileSketch> sketches = new ArrayList<>();
+            StreamingHistogram histogram = new StreamingHistogram(Histogram.DEFAULT_NR_BINS);
+            TerminalRedraw redraw = new TerminalRedraw(out);
+            StringBuilder frame = new StringBuilder();
+            for (int i = 0; refreshes < 0 || i < refreshes; i++) {
+                if (i > 0) {
+                    Thread.sleep(refreshMillis);
+                }
+                if (!follower.poll()) {
+                    continue;
+                }
+                reader.resume();
+                while (reader.next()) {
+                    if (type.equals("histogram")) {
+                        if (reader.columns() != 1) {
+                            throw new IllegalArgumentException("Data needs to contain exactly 1 variable");
+                        }
+                        histogram.add(reader.get(0));
+                    } else {
+                        while (sketches.size() < reader.columns()) {
+                            sketches.add(new QuantileSketch(cmdApproximate != null ? cmdApproximate : QuantileSketch.DEFAULT_K));
+                        }
+                        for (int j = 0; j < sketches.size(); j++) {
+                            sketches.get(j).add(reader.get(j));
+                        }
+                    }
+                }
+                // Wait for at least one value per variable
+                boolean ready;
+                if (type.equals("histogram")) {
+                    ready = histogram.getN() > 0;
+                } else {
+                    ready = !sketches.isEmpty();
+                    for (QuantileSketch sketch : sketches) {
+                        ready &= sketch.getN() > 0;
+                    }
+                }
+                if (!ready) {
+                    continue;
+                }
+
+                Plot plot;
+                if (type.equals("histogram")) {
+                    plot = new Histogram.HistogramBuilder(histogram)
+                            .setWidth(cmdWidth)
+                            .plotObject();
+                } else {
+                    String[] header = reader.getHeader();
+                    List<Pair<String, QuantileSketch>> variables = new ArrayList<>();
+                    for (int j = 0; j < sketches.size(); j++) {
+                        variables.add(Pair.create(header != null ? header[j] : "V" + (j + 1), sketches.get(j)));
+                    }
+                    plot = Boxplot.BoxplotBuilder.fromSketches(variables)
+                            .setPlotLimits(cmdMin, cmdMax)
+                            .setWidth(cmdWidth)
+                            .plotObject();
+                }
+                frame.setLength(0);
+                plot.render(frame, !cmdDisableLegend);
+                redraw.draw(frame);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Plot every file of a directory to a file of the same name with .txt appended in the output directory. Files
+     * are plotted in parallel on a work-stealing pool within a single JVM, files which cannot be plotted are reported
+     * and skipped.
+     *
+     * @param inputDir  directory of input files, hidden files and subdirectories are ignored
+     * @param outputDir directory for the plots, created if it does not exist
+     * @param threads   number of files plotted in parallel
+     * @param memory    maximum number of bytes of input files read at the same time, a file larger than the limit
+     *                  is read on its own
+     * @return a summary of the throughput followed by a line for each file which could not be plotted
+     */
+    protected String batch(File inputDir, final File outputDir, int threads, long memory) throws IOException {
+        if(threads < 1 || memory < 1){
+            throw new IllegalArgumentException("Threads and memory of batch mode need to be positive");
+        }
+        File[] files = inputDir.listFiles();
+        if(files == null){
+            throw new IllegalArgumentException(inputDir + " is not a directory");
+        }
+        if(!outputDir.isDirectory() && !outputDir.mkdirs()){
+            throw new IOException("Could not create output directory " + outputDir);
+        }
+        Arrays.sort(files);
+
+        // Memory is reserved in KiB so that large budgets fit into the permits of a semaphore
+        final int permits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memory / 1024));
+        final Semaphore budget = new Semaphore(permits);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Pair<File, Future<String>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        long bytes = 0;
+        try {
+            for(final File file : files){
+                if(!file.isFile() || file.isHidden()){
+                    continue;
+                }
+                bytes += file.length();
+                final int cost = (int) Math.min(permits, Math.max(1, BATCH_MEMORY_FACTOR * file.length() / 1024));
+                // Wait for memory before a task is queued so that waiting does not block the pool
+                budget.acquireUninterruptibly(cost);
+                try {
+                    results.add(new Pair<File, Future<String>>(file, pool.submit(new Callable<String>() {
+                        @Override
+                        public String call() {
+                            // Failures are returned instead of thrown, the pool would wrap them in a copy
+                            try {
+                                plotFile(file, new File(outputDir, file.getName() + ".txt"));
+                                return null;
+                            } catch (IOException | RuntimeException e) {
+                                return message(e);
+                            } finally {
+                                budget.release(cost);
+                            }
+                        }
+                    })));
+                } catch (RuntimeException e) {
+                    budget.release(cost);
+                    throw e;
+                }
+            }
+
+            StringBuilder failures = new StringBuilder();
+            int failed = 0;
+            for(Pair<File, Future<String>> result : results){
+                String failure;
+                try {
+                    failure = result.getSecond().get();
+                } catch (ExecutionException e) {
+                    failure = message(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for plots", e);
+                }
+                if(failure != null){
+                    failed++;
+                    failures.append(System.lineSeparator()).append("Could not plot ").append(result.getFirst())
+                            .append(": ").append(failure);
+                }
+            }
+            double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+            int plotted = results.size() - failed;
+            return String.format(Locale.ROOT, "Plotted %d of %d files (%.1f MB) in %.2f s: %.1f plots/s, %.1f MB/s",
+                    plotted, results.size(), bytes / 1e6, seconds, plotted / seconds, bytes / 1e6 / seconds) + failures;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the message of an exception, its type if it has none
+     */
+    private static String message(Throwable e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    /**
+     * Plot a single file as given by -input
+     *
+     * @param input  text or binary input, see -format
+     * @param output target of the plot, an existing file is replaced
+     */
+    protected void plotFile(File input, File output) throws IOException {
+        if(isBinary(input.getPath())){
+            try (ColumnFile file = openBinary(input.getPath())) {
+                write(plotColumns(selectColumns(file.getColumns())), output);
+            }
+        } else {
+            // Files are already plotted in parallel
+            write(plotData(read(input.getPath(), null)), output);
+        }
+    }
+
+    /**
+     * Print a plot like {@link Plot#printPlot(boolean)} but to the output of this CLI
+     */
+    private void print(Plot plot) throws IOException {
+        Utf8Sink sink = new Utf8Sink(out);
+        plot.render(sink, !cmdDisableLegend);
+        sink.append(System.lineSeparator());
+        sink.flush();
+    }
+
+    private void write(Plot plot, File output) throws IOException {
+        // The sink leaves its stream open
+        try (OutputStream stream = new FileOutputStream(output)) {
+            Utf8Sink sink = new Utf8Sink(stream);
+            plot.render(sink, !cmdDisableLegend);
+            sink.append(System.lineSeparator());
+            sink.flush();
+        }
+    }
+
+    /**
+     * @return true if the input is read as binary columns, see -format
+     */
+    private boolean isBinary(String input) throws IOException {
+        return !input.equals("-") && (!cmdFormat.equals("text") || ColumnFile.isColumnFile(input));
+    }
+
+    private ColumnFile openBinary(String input) throws IOException {
+        return cmdFormat.equals("text") ? ColumnFile.open(input) : ColumnFile.raw(input, Column.Type.forName(cmdFormat));
+    }
+
+    /**
+     * @param size a number of bytes with an optional unit, e.g. 4096, 512k, 256m or 2g
+     * @return the size in bytes
+     */
+    protected static long parseSize(String size) {
+        Matcher matcher = SIZE.matcher(size.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Could not parse size " + size + ", expected e.g. 512m or 2g");
+        }
+        long value = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2).toLowerCase(Locale.ROOT)) {
+            case "k": return value << 10;
+            case "m": return value << 20;
+            case "g": return value << 30;
+            default: return value;
+        }
+    }
+
+    /**
+     * @param duration a number of milliseconds with an optional unit, e.g. 500, 500ms, 2s or 1m
+     * @return the duration in milliseconds
+     */
+    protected static long parseDuration(String duration) {
+        Matcher matcher = DURATION.matcher(duration.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Could not parse duration " + duration + ", expected e.g. 500ms or 2s");
+        }
+        long value = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2);
+        if (unit.equals("s")) {
+            return TimeUnit.SECONDS.toMillis(value);
+        } else if (unit.equals("m")) {
+            return TimeUnit.MINUTES.toMillis(value);
+        }
+        return value;
+    }
+
+    /**
+     * Read the columns selected by -columns from a file or stdin, files are memory-mapped and parsed in chunks
+     * by {@link TextFile}
+     *
+     * @param input    path of the file or - for stdin
+     * @param executor executor parsing the chunks of a file in parallel or null to parse them in the calling thread
+     *
+     * @return a list of pairs (column name, column data)
+     */
+    protected List<Pair<String, double[]>> read(String input, Executor executor) throws IOException {
+        List<String> columns = cmdColumns != null ? Arrays.asList(cmdColumns.split(",")) : null;
+        if (!input.equals("-")) {
+            return TextFile.read(input, columns, executor);
+        }
+        List<Pair<String, double[]>> data;
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            data = read(reader);
+        }
+        if (columns == null) {
+            return data;
+        }
+        List<String> names = new ArrayList<>();
+        for (Pair<String, double[]> column : data) {
+            names.add(column.getFirst());
+        }
+        List<Pair<String, double[]>> selected = new ArrayList<>();
+        for (String name : columns) {
+            selected.add(data.get(indexOfColumn(names, name)));
+        }
+        return selected;
+    }
+
+    /**
+     * @return the binary columns selected by -columns in the given order
+     */
+    private List<Column> selectColumns(List<Column> columns) {
+        if (cmdColumns == null) {
+            return columns;
+        }
+        List<String> names = new ArrayList<>();
+        for (Column column : columns) {
+            names.add(column.getName());
+        }
+        List<Column> selected = new ArrayList<>();
+        for (String name : cmdColumns.split(",")) {
+            selected.add(columns.get(indexOfColumn(names, name)));
+        }
+        return selected;
+    }
+
+    private static int indexOfColumn(List<String> names, String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Column " + name + " not found in " + names);
+        }
+        return index;
+    }
+
+    /**
+     * @return number of threads given by -threads, by default the number of processors
+     */
+    private int threads() {
+        return cmdThreads != null ? cmdThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Read data series line by line, see {@link DataReader} for the format
+     *
+     * @param reader source of the data
+     *
+     * @return a list of pairs (column name, column data) - columns are named V1, V2, ... if there is no header
+     */
+    protected List<Pair<String, double[]>> read(Reader reader) throws IOException {
+        DataReader dataReader = new DataReader(reader);
+        List<DoubleList> columns = new ArrayList<>();
+        while (dataReader.next()) {
+            if (columns.isEmpty()) {
+                for (int i = 0; i < dataReader.columns(); i++) {
+                    columns.add(new DoubleList());
+                }
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).add(dataReader.get(i));
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Input does not contain any values");
+        }
+
+        String[] header = dataReader.getHeader();
+        List<Pair<String, double[]>> output = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String name = header != null ? header[i] : "V" + (i + 1);
+            output.add(Pair.create(name, columns.get(i).toArray()));
+        }
+        return output;
+    }
+
     /**
      * Parse an input string into input data objects
      *
@@ -0,0 +1,156 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A column of little-endian numbers in a memory-mapped file, see {@link ColumnFile}. Values are not copied to the
+ * heap as a whole but read in chunks into a reusable array, so columns may be larger than the heap and larger than
+ * a single mapping (2 GB). Reading is thread-safe.
+ */
+public class Column extends DataSeries {
+
+    /**
+     * Encoding of the values, the ordinal is used in column files
+     */
+    public enum Type {
+        FLOAT64(8), FLOAT32(4), INT64(8);
+
+        private final int bytes;
+
+        Type(int bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return number of bytes per value
+         */
+        public int bytes() {
+            return bytes;
+        }
+
+        /**
+         * @param name one of float64, float32 or int64
+         * @return the matching type
+         */
+        public static Type forName(String name) {
+            switch (name) {
+                case "float64": return FLOAT64;
+                case "float32": return FLOAT32;
+                case "int64": return INT64;
+                default: throw new IllegalArgumentException("Unknown column type " + name + ", needs to be one of (float64, float32, int64)");
+            }
+        }
+    }
+
+    private final String name;
+    private final Type type;
+    private final long size;
+    private final int valuesPerSegment;
+    private final DoubleBuffer[] doubles;
+    private final FloatBuffer[] floats;
+    private final LongBuffer[] longs;
+
+    /**
+     * @param name             name of the column
+     * @param type             encoding of the values
+     * @param segments         mapped regions holding the values in order, all but the last hold valuesPerSegment values
+     * @param valuesPerSegment number of values in each full segment
+     */
+    Column(String name, Type type, ByteBuffer[] segments, int valuesPerSegment) {
+        this.name = name;
+        this.type = type;
+        this.valuesPerSegment = valuesPerSegment;
+        this.doubles = type == Type.FLOAT64 ? new DoubleBuffer[segments.length] : null;
+        this.floats = type == Type.FLOAT32 ? new FloatBuffer[segments.length] : null;
+        this.longs = type == Type.INT64 ? new LongBuffer[segments.length] : null;
+        long size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            ByteBuffer segment = segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            switch (type) {
+                case FLOAT64:
+                    doubles[i] = segment.asDoubleBuffer();
+                    size += doubles[i].remaining();
+                    break;
+                case FLOAT32:
+                    floats[i] = segment.asFloatBuffer();
+                    size += floats[i].remaining();
+                    break;
+                case INT64:
+                    longs[i] = segment.asLongBuffer();
+                    size += longs[i].remaining();
+                    break;
+            }
+        }
+        this.size = size;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public double get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " for " + size + " values");
+        }
+        int segment = (int) (index / valuesPerSegment);
+        int position = (int) (index % valuesPerSegment);
+        switch (type) {
+            case FLOAT64: return doubles[segment].get(position);
+            case FLOAT32: return floats[segment].get(position);
+            default: return longs[segment].get(position);
+        }
+    }
+
+    @Override
+    public int read(long from, double[] dst, int off, int len) {
+        Preconditions.checkArgument(from >= 0 && from <= size, "Index " + from + " is out of bounds for " + size + " values");
+        if (from == size) {
+            return 0;
+        }
+        int segment = (int) (from / valuesPerSegment);
+        int position = (int) (from % valuesPerSegment);
+        switch (type) {
+            case FLOAT64: {
+                // Bulk copy on a view so concurrent readers do not share a position
+                DoubleBuffer view = doubles[segment].duplicate();
+                view.position(position);
+                int count = Math.min(len, view.remaining());
+                view.get(dst, off, count);
+                return count;
+            }
+            case FLOAT32: {
+                FloatBuffer view = floats[segment];
+                int count = Math.min(len, view.limit() - position);
+                for (int i = 0; i < count; i++) {
+                    dst[off + i] = view.get(position + i);
+                }
+                return count;
+            }
+            default: {
+                LongBuffer view = longs[segment];
+                int count = Math.min(len, view.limit() - position);
+                for (int i = 0; i < count; i++) {
+                    dst[off + i] = view.get(position + i);
+                }
+                return count;
+            }
+        }
+    }
+}
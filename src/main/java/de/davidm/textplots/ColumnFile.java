@@ -0,0 +1,269 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.math3.util.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary columns of little-endian numbers which are memory-mapped instead of read, see {@link Column}.
+ *
+ * A raw file holds the values of a single column without any header. A file with a header holds several named
+ * columns which may have different types and lengths:
+ * <pre>
+ * "TXPC"                       magic
+ * uint8                        version
+ * 3 bytes                      reserved
+ * int32                        number of columns
+ * per column: uint8 type, uint16 length of name, name in UTF-8, int64 number of values
+ * values of each column, each starting at an offset divisible by 8
+ * </pre>
+ * The type is 0 for float64, 1 for float32 and 2 for int64. All numbers are little-endian.
+ */
+public class ColumnFile implements Closeable {
+
+    public static final int MAGIC = 0x43505854; // "TXPC" read as little-endian int
+    public static final int VERSION = 1;
+
+    // Mappings are limited to 2 GB, larger columns are split into segments
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final int ALIGNMENT = 8;
+
+    private final FileChannel channel;
+    private final List<Column> columns;
+
+    private ColumnFile(FileChannel channel, List<Column> columns) {
+        this.channel = channel;
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Open a file with a header
+     *
+     * @param file path of the file
+     */
+    public static ColumnFile open(String file) throws IOException {
+        return open(file, SEGMENT_BYTES);
+    }
+
+    /**
+     * @param segmentBytes maximum size of a mapping
+     */
+    static ColumnFile open(String file, long segmentBytes) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a column file");
+            }
+            int version = header.get(4) & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported column file version " + version + ", expected " + VERSION);
+            }
+            int count = header.getInt(8);
+            long position = header.capacity();
+
+            List<String> names = new ArrayList<>();
+            List<Column.Type> types = new ArrayList<>();
+            List<Long> sizes = new ArrayList<>();
+            ByteBuffer field = ByteBuffer.allocate(3).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                field.clear();
+                position += readFully(channel, field, position);
+                int type = field.get(0) & 0xFF;
+                if (type >= Column.Type.values().length) {
+                    throw new IllegalArgumentException("Unknown column type " + type + " in " + file);
+                }
+                types.add(Column.Type.values()[type]);
+                ByteBuffer name = ByteBuffer.allocate(field.getShort(1) & 0xFFFF);
+                position += readFully(channel, name, position);
+                names.add(new String(name.array(), StandardCharsets.UTF_8));
+                ByteBuffer size = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                position += readFully(channel, size, position);
+                sizes.add(size.getLong(0));
+            }
+
+            List<Column> columns = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                position = align(position);
+                columns.add(map(channel, names.get(i), types.get(i), position, sizes.get(i), segmentBytes));
+                position += sizes.get(i) * types.get(i).bytes();
+            }
+            return new ColumnFile(channel, columns);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a raw file holding the values of a single column, the column is named after the file
+     *
+     * @param file path of the file
+     * @param type encoding of the values
+     */
+    public static ColumnFile raw(String file, Column.Type type) throws IOException {
+        Path path = Paths.get(file);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size() / type.bytes();
+            Preconditions.checkArgument(size * type.bytes() == channel.size(),
+                    "Size of " + file + " is not a multiple of " + type.bytes() + " bytes");
+            List<Column> columns = new ArrayList<>();
+            columns.add(map(channel, path.getFileName().toString(), type, 0, size, SEGMENT_BYTES));
+            return new ColumnFile(channel, columns);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write columns of equal type to a file with a header
+     *
+     * @param file    path of the file, an existing file is replaced
+     * @param columns pairs (column name, column data)
+     * @param type    encoding of the values, values are rounded for float32 and int64
+     */
+    public static void write(String file, List<Pair<String, double[]>> columns, Column.Type type) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Column.CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.put((byte) VERSION);
+            buffer.put(new byte[3]);
+            buffer.putInt(columns.size());
+            long position = buffer.position();
+            for (Pair<String, double[]> column : columns) {
+                byte[] name = column.getFirst().getBytes(StandardCharsets.UTF_8);
+                Preconditions.checkArgument(name.length <= 0xFFFF, "Name of column is too long");
+                buffer = ensureRemaining(channel, buffer, 11 + name.length);
+                buffer.put((byte) type.ordinal());
+                buffer.putShort((short) name.length);
+                buffer.put(name);
+                buffer.putLong(column.getSecond().length);
+                position += 11 + name.length;
+            }
+            for (Pair<String, double[]> column : columns) {
+                for (; position % ALIGNMENT != 0; position++) {
+                    buffer = ensureRemaining(channel, buffer, 1);
+                    buffer.put((byte) 0);
+                }
+                for (double value : column.getSecond()) {
+                    buffer = ensureRemaining(channel, buffer, type.bytes());
+                    switch (type) {
+                        case FLOAT64: buffer.putDouble(value); break;
+                        case FLOAT32: buffer.putFloat((float) value); break;
+                        case INT64: buffer.putLong(Math.round(value)); break;
+                    }
+                }
+                position += (long) column.getSecond().length * type.bytes();
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return all columns in the order of the file
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @param name name of a column
+     * @return the first column with the given name
+     */
+    public Column getColumn(String name) {
+        for (Column column : columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("Column " + name + " does not exist");
+    }
+
+    /**
+     * Closes the file, columns stay readable until they are garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return true if the file starts with the magic of a column file
+     */
+    public static boolean isColumnFile(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read until the magic is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    private static Column map(FileChannel channel, String name, Column.Type type, long position, long size,
+                              long segmentBytes) throws IOException {
+        Preconditions.checkArgument(size >= 0 && position + size * type.bytes() <= channel.size(),
+                "Column " + name + " exceeds the end of the file");
+        int valuesPerSegment = (int) (segmentBytes / type.bytes());
+        int segments = (int) Math.max(1, (size + valuesPerSegment - 1) / valuesPerSegment);
+        ByteBuffer[] buffers = new ByteBuffer[segments];
+        for (int i = 0; i < segments; i++) {
+            long values = Math.min(valuesPerSegment, size - (long) i * valuesPerSegment);
+            buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + (long) i * valuesPerSegment * type.bytes(),
+                    values * type.bytes());
+        }
+        return new Column(name, type, buffers, valuesPerSegment);
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * @return number of bytes read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + read);
+            if (count < 0) {
+                throw new IllegalArgumentException("Column file is truncated");
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,313 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.math3.util.Pair;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A resident JVM which renders plots for {@link DaemonClient}, so scripts calling textplots many times pay the JVM
+ * startup and class loading only once. Each request holds the arguments of {@link CLI} and optionally the data of
+ * -input - and is answered with the output of the CLI. Requests with -follow or -batch are rejected, they would
+ * block a thread of the daemon for their whole run. A connection which sends nothing for the -timeout is closed.
+ *
+ * The daemon listens on a loopback port. The port and a random token are written to a file readable by the owner
+ * only, requests without the token are rejected. The protocol uses data streams (big-endian):
+ * <pre>
+ * request:  int32 magic, uint8 type, UTF token, for renders int32 number of arguments, UTF arguments, data until EOF
+ * response: int32 exit status, int32 length of output, output in UTF-8, UTF error message
+ * </pre>
+ */
+public class Daemon {
+
+    public static final int MAGIC = 0x54585044; // "TXPD"
+
+    // Types of requests
+    static final byte RENDER = 0;
+    static final byte STATUS = 1;
+    static final byte STOP = 2;
+
+    // Exit status of requests
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int REJECTED = 2;
+
+    private static final int TOKEN_BYTES = 16;
+    private static final int MAX_MESSAGE_LENGTH = 8192;
+    private static final int MAX_ARGUMENTS = 4096;
+    private static final int RECENT_LATENCIES = 10000;
+    // Arguments of the CLI which run until interrupted or write files instead of answering the request
+    private static final List<String> UNSUPPORTED_ARGUMENTS = Arrays.asList("-follow", "-batch");
+
+    @Option(name="-portFile", usage="file the port and token are written to, read by the client")
+    private String cmdPortFile = DaemonClient.DEFAULT_PORT_FILE;
+
+    @Option(name="-port", usage="port on the loopback interface, 0 for any free port")
+    private int cmdPort = 0;
+
+    @Option(name="-threads", usage="number of requests handled in parallel, by default the number of processors")
+    private Integer cmdThreads = null;
+
+    @Option(name="-timeout", usage="time a connection may wait for data of the client before it is closed, e.g. 500ms or 30s")
+    private String cmdTimeout = "30s";
+
+    private ServerSocket server;
+    private Path portFile;
+    private String token;
+    private ExecutorService executor;
+    private int timeoutMillis;
+    private long started;
+
+    // Latencies of requests in milliseconds: quantiles of all requests and the most recent ones for the histogram,
+    // guarded by this
+    private final QuantileSketch latencies = new QuantileSketch();
+    private final double[] recent = new double[RECENT_LATENCIES];
+    private long failed = 0;
+
+    public static void main(String[] args) throws CmdLineException, IOException {
+        Daemon daemon = new Daemon();
+        CmdLineParser parser = new CmdLineParser(daemon);
+        try {
+            parser.parseArgument(args);
+        } catch (CmdLineException e) {
+            throw new CmdLineException(parser, "Could not parse given arguments", e);
+        }
+        daemon.start();
+        System.out.println("Listening on port " + daemon.getPort() + ", stop with DaemonClient -stop");
+        daemon.serve();
+    }
+
+    /**
+     * Bind the port and publish it in the port file
+     */
+    public void start() throws IOException {
+        Preconditions.checkState(server == null, "Daemon is already started");
+        int threads = cmdThreads != null ? cmdThreads : Runtime.getRuntime().availableProcessors();
+        Preconditions.checkArgument(threads > 0, "Threads need to be positive");
+        long timeout = CLI.parseDuration(cmdTimeout);
+        Preconditions.checkArgument(timeout > 0 && timeout <= Integer.MAX_VALUE,
+                "Timeout needs to be positive and at most " + Integer.MAX_VALUE + " ms");
+        timeoutMillis = (int) timeout;
+
+        byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(String.format(Locale.ROOT, "%02x", b & 0xFF));
+        }
+        this.token = token.toString();
+
+        server = new ServerSocket(cmdPort, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newFixedThreadPool(threads);
+        started = System.nanoTime();
+        try {
+            publish(new File(cmdPortFile).toPath());
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            executor.shutdown();
+            throw e;
+        }
+    }
+
+    /**
+     * Accept requests until a stop request is received
+     */
+    public void serve() throws IOException {
+        Preconditions.checkState(server != null, "Daemon needs to be started");
+        try {
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    // The server socket was closed by a stop request
+                    break;
+                }
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(socket);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Files.deleteIfExists(portFile);
+        }
+    }
+
+    /**
+     * Stop accepting requests, requests which are handled already are completed
+     */
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return uptime, number of requests and the distribution of their latencies
+     */
+    public synchronized String status() {
+        StringBuilder status = new StringBuilder();
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started);
+        status.append(String.format(Locale.ROOT, "uptime %d s, %d requests, %d failed%n", seconds, latencies.getN(), failed));
+        if (latencies.getN() > 0) {
+            double[] quantiles = latencies.getQuantiles(new double[]{0.5, 0.9, 0.99});
+            status.append(String.format(Locale.ROOT, "latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                    quantiles[0], quantiles[1], quantiles[2], latencies.getMax()));
+            int count = (int) Math.min(latencies.getN(), recent.length);
+            status.append(String.format(Locale.ROOT, "latency ms of the last %d requests:%n", count));
+            status.append(new Histogram.HistogramBuilder(
+                    new Pair<String, double[]>("ms", Arrays.copyOf(recent, count))).plotObject().plot(true));
+        }
+        return status.toString();
+    }
+
+    private void handle(Socket socket) {
+        long start = System.nanoTime();
+        try (Socket connection = socket) {
+            // Idle clients must not hold a thread of the pool
+            connection.setSoTimeout(timeoutMillis);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            byte type = in.readByte();
+            if (!in.readUTF().equals(token)) {
+                respond(out, REJECTED, new byte[0], "Invalid token");
+                return;
+            }
+            try {
+                if (type == STATUS) {
+                    respond(out, OK, status().getBytes(StandardCharsets.UTF_8), "");
+                } else if (type == STOP) {
+                    respond(out, OK, new byte[0], "");
+                    stop();
+                } else if (type == RENDER) {
+                    int count = in.readInt();
+                    if (count < 0 || count > MAX_ARGUMENTS) {
+                        record(REJECTED, (System.nanoTime() - start) / 1e6);
+                        respond(out, REJECTED, new byte[0], "Number of arguments needs to be in [0, " + MAX_ARGUMENTS
+                                + "] but is " + count);
+                        return;
+                    }
+                    String[] args = new String[count];
+                    for (int i = 0; i < args.length; i++) {
+                        args[i] = in.readUTF();
+                    }
+                    render(args, in, out, start);
+                } else {
+                    respond(out, REJECTED, new byte[0], "Unknown request type " + type);
+                }
+            } catch (RuntimeException e) {
+                // Every request which passed the token check gets an answer
+                record(FAILED, (System.nanoTime() - start) / 1e6);
+                respond(out, FAILED, new byte[0], String.valueOf(e.getMessage()));
+            }
+        } catch (IOException e) {
+            // The client went away, there is no one to report to
+        }
+    }
+
+    private void render(String[] args, InputStream in, DataOutputStream out, long start) throws IOException {
+        for (String arg : args) {
+            if (UNSUPPORTED_ARGUMENTS.contains(arg)) {
+                record(FAILED, (System.nanoTime() - start) / 1e6);
+                respond(out, FAILED, new byte[0], arg + " is not supported by the daemon, run it with the CLI");
+                return;
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = OK;
+        String message = "";
+        try {
+            // Reading -input - must not close the connection
+            InputStream data = new FilterInputStream(in) {
+                @Override
+                public void close() {
+                }
+            };
+            new CLI(data, new PrintStream(output, true, "UTF-8")).run(args);
+        } catch (CmdLineException | IOException | RuntimeException e) {
+            status = FAILED;
+            message = String.valueOf(e.getMessage());
+        }
+        // Recorded before the response so a following status request includes this request
+        record(status, (System.nanoTime() - start) / 1e6);
+        respond(out, status, output.toByteArray(), message);
+    }
+
+    private synchronized void record(int status, double millis) {
+        recent[(int) (latencies.getN() % recent.length)] = millis;
+        latencies.add(millis);
+        if (status != OK) {
+            failed++;
+        }
+    }
+
+    private static void respond(DataOutputStream out, int status, byte[] output, String message) throws IOException {
+        out.writeInt(status);
+        out.writeInt(output.length);
+        out.write(output);
+        out.writeUTF(message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+        out.flush();
+    }
+
+    /**
+     * Write port and token to a file readable by the owner only, the file is replaced atomically
+     */
+    private void publish(Path portFile) throws IOException {
+        Path directory = portFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, ".textplots", ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system, the file keeps the default permissions
+            }
+            Files.write(temporary, (getPort() + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        this.portFile = portFile;
+    }
+}
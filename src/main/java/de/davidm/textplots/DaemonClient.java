@@ -0,0 +1,156 @@
+package de.davidm.textplots;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A thin client of {@link Daemon} taking the same arguments as {@link CLI}. Only classes of the JDK are loaded, so
+ * the client starts quickly. Relative paths are resolved against the working directory of the client and the data of
+ * -input - is streamed to the daemon.
+ *
+ * In addition to the arguments of the CLI, -status prints the latencies of the daemon and -stop stops it. A leading
+ * -portFile selects a daemon started with the same -portFile.
+ */
+public class DaemonClient {
+
+    public static final String DEFAULT_PORT_FILE =
+            System.getProperty("user.home") + File.separator + ".textplots" + File.separator + "daemon";
+
+    // Arguments of the CLI holding paths, -merge is followed by any number of paths
+    private static final Set<String> PATH_OPTIONS = new HashSet<>(
+            Arrays.asList("-input", "-follow", "-merge", "-summarize", "-batch", "-out"));
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public static void main(String[] args) throws IOException {
+        // A leading -portFile selects the daemon, all other arguments are passed on
+        File portFile = new File(DEFAULT_PORT_FILE);
+        if (args.length >= 2 && args[0].equals("-portFile")) {
+            portFile = new File(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        System.exit(run(args, portFile, System.in, System.out, System.err));
+    }
+
+    /**
+     * Send a request to the daemon
+     *
+     * @param args     arguments of the CLI, -status or -stop
+     * @param portFile file written by the daemon
+     * @param stdin    data of -input -
+     * @param stdout   target of the output of the daemon
+     * @param stderr   target of error messages
+     * @return exit status, 0 on success
+     */
+    public static int run(String[] args, File portFile, InputStream stdin, OutputStream stdout, PrintStream stderr)
+            throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(portFile.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // The name is not taken from the class to avoid loading the dependencies of the daemon
+            stderr.println("Daemon is not running, start it with java -cp textplots.jar de.davidm.textplots.Daemon");
+            return Daemon.REJECTED;
+        }
+        if (lines.size() < 2) {
+            stderr.println("Port file " + portFile + " is incomplete");
+            return Daemon.REJECTED;
+        }
+
+        byte type = Daemon.RENDER;
+        if (args.length == 1 && args[0].equals("-status")) {
+            type = Daemon.STATUS;
+        } else if (args.length == 1 && args[0].equals("-stop")) {
+            type = Daemon.STOP;
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(lines.get(0).trim()))) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(Daemon.MAGIC);
+            out.writeByte(type);
+            out.writeUTF(lines.get(1).trim());
+            if (type == Daemon.RENDER) {
+                String[] resolved = resolvePaths(args);
+                out.writeInt(resolved.length);
+                for (String arg : resolved) {
+                    out.writeUTF(arg);
+                }
+                out.flush();
+                if (readsStdin(args)) {
+                    try {
+                        copy(stdin, out);
+                    } catch (IOException e) {
+                        // The daemon failed before reading all data, its response holds the reason
+                    }
+                }
+            }
+            out.flush();
+            socket.shutdownOutput();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int status = in.readInt();
+            byte[] output = new byte[in.readInt()];
+            in.readFully(output);
+            String message = in.readUTF();
+            stdout.write(output);
+            stdout.flush();
+            if (!message.isEmpty()) {
+                stderr.println(message);
+            }
+            return status;
+        }
+    }
+
+    /**
+     * @return the arguments with relative paths made absolute
+     */
+    static String[] resolvePaths(String[] args) {
+        String[] resolved = args.clone();
+        String option = null;
+        int values = 0;
+        for (int i = 0; i < resolved.length; i++) {
+            if (resolved[i].startsWith("-") && !resolved[i].equals("-")) {
+                option = resolved[i];
+                values = 0;
+                continue;
+            }
+            // Only -merge takes more than one path
+            boolean path = PATH_OPTIONS.contains(option) && (values == 0 || option.equals("-merge"));
+            if (path && !resolved[i].equals("-")) {
+                resolved[i] = new File(resolved[i]).getAbsolutePath();
+            }
+            values++;
+        }
+        return resolved;
+    }
+
+    private static boolean readsStdin(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("-input") && args[i + 1].equals("-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read; (read = in.read(buffer)) >= 0; ) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
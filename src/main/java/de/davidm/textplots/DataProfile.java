@@ -0,0 +1,151 @@
+package de.davidm.textplots;
+
+/**
+ * Summary of a data series computed in a single pass: number of values, NaN and infinite values, minimum, maximum,
+ * sum and whether the values are in ascending order. Plots need the limits of their data before they can bin it,
+ * the profile provides them without another scan per plot.
+ *
+ * A profile is a snapshot of the values when it was computed. It is not cached, a plot computes the profile of its
+ * data once and passes it on to the parts which need it, so values changed between two plots are profiled again.
+ * Callers drawing several plots of the same values, like the CLI, compute the profile once and hand it to the
+ * builders, e.g. {@link Histogram.HistogramBuilder#setProfile(DataProfile)}. A DataProfile is immutable.
+ */
+public final class DataProfile {
+
+    private final long n;
+    private final long nanCount;
+    private final long infiniteCount;
+    private final double min, max;
+    private final double sum;
+    private final boolean sorted;
+
+    private DataProfile(Accumulator accumulator) {
+        this.n = accumulator.n;
+        this.nanCount = accumulator.nanCount;
+        this.infiniteCount = accumulator.infiniteCount;
+        boolean empty = accumulator.minMax[0] > accumulator.minMax[1];
+        this.min = empty ? Double.NaN : accumulator.minMax[0];
+        this.max = empty ? Double.NaN : accumulator.minMax[1];
+        this.sum = accumulator.sum;
+        this.sorted = accumulator.sorted;
+    }
+
+    /**
+     * @return the profile of the values in a single pass
+     */
+    public static DataProfile of(double[] values) {
+        Accumulator accumulator = new Accumulator();
+        accumulator.addAll(values, 0, values.length);
+        return new DataProfile(accumulator);
+    }
+
+    /**
+     * @return the profile of the series in a single pass, chunk by chunk
+     */
+    public static DataProfile of(DataSeries series) {
+        Accumulator accumulator = new Accumulator();
+        double[] chunk = new double[(int) Math.min(DataSeries.CHUNK_SIZE, Math.max(1, series.size()))];
+        for (long position = 0; position < series.size(); ) {
+            int count = series.read(position, chunk, 0, chunk.length);
+            accumulator.addAll(chunk, 0, count);
+            position += count;
+        }
+        return new DataProfile(accumulator);
+    }
+
+    /**
+     * Running state of the single pass
+     */
+    private static final class Accumulator {
+        // Values of a block stay in the L1 cache between the min/max kernel and the loop of the other statistics
+        private static final int BLOCK = 2048;
+
+        long n = 0;
+        long nanCount = 0;
+        long infiniteCount = 0;
+        final double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double sum = 0;
+        boolean sorted = true;
+        double previous = Double.NEGATIVE_INFINITY;
+
+        void addAll(double[] values, int off, int len) {
+            double sum = this.sum, previous = this.previous;
+            long nanCount = 0, infiniteCount = 0;
+            boolean sorted = this.sorted;
+            for (int block = off; block < off + len; block += BLOCK) {
+                int end = Math.min(block + BLOCK, off + len);
+                Kernels.minMax(values, block, end - block, minMax);
+                for (int i = block; i < end; i++) {
+                    double v = values[i];
+                    // False for NaN as well, values with NaN are not ordered
+                    sorted &= previous <= v;
+                    previous = v;
+                    // v - v is NaN for NaN and infinite values
+                    if (v - v == 0) {
+                        sum += v;
+                    } else if (v != v) {
+                        nanCount++;
+                    } else {
+                        infiniteCount++;
+                    }
+                }
+            }
+            this.sum = sum;
+            this.previous = previous;
+            this.sorted = sorted;
+            this.nanCount += nanCount;
+            this.infiniteCount += infiniteCount;
+            this.n += len;
+        }
+    }
+
+    /**
+     * @return number of values including NaN and infinite values
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return number of values which are neither NaN nor infinite
+     */
+    public long getFiniteCount() {
+        return n - nanCount - infiniteCount;
+    }
+
+    public long getNaNCount() {
+        return nanCount;
+    }
+
+    public long getInfiniteCount() {
+        return infiniteCount;
+    }
+
+    /**
+     * @return smallest value other than NaN, NaN if there is none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest value other than NaN, NaN if there is none
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return sum of the finite values
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return true if every value is larger than or equal to its predecessor, false if there are NaN values
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+}
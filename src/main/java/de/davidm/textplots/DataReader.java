@@ -0,0 +1,272 @@
+package de.davidm.textplots;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads numeric data row by row from a character stream. Each line holds one value or several values divided by
+ * a comma or tab. If the first line contains non-numeric fields it is interpreted as a header holding the names of
+ * the columns. Blank lines are skipped.
+ *
+ * Values are parsed directly from a reusable character buffer, so reading does not create intermediate Strings
+ * except for numbers which cannot be converted exactly by {@link FastDoubleParser} (e.g. more than 18 significant
+ * digits).
+ */
+public class DataReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfStream = false;
+
+    private long lineNumber = 0;
+    private String[] header = null;
+    private double[] row = new double[16];
+    private int columns = -1;
+
+    /**
+     * @param reader source of the data, does not need to be buffered
+     */
+    public DataReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    DataReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Advances to the next row of values
+     *
+     * @return false if the end of the stream has been reached
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int end = nextLineEnd();
+            if (end < 0) {
+                return false;
+            }
+            int start = position;
+            position = end < limit ? end + 1 : end;
+            lineNumber++;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (isBlank(start, end)) {
+                continue;
+            }
+            if (parseRow(start, end)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return number of values in each row, -1 before the first row has been read
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @param column index of the column
+     * @return value of the column in the current row
+     */
+    public double get(int column) {
+        if (column >= columns) {
+            throw new IndexOutOfBoundsException("Column " + column + " for " + columns + " columns");
+        }
+        return row[column];
+    }
+
+    /**
+     * @return names of the columns or null if the data has no header
+     */
+    public String[] getHeader() {
+        return header == null ? null : header.clone();
+    }
+
+    /**
+     * Continue reading after the end of the stream has been reached, e.g. for a {@link FileFollower} which provides
+     * more lines after a poll. The header and number of columns are kept.
+     */
+    public void resume() {
+        endOfStream = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Parse the fields of a line into the current row
+     *
+     * @return false if the line has been consumed as a header
+     */
+    private boolean parseRow(int start, int end) {
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == ',' || buffer[i] == '\t') {
+                if (count == row.length) {
+                    row = Arrays.copyOf(row, row.length * 2);
+                }
+                try {
+                    row[count++] = parseDouble(buffer, fieldStart, i);
+                } catch (NumberFormatException e) {
+                    if (columns < 0 && header == null) {
+                        header = parseHeader(start, end);
+                        columns = header.length;
+                        return false;
+                    }
+                    throw new IllegalArgumentException("Could not parse value in line " + lineNumber, e);
+                }
+                fieldStart = i + 1;
+            }
+        }
+        if (columns < 0) {
+            columns = count;
+        } else if (columns != count) {
+            throw new IllegalArgumentException(
+                    "Line " + lineNumber + " contains " + count + " values but " + columns + " are expected");
+        }
+        return true;
+    }
+
+    private String[] parseHeader(int start, int end) {
+        String[] fields = new String(buffer, start, end - start).split("[,\\t]", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].trim();
+        }
+        return fields;
+    }
+
+    /**
+     * @return the index of the end of the current line in the buffer or -1 if there is no more data
+     */
+    private int nextLineEnd() throws IOException {
+        int searchFrom = position;
+        while (true) {
+            for (int i = searchFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            if (endOfStream) {
+                return position < limit ? limit : -1;
+            }
+            // Move the incomplete line to the front and refill
+            int pending = limit - position;
+            if (pending == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, pending);
+            }
+            position = 0;
+            limit = pending;
+            searchFrom = pending;
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse a decimal number from a range of characters. Numbers with up to 18 significant digits are converted by
+     * {@link FastDoubleParser#toDouble(boolean, long, int)}, all others are handed to
+     * {@link Double#parseDouble(String)}.
+     *
+     * @param chars characters holding the number
+     * @param start first character (inclusive), surrounding whitespace is ignored
+     * @param end   last character (exclusive)
+     * @return the value of the number
+     * @throws NumberFormatException if the characters do not represent a number
+     */
+    static double parseDouble(char[] chars, int start, int end) {
+        while (start < end && Character.isWhitespace(chars[start])) start++;
+        while (end > start && Character.isWhitespace(chars[end - 1])) end--;
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+            anyDigit = true;
+            if (significantDigits > 0 || chars[i] != '0') {
+                if (significantDigits < FastDoubleParser.MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                } else {
+                    exponent++;
+                }
+                significantDigits++;
+            }
+        }
+        if (i < end && chars[i] == '.') {
+            for (i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++) {
+                anyDigit = true;
+                if (significantDigits > 0 || chars[i] != '0') {
+                    if (significantDigits < FastDoubleParser.MAX_DIGITS) {
+                        mantissa = mantissa * 10 + (chars[i] - '0');
+                        exponent--;
+                    }
+                    significantDigits++;
+                } else {
+                    exponent--;
+                }
+            }
+        }
+        if (anyDigit && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (chars[j] == '-' || chars[j] == '+')) {
+                negativeExponent = chars[j] == '-';
+                j++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = j;
+            for (; j < end && chars[j] >= '0' && chars[j] <= '9'; j++) {
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (chars[j] - '0');
+                }
+            }
+            if (j > exponentStart) {
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+                i = j;
+            }
+        }
+
+        if (anyDigit && i == end && significantDigits <= FastDoubleParser.MAX_DIGITS) {
+            double value = FastDoubleParser.toDouble(negative, mantissa, exponent);
+            // NaN if the conversion is not certain
+            if (value == value) {
+                return value;
+            }
+        }
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+}
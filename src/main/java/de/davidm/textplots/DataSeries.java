@@ -0,0 +1,240 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A named sequence of numbers read as doubles, so data held as float[], int[], long[], in buffers or in slices of
+ * arrays can be plotted without a widened copy. The builders read series in chunks of {@link #CHUNK_SIZE} values,
+ * only exact boxplot quartiles copy a series to a double[].
+ *
+ * Series over arrays and buffers reflect later changes of the values. Reading is thread-safe.
+ */
+public abstract class DataSeries {
+
+    /**
+     * Size of a chunk read by the builders at once
+     */
+    public static final int CHUNK_SIZE = 65536;
+
+    /**
+     * @return name of the variable
+     */
+    public abstract String getName();
+
+    /**
+     * @return number of values
+     */
+    public abstract long size();
+
+    /**
+     * @param index index of the value
+     * @return the value converted to double
+     */
+    public abstract double get(long index);
+
+    /**
+     * Copy values to an array
+     *
+     * @param from index of the first value
+     * @param dst  target array
+     * @param off  index in dst of the first value
+     * @param len  maximum number of values
+     * @return number of values copied, smaller than len at the end of the series or of a segment of the series
+     */
+    public abstract int read(long from, double[] dst, int off, int len);
+
+    /**
+     * Copy all values to a new array on the heap
+     *
+     * @throws IllegalStateException if the series does not fit into an array
+     */
+    public double[] toArray() {
+        Preconditions.checkState(size() <= Integer.MAX_VALUE - 8,
+                "Series " + getName() + " with " + size() + " values does not fit into an array");
+        double[] values = new double[(int) size()];
+        int position = 0;
+        while (position < values.length) {
+            position += read(position, values, position, values.length - position);
+        }
+        return values;
+    }
+
+    /**
+     * @return minimum and maximum of the values in a single pass, NaN values are ignored
+     */
+    public double[] minMax() {
+        double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        double[] chunk = new double[(int) Math.min(CHUNK_SIZE, Math.max(1, size()))];
+        for (long position = 0; position < size(); ) {
+            int count = read(position, chunk, 0, chunk.length);
+            Kernels.minMax(chunk, 0, count, minMax);
+            position += count;
+        }
+        return minMax;
+    }
+
+    public static DataSeries of(String name, double[] values) {
+        return of(name, values, 0, values.length);
+    }
+
+    /**
+     * @param off index of the first value of the slice
+     * @param len number of values of the slice
+     */
+    public static DataSeries of(String name, final double[] values, final int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, values.length);
+        return new ArraySeries(name, len) {
+            @Override
+            double value(int index) {
+                return values[off + index];
+            }
+
+            @Override
+            void copy(int from, double[] dst, int dstOff, int len) {
+                System.arraycopy(values, off + from, dst, dstOff, len);
+            }
+        };
+    }
+
+    public static DataSeries of(String name, float[] values) {
+        return of(name, values, 0, values.length);
+    }
+
+    /**
+     * @param off index of the first value of the slice
+     * @param len number of values of the slice
+     */
+    public static DataSeries of(String name, final float[] values, final int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, values.length);
+        return new ArraySeries(name, len) {
+            @Override
+            double value(int index) {
+                return values[off + index];
+            }
+
+            @Override
+            void copy(int from, double[] dst, int dstOff, int len) {
+                for (int i = 0; i < len; i++) {
+                    dst[dstOff + i] = values[off + from + i];
+                }
+            }
+        };
+    }
+
+    public static DataSeries of(String name, int[] values) {
+        return of(name, values, 0, values.length);
+    }
+
+    /**
+     * @param off index of the first value of the slice
+     * @param len number of values of the slice
+     */
+    public static DataSeries of(String name, final int[] values, final int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, values.length);
+        return new ArraySeries(name, len) {
+            @Override
+            double value(int index) {
+                return values[off + index];
+            }
+
+            @Override
+            void copy(int from, double[] dst, int dstOff, int len) {
+                for (int i = 0; i < len; i++) {
+                    dst[dstOff + i] = values[off + from + i];
+                }
+            }
+        };
+    }
+
+    public static DataSeries of(String name, long[] values) {
+        return of(name, values, 0, values.length);
+    }
+
+    /**
+     * @param off index of the first value of the slice
+     * @param len number of values of the slice
+     */
+    public static DataSeries of(String name, final long[] values, final int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, values.length);
+        return new ArraySeries(name, len) {
+            @Override
+            double value(int index) {
+                return values[off + index];
+            }
+
+            @Override
+            void copy(int from, double[] dst, int dstOff, int len) {
+                for (int i = 0; i < len; i++) {
+                    dst[dstOff + i] = values[off + from + i];
+                }
+            }
+        };
+    }
+
+    /**
+     * @param values the values between position and limit of the buffer, later changes of position and limit are
+     *               not reflected in the series
+     */
+    public static DataSeries of(String name, DoubleBuffer values) {
+        final DoubleBuffer buffer = values.slice();
+        return new ArraySeries(name, buffer.remaining()) {
+            @Override
+            double value(int index) {
+                return buffer.get(index);
+            }
+
+            @Override
+            void copy(int from, double[] dst, int dstOff, int len) {
+                // Bulk copy on a view so concurrent readers do not share a position
+                DoubleBuffer view = buffer.duplicate();
+                view.position(from);
+                view.get(dst, dstOff, len);
+            }
+        };
+    }
+
+    /**
+     * A series of at most Integer.MAX_VALUE values held in memory
+     */
+    private abstract static class ArraySeries extends DataSeries {
+        private final String name;
+        private final int size;
+
+        ArraySeries(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        abstract double value(int index);
+
+        abstract void copy(int from, double[] dst, int dstOff, int len);
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public double get(long index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " for " + size + " values");
+            }
+            return value((int) index);
+        }
+
+        @Override
+        public int read(long from, double[] dst, int off, int len) {
+            Preconditions.checkArgument(from >= 0 && from <= size, "Index " + from + " is out of bounds for " + size + " values");
+            int count = (int) Math.min(len, size - from);
+            copy((int) from, dst, off, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The densities of xy-values in a grid of height rows with width cells each as shown by a {@link Scatterplot}.
+ * Grids with the same size, limits and smoothing can be merged, e.g. to plot values counted on several hosts.
+ * A DensityGrid is not thread-safe.
+ */
+public class DensityGrid {
+
+    private final int width, height;
+    private final double minX, maxX, minY, maxY;
+    private final boolean smoothing;
+    private final double[] densities;
+
+    /**
+     * @param width     number of cells in a row
+     * @param height    number of rows
+     * @param minX      lower limit of x
+     * @param maxX      upper limit of x
+     * @param minY      lower limit of y
+     * @param maxY      upper limit of y
+     * @param smoothing if true values are spread over the neighbouring cells, see {@link Scatterplot}
+     */
+    public DensityGrid(int width, int height, double minX, double maxX, double minY, double maxY, boolean smoothing) {
+        this(width, height, minX, maxX, minY, maxY, smoothing, new double[width * height]);
+    }
+
+    /**
+     * @param densities densities of all cells row by row, not copied
+     */
+    DensityGrid(int width, int height, double minX, double maxX, double minY, double maxY, boolean smoothing,
+                double[] densities) {
+        Preconditions.checkArgument(width > 0 && height > 0, "Width and height need to be positive");
+        Preconditions.checkArgument(minX <= maxX, "Minimum value for X needs to be smaller than the maximum");
+        Preconditions.checkArgument(minY <= maxY, "Minimum value for Y needs to be smaller than the maximum");
+        this.width = width;
+        this.height = height;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.smoothing = smoothing;
+        this.densities = densities;
+    }
+
+    /**
+     * @param X x values
+     * @param Y y values, same length as X
+     */
+    public void addAll(double[] X, double[] Y) {
+        Preconditions.checkArgument(X.length == Y.length,
+                "Input vectors need to be of the same length. Currently X=" + X.length + " and Y=" + Y.length);
+        addAll(X, Y, 0, X.length);
+    }
+
+    /**
+     * @param X   x values
+     * @param Y   y values
+     * @param off index of the first pair of values to be added
+     * @param len number of pairs of values to be added
+     */
+    public void addAll(double[] X, double[] Y, int off, int len) {
+        Scatterplot.splat(X, Y, off, off + len, densities, width, height, minX, maxX, minY, maxY, smoothing);
+    }
+
+    /**
+     * Adds the densities of another grid with the same size, limits and smoothing to this grid
+     */
+    public void merge(DensityGrid other) {
+        Preconditions.checkArgument(width == other.width && height == other.height,
+                "Grids of size " + width + "x" + height + " and " + other.width + "x" + other.height + " cannot be merged");
+        Preconditions.checkArgument(minX == other.minX && maxX == other.maxX && minY == other.minY && maxY == other.maxY,
+                "Grids with different limits cannot be merged");
+        Preconditions.checkArgument(smoothing == other.smoothing, "Smoothed and unsmoothed grids cannot be merged");
+        for (int i = 0; i < densities.length; i++) {
+            densities[i] += other.densities[i];
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean isSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * @param row    row of the grid, 0 holds the largest y values
+     * @param column column of the grid, 0 holds the smallest x values
+     * @return density of the cell
+     */
+    public double getDensity(int row, int column) {
+        return densities[row * width + column];
+    }
+
+    /**
+     * @return an independent copy of this grid
+     */
+    public DensityGrid copy() {
+        DensityGrid copy = new DensityGrid(width, height, minX, maxX, minY, maxY, smoothing);
+        System.arraycopy(densities, 0, copy.densities, 0, densities.length);
+        return copy;
+    }
+
+    /**
+     * @return densities of all cells row by row, not copied
+     */
+    double[] densities() {
+        return densities;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeDouble(minX);
+        out.writeDouble(maxX);
+        out.writeDouble(minY);
+        out.writeDouble(maxY);
+        out.writeBoolean(smoothing);
+        for (double density : densities) {
+            out.writeDouble(density);
+        }
+    }
+
+    static DensityGrid readFrom(DataInput in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        // Checked before the cells are allocated, a corrupt size must not allocate gigabytes
+        Preconditions.checkArgument(width >= Plot.MIN_WIDTH && width <= Plot.MAX_WIDTH
+                        && height >= Plot.MIN_HEIGHT && height <= Plot.MAX_HEIGHT,
+                "Density grid of " + width + " x " + height + " cells is not in [" + Plot.MIN_WIDTH + ", "
+                        + Plot.MAX_WIDTH + "] x [" + Plot.MIN_HEIGHT + ", " + Plot.MAX_HEIGHT + "]");
+        DensityGrid grid = new DensityGrid(width, height,
+                in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readBoolean());
+        for (int i = 0; i < grid.densities.length; i++) {
+            grid.densities[i] = in.readDouble();
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,253 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+
+/**
+ * Maps the densities of the cells of a plot to glyphs of a ramp, e.g. " ·+#" from low to high density.
+ *
+ * Thresholds between the levels of the ramp are computed once per plot from the non-empty cells, afterwards each
+ * cell is mapped by a lookup in the (short) list of thresholds. Empty cells are always mapped to the first glyph.
+ */
+public class DensityQuantizer {
+
+    /**
+     * How the boundaries of a ramp are applied to the densities
+     */
+    public enum Scale {
+        /** boundaries are percentiles of the non-empty densities */
+        RANK,
+        /** boundaries are percentages between the lowest and highest non-empty density */
+        LINEAR,
+        /** boundaries are percentages between the logarithms of the lowest and highest non-empty density */
+        LOG;
+
+        /**
+         * @param name one of rank, linear or log
+         * @return the matching scale
+         */
+        public static Scale forName(String name) {
+            switch (name) {
+                case "rank": return RANK;
+                case "linear": return LINEAR;
+                case "log": return LOG;
+                default: throw new IllegalArgumentException("Unknown scale " + name + ", needs to be one of (rank, linear, log)");
+            }
+        }
+    }
+
+    /**
+     * Glyphs from low to high density and the boundaries between them in percent
+     */
+    public static class Ramp {
+
+        /** the four glyphs of the Scatterplot with boundaries at the 10th, 50th and 80th percentile */
+        public static final Ramp DEFAULT = new Ramp(
+                Scatterplot.CHARACTER_NO_DENSITY + Scatterplot.CHARACTER_MEDIUM_DENSITY +
+                Scatterplot.CHARACTER_HIGH_DENSITY + Scatterplot.CHARACTER_HIGHEST_DENSITY,
+                new double[]{Scatterplot.BOUNDARY_NO_DENSITY, Scatterplot.BOUNDARY_MEDIUM_DENSITY, Scatterplot.BOUNDARY_HIGH_DENSITY});
+        public static final Ramp ASCII_8 = new Ramp(" .:-=+*#");
+        public static final Ramp ASCII_10 = new Ramp(" .:-=+*#%@");
+        public static final Ramp SHADES = new Ramp(" ░▒▓█");
+
+        private final char[] glyphs;
+        private final double[] boundaries;
+
+        /**
+         * A ramp with evenly spaced boundaries where all non-empty cells are mapped to the second glyph or higher
+         *
+         * @param glyphs glyphs from no density to highest density
+         */
+        public Ramp(String glyphs) {
+            this(glyphs, evenBoundaries(glyphs.length()));
+        }
+
+        /**
+         * @param glyphs     glyphs from no density to highest density
+         * @param boundaries ascending boundaries in [0, 100] between consecutive glyphs, one less than glyphs - a
+         *                   non-empty cell below the first boundary is mapped to the first glyph
+         */
+        public Ramp(String glyphs, double[] boundaries) {
+            Preconditions.checkArgument(glyphs.length() >= 2, "A ramp needs at least two glyphs");
+            Preconditions.checkArgument(boundaries.length == glyphs.length() - 1,
+                    "A ramp with " + glyphs.length() + " glyphs needs " + (glyphs.length() - 1) + " boundaries");
+            for (int i = 0; i < boundaries.length; i++) {
+                Preconditions.checkArgument(boundaries[i] >= 0 && boundaries[i] <= 100 && (i == 0 || boundaries[i - 1] <= boundaries[i]),
+                        "Boundaries need to be ascending in [0, 100]");
+            }
+            this.glyphs = glyphs.toCharArray();
+            this.boundaries = boundaries.clone();
+        }
+
+        /**
+         * @param name one of default, ascii8, ascii10 or shades
+         * @return the predefined ramp
+         */
+        public static Ramp forName(String name) {
+            switch (name) {
+                case "default": return DEFAULT;
+                case "ascii8": return ASCII_8;
+                case "ascii10": return ASCII_10;
+                case "shades": return SHADES;
+                default: throw new IllegalArgumentException("Unknown ramp " + name + ", needs to be one of (default, ascii8, ascii10, shades)");
+            }
+        }
+
+        /**
+         * @return number of glyphs
+         */
+        public int levels() {
+            return glyphs.length;
+        }
+
+        /**
+         * @return glyph of a level, 0 is used for empty cells
+         */
+        public char glyph(int level) {
+            return glyphs[level];
+        }
+
+        /**
+         * @return boundary in percent between level and level + 1
+         */
+        public double boundary(int level) {
+            return boundaries[level];
+        }
+
+        private static double[] evenBoundaries(int levels) {
+            // The first boundary at 0 moves all non-empty cells to level 1 or higher
+            double[] boundaries = new double[Math.max(levels - 1, 0)];
+            for (int i = 1; i < boundaries.length; i++) {
+                boundaries[i] = 100d * i / (levels - 1);
+            }
+            return boundaries;
+        }
+    }
+
+    private final Ramp ramp;
+    private final Scale scale;
+
+    /**
+     * A quantizer for the {@link Ramp#DEFAULT} ramp with {@link Scale#RANK} scaling
+     */
+    public DensityQuantizer() {
+        this(Ramp.DEFAULT, Scale.RANK);
+    }
+
+    public DensityQuantizer(Ramp ramp, Scale scale) {
+        this.ramp = ramp;
+        this.scale = scale;
+    }
+
+    public Ramp getRamp() {
+        return ramp;
+    }
+
+    public Scale getScale() {
+        return scale;
+    }
+
+    /**
+     * @param densities densities of all cells, 0 for empty cells
+     * @return thresholds t[i] so that a non-empty cell with t[i] <= density is mapped to level i + 1 or higher
+     */
+    public double[] thresholds(double[] densities) {
+        return thresholds(densities, null);
+    }
+
+    /**
+     * @param values   values of all cells, e.g. sums or means which may be zero or negative
+     * @param occupied cells holding a value or null for all cells with a positive value
+     * @return thresholds t[i] so that an occupied cell with t[i] <= value is mapped to level i + 1 or higher
+     * @throws IllegalArgumentException for a {@link Scale#LOG} scale of values which are not positive
+     */
+    public double[] thresholds(double[] values, boolean[] occupied) {
+        int nonEmpty = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (isOccupied(values, occupied, i)) nonEmpty++;
+        }
+        double[] nonEmptyValues = new double[nonEmpty];
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        nonEmpty = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (isOccupied(values, occupied, i)) {
+                nonEmptyValues[nonEmpty++] = values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+        }
+
+        double[] thresholds = new double[ramp.levels() - 1];
+        if (nonEmpty == 0) {
+            return thresholds;
+        }
+        Preconditions.checkArgument(scale != Scale.LOG || min > 0, "A log scale needs positive values but the minimum is " + min);
+        Percentile percentile = null;
+        if (scale == Scale.RANK) {
+            // Pivots are cached between the evaluations of all boundaries
+            percentile = new Percentile();
+            percentile.setData(nonEmptyValues);
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            double boundary = ramp.boundary(i);
+            switch (scale) {
+                case RANK:
+                    thresholds[i] = boundary == 0 ? min : percentile.evaluate(boundary);
+                    break;
+                case LINEAR:
+                    thresholds[i] = min + (max - min) * boundary / 100d;
+                    break;
+                case LOG:
+                    thresholds[i] = Math.exp(Math.log(min) + (Math.log(max) - Math.log(min)) * boundary / 100d);
+                    break;
+            }
+        }
+        if (thresholds.length > 0 && ramp.boundary(0) == 0) {
+            // Avoid rounding errors moving the lowest density below the first boundary
+            thresholds[0] = min;
+        }
+        return thresholds;
+    }
+
+    /**
+     * Map densities to glyphs
+     *
+     * @param densities densities of all cells, 0 for empty cells
+     * @param output    array of at least densities.length glyphs which is filled
+     * @return output
+     */
+    public char[] quantize(double[] densities, char[] output) {
+        return quantize(densities, null, output);
+    }
+
+    /**
+     * Map values to glyphs, cells which are not occupied are mapped to the first glyph
+     *
+     * @param values   values of all cells
+     * @param occupied cells holding a value or null for all cells with a positive value
+     * @param output   array of at least values.length glyphs which is filled
+     * @return output
+     */
+    public char[] quantize(double[] values, boolean[] occupied, char[] output) {
+        double[] thresholds = thresholds(values, occupied);
+        for (int i = 0; i < values.length; i++) {
+            output[i] = isOccupied(values, occupied, i) ? ramp.glyph(level(thresholds, values[i])) : ramp.glyph(0);
+        }
+        return output;
+    }
+
+    private static boolean isOccupied(double[] values, boolean[] occupied, int i) {
+        return occupied == null ? values[i] > 0 : occupied[i];
+    }
+
+    /**
+     * @return number of thresholds which are smaller than or equal to density
+     */
+    private static int level(double[] thresholds, double density) {
+        int level = 0;
+        while (level < thresholds.length && density >= thresholds[level]) {
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,81 @@
+package de.davidm.textplots;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive doubles
+ */
+public class DoubleList {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private double[] values;
+    private int size = 0;
+
+    public DoubleList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity initial capacity
+     */
+    public DoubleList(int capacity) {
+        values = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Appends a value, growing the backing array by half of its size if needed
+     */
+    public void add(double value) {
+        if (size == values.length) {
+            int capacity = values.length + (values.length >> 1) + 1;
+            if (capacity < 0 || capacity > Integer.MAX_VALUE - 8) {
+                if (size == Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Maximum number of values reached");
+                }
+                capacity = Integer.MAX_VALUE - 8;
+            }
+            values = Arrays.copyOf(values, capacity);
+        }
+        values[size++] = value;
+    }
+
+    public double get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " for size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values but keeps the allocated capacity
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copy all values to an array
+     *
+     * @param dst target array
+     * @param off index in dst of the first value
+     */
+    public void copyTo(double[] dst, int off) {
+        System.arraycopy(values, 0, dst, off, size);
+    }
+
+    /**
+     * @return the values as an array of exactly size elements - the backing array is handed out without copy
+     * if it is fully used, afterwards this list should not be modified anymore
+     */
+    public double[] toArray() {
+        if (size == values.length) {
+            return values;
+        }
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,392 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Exact percentiles of a series which does not fit into the heap. The series is read in runs which fit into the
+ * memory budget, each run is sorted and spilled to a temp file. At most {@link #MAX_MERGE_RUNS} runs are merged at
+ * once, so more runs are first merged in groups into longer runs, pass by pass, until a last k-way merge reaches the
+ * highest rank needed by the percentiles. The buffers of all runs of a merge share the budget, so neither the heap nor
+ * the number of open files grows with the length of the series. A series which fits into the budget is sorted in
+ * memory without a temp file, a series in ascending order is neither copied nor sorted.
+ *
+ * Percentiles are estimated like {@link org.apache.commons.math3.stat.descriptive.rank.Percentile} (by default), by
+ * interpolating between the values around position p / 100 * (n + 1). NaN values are ordered after all other values
+ * like by {@link Arrays#sort(double[])}.
+ */
+public class ExternalPercentiles {
+
+    /**
+     * Smallest memory budget in bytes
+     */
+    public static final long MIN_MEMORY_BUDGET = 1024;
+
+    /**
+     * Largest number of runs merged at once, each one is an open file
+     */
+    public static final int MAX_MERGE_RUNS = 64;
+
+    private static final int BYTES = 8;
+    // Largest run which fits into a single array
+    private static final int MAX_RUN = Integer.MAX_VALUE - 8;
+    private static final int MAX_BUFFER = DataSeries.CHUNK_SIZE * BYTES;
+    // Smallest buffer per run of a merge, smaller budgets merge fewer runs at once
+    private static final long MIN_MERGE_BUFFER = 256;
+
+    private ExternalPercentiles() {}
+
+    /**
+     * @param series       values, read twice at most
+     * @param percentiles  percentiles in [0, 100]
+     * @param memoryBudget number of bytes of values and buffers held on the heap at once, at least
+     *                     {@link #MIN_MEMORY_BUDGET}
+     * @return value at each percentile, NaN if the series is empty
+     * @throws IOException if a run could not be spilled to or read from the default temp directory
+     */
+    public static double[] evaluate(DataSeries series, double[] percentiles, long memoryBudget) throws IOException {
+        return evaluate(series, percentiles, memoryBudget, null);
+    }
+
+    /**
+     * @param series       values, read twice at most
+     * @param percentiles  percentiles in [0, 100]
+     * @param memoryBudget number of bytes of values and buffers held on the heap at once, at least
+     *                     {@link #MIN_MEMORY_BUDGET}
+     * @param directory    directory of the temp files or null for the default temp directory
+     * @return value at each percentile, NaN if the series is empty
+     * @throws IOException if a run could not be spilled to or read from the temp directory
+     */
+    public static double[] evaluate(DataSeries series, double[] percentiles, long memoryBudget, File directory)
+            throws IOException {
+        return evaluate(series, DataProfile.of(series), percentiles, memoryBudget, directory);
+    }
+
+    /**
+     * @param profile profile of the series computed by the caller, the series is read once more
+     */
+    static double[] evaluate(DataSeries series, DataProfile profile, double[] percentiles, long memoryBudget,
+                             File directory) throws IOException {
+        Preconditions.checkArgument(memoryBudget >= MIN_MEMORY_BUDGET,
+                "Memory budget needs to be at least " + MIN_MEMORY_BUDGET + " bytes but is " + memoryBudget);
+        for (double p : percentiles) {
+            Preconditions.checkArgument(p >= 0 && p <= 100, "Percentile needs to be in [0, 100] but is " + p);
+        }
+        long n = series.size();
+        double[] result = new double[percentiles.length];
+        if (n == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+
+        // Ranks of the values around the position of each percentile in ascending order
+        long[] lower = new long[percentiles.length];
+        long[] upper = new long[percentiles.length];
+        long[] ranks = new long[2 * percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double position = percentiles[i] / 100 * (n + 1);
+            if (n == 1 || position < 1) {
+                lower[i] = upper[i] = 0;
+            } else if (position >= n) {
+                lower[i] = upper[i] = n - 1;
+            } else {
+                lower[i] = (long) Math.floor(position) - 1;
+                upper[i] = lower[i] + 1;
+            }
+            ranks[2 * i] = lower[i];
+            ranks[2 * i + 1] = upper[i];
+        }
+        Arrays.sort(ranks);
+
+        double[] values = profile.isSorted() ? valuesOfSorted(series, ranks)
+                : valuesAt(series, ranks, memoryBudget, directory);
+        for (int i = 0; i < percentiles.length; i++) {
+            double lowerValue = values[Arrays.binarySearch(ranks, lower[i])];
+            if (lower[i] == upper[i]) {
+                result[i] = lowerValue;
+            } else {
+                double position = percentiles[i] / 100 * (n + 1);
+                double fraction = position - Math.floor(position);
+                result[i] = lowerValue + fraction * (values[Arrays.binarySearch(ranks, upper[i])] - lowerValue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param ranks ranks in the series in ascending order
+     * @return the value at each rank of a series in ascending order
+     */
+    private static double[] valuesOfSorted(DataSeries series, long[] ranks) {
+        double[] values = new double[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            values[i] = series.get(ranks[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @param ranks        ranks in the sorted series in ascending order
+     * @param memoryBudget number of bytes held on the heap at once
+     * @return the value at each rank
+     */
+    private static double[] valuesAt(DataSeries series, long[] ranks, long memoryBudget, File directory)
+            throws IOException {
+        double[] values = new double[ranks.length];
+        long n = series.size();
+        if (memoryBudget / BYTES >= n && n <= MAX_RUN) {
+            double[] all = new double[(int) n];
+            read(series, 0, all, all.length);
+            Arrays.sort(all);
+            for (int i = 0; i < ranks.length; i++) {
+                values[i] = all[(int) ranks[i]];
+            }
+            return values;
+        }
+
+        // A spilled run and the buffer writing it share the budget, an eighth of it is left for the buffer
+        int spillBuffer = (int) Math.min(MAX_BUFFER, memoryBudget / 8 / BYTES * BYTES);
+        double[] run = new double[(int) Math.min(MAX_RUN, (memoryBudget - spillBuffer) / BYTES)];
+        // The buffers of the runs of a merge and of its output share the budget
+        int mergeRuns = (int) Math.max(2, Math.min(MAX_MERGE_RUNS, memoryBudget / MIN_MERGE_BUFFER - 1));
+        int mergeBuffer = (int) Math.min(MAX_BUFFER, memoryBudget / (mergeRuns + 1) / BYTES * BYTES);
+
+        // All runs ever created, closing a run twice has no effect
+        List<Run> created = new ArrayList<>();
+        try {
+            // Spill sorted runs, the last one may be shorter
+            List<Run> runs = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(spillBuffer).order(ByteOrder.nativeOrder());
+            for (long position = 0; position < n; ) {
+                int length = (int) Math.min(run.length, n - position);
+                read(series, position, run, length);
+                Arrays.sort(run, 0, length);
+                Run spilled = Run.create(directory, created);
+                spilled.write(run, length, buffer);
+                runs.add(spilled);
+                position += length;
+            }
+            run = null;
+
+            // Merge groups of runs into longer runs until a single merge can open all of them
+            ByteBuffer output = ByteBuffer.allocate(mergeBuffer).order(ByteOrder.nativeOrder());
+            while (runs.size() > mergeRuns) {
+                List<Run> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += mergeRuns) {
+                    List<Run> group = runs.subList(from, Math.min(from + mergeRuns, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    PriorityQueue<Run> heads = open(group, mergeBuffer);
+                    Run target = Run.create(directory, created);
+                    target.openForWriting(output);
+                    while (!heads.isEmpty()) {
+                        Run smallest = heads.poll();
+                        target.write(smallest.head);
+                        if (smallest.advance()) {
+                            heads.add(smallest);
+                        }
+                    }
+                    target.finishWriting();
+                    for (Run done : group) {
+                        done.close();
+                    }
+                    merged.add(target);
+                }
+                runs = merged;
+            }
+
+            // The last merge stops at the highest rank
+            PriorityQueue<Run> heads = open(runs, mergeBuffer);
+            long rank = 0;
+            int next = 0;
+            while (next < ranks.length) {
+                Run smallest = heads.poll();
+                while (next < ranks.length && ranks[next] == rank) {
+                    values[next++] = smallest.head;
+                }
+                if (smallest.advance()) {
+                    heads.add(smallest);
+                }
+                rank++;
+            }
+            return values;
+        } finally {
+            for (Run spilled : created) {
+                spilled.close();
+            }
+        }
+    }
+
+    /**
+     * Open runs for reading
+     *
+     * @return the runs which are not empty ordered by their first value
+     */
+    private static PriorityQueue<Run> open(List<Run> runs, int bufferSize) throws IOException {
+        PriorityQueue<Run> heads = new PriorityQueue<>(runs.size(), new Comparator<Run>() {
+            @Override
+            public int compare(Run a, Run b) {
+                return Double.compare(a.head, b.head);
+            }
+        });
+        for (Run run : runs) {
+            run.open(bufferSize);
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+        return heads;
+    }
+
+    /**
+     * Copy len values of the series from position on to the start of dst
+     */
+    private static void read(DataSeries series, long position, double[] dst, int len) {
+        for (int filled = 0; filled < len; ) {
+            filled += series.read(position + filled, dst, filled, len - filled);
+        }
+    }
+
+    /**
+     * A sorted run in a temp file which is deleted when the run is closed
+     */
+    private static final class Run implements Closeable {
+        private final File file;
+        private RandomAccessFile access;
+        private FileChannel channel;
+        private ByteBuffer bytes;
+        private DoubleBuffer values;
+        private boolean closed = false;
+        // Current value of the merge
+        double head;
+
+        private Run(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Create an empty temp file for a run
+         *
+         * @param created runs to be closed by the caller, the new run is added
+         */
+        static Run create(File directory, List<Run> created) throws IOException {
+            Run run = new Run(File.createTempFile("textplots-run", ".bin", directory));
+            created.add(run);
+            return run;
+        }
+
+        /**
+         * Write the first len values of sorted to the file
+         */
+        void write(double[] sorted, int len, ByteBuffer buffer) throws IOException {
+            openForWriting(buffer);
+            for (int i = 0; i < len; ) {
+                if (!values.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(values.remaining(), len - i);
+                values.put(sorted, i, count);
+                i += count;
+            }
+            finishWriting();
+        }
+
+        void openForWriting(ByteBuffer buffer) throws IOException {
+            access = new RandomAccessFile(file, "rw");
+            channel = access.getChannel();
+            bytes = buffer;
+            bytes.clear();
+            values = bytes.asDoubleBuffer();
+        }
+
+        void write(double value) throws IOException {
+            if (!values.hasRemaining()) {
+                flush();
+            }
+            values.put(value);
+        }
+
+        /**
+         * Write the buffered values and close the file
+         */
+        void finishWriting() throws IOException {
+            flush();
+            access.close();
+            access = null;
+            channel = null;
+            bytes = null;
+            values = null;
+        }
+
+        private void flush() throws IOException {
+            bytes.clear();
+            bytes.limit(values.position() * BYTES);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            values.clear();
+        }
+
+        void open(int bufferSize) throws IOException {
+            access = new RandomAccessFile(file, "r");
+            channel = access.getChannel();
+            bytes = ByteBuffer.allocate(bufferSize).order(ByteOrder.nativeOrder());
+            values = bytes.asDoubleBuffer();
+            values.limit(0);
+        }
+
+        /**
+         * Move head to the next value of the run
+         * @return false at the end of the run
+         */
+        boolean advance() throws IOException {
+            if (!values.hasRemaining()) {
+                bytes.clear();
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Fill the buffer until the end of the file, values are never split
+                }
+                bytes.flip();
+                values = bytes.asDoubleBuffer();
+                if (!values.hasRemaining()) {
+                    return false;
+                }
+            }
+            head = values.get();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (access != null) {
+                    access.close();
+                }
+            } finally {
+                bytes = null;
+                values = null;
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package de.davidm.textplots;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversion of decimal numbers to the nearest double without intermediate objects. A decimal mantissa of up to 18
+ * digits and a decimal exponent are converted by a single multiplication or division if both are exact (Clinger's
+ * fast path), otherwise by the Eisel-Lemire algorithm: the mantissa is multiplied with a 128-bit approximation of
+ * the power of ten and the result is only accepted if the error of the approximation cannot change the rounding.
+ * The rare remaining numbers, e.g. halfway cases or more than 18 significant digits, are handed to
+ * {@link Double#parseDouble(String)}, so every number converts exactly like parseDouble.
+ */
+final class FastDoubleParser {
+
+    /**
+     * Largest number of significant digits held exactly in the mantissa
+     */
+    static final int MAX_DIGITS = 18;
+
+    // Powers of ten which are exactly representable as double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+    private static final long MASK_32 = 0xFFFFFFFFL;
+
+    private FastDoubleParser() {}
+
+    /**
+     * 128-bit mantissas of the powers of ten rounded down, computed on first use
+     */
+    private static final class PowersOfTen {
+        static final long[] HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+        static final long[] LOW = new long[HIGH.length];
+
+        static {
+            BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+            for (int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+                BigInteger mantissa;
+                if (exponent >= 0) {
+                    BigInteger power = BigInteger.TEN.pow(exponent);
+                    int shift = power.bitLength() - 128;
+                    mantissa = shift >= 0 ? power.shiftRight(shift) : power.shiftLeft(-shift);
+                } else {
+                    // 2^s / 10^-e with s chosen such that the quotient has 128 bits
+                    BigInteger power = BigInteger.TEN.pow(-exponent);
+                    mantissa = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+                }
+                HIGH[exponent - MIN_EXPONENT] = mantissa.shiftRight(64).longValue();
+                LOW[exponent - MIN_EXPONENT] = mantissa.and(mask).longValue();
+            }
+        }
+    }
+
+    /**
+     * Parse a decimal number from a range of ASCII bytes like {@link DataReader} parses characters
+     *
+     * @param bytes bytes holding the number
+     * @param start first byte (inclusive), surrounding whitespace is ignored
+     * @param end   last byte (exclusive)
+     * @return the value of the number
+     * @throws NumberFormatException if the bytes do not represent a number
+     */
+    static double parse(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] <= ' ') start++;
+        while (end > start && bytes[end - 1] <= ' ') end--;
+
+        int i = start;
+        boolean negative = false;
+        byte b = i < end ? bytes[i] : 0;
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+        // Leading zeros do not change the mantissa, they are only subtracted from the digits if there are many
+        long mantissa = 0;
+        int digitsStart = i;
+        for (int digit; i < end && (digit = bytes[i] - '0') >= 0 && digit <= 9; i++) {
+            mantissa = mantissa * 10 + digit;
+        }
+        int digits = i - digitsStart;
+        int exponent = 0;
+        if (i < end && bytes[i] == '.') {
+            int fractionStart = ++i;
+            for (int digit; i < end && (digit = bytes[i] - '0') >= 0 && digit <= 9; i++) {
+                mantissa = mantissa * 10 + digit;
+            }
+            exponent = fractionStart - i;
+            digits += i - fractionStart;
+        }
+        boolean anyDigit = digits > 0;
+        int significantDigits = digits > MAX_DIGITS ? significantDigits(bytes, digitsStart, i) : digits;
+        if (anyDigit && i < end && ((b = bytes[i]) == 'e' || b == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && ((b = bytes[j]) == '-' || b == '+')) {
+                negativeExponent = b == '-';
+                j++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = j;
+            for (; j < end && (b = bytes[j]) >= '0' && b <= '9'; j++) {
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (b - '0');
+                }
+            }
+            if (j > exponentStart) {
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+                i = j;
+            }
+        }
+
+        if (anyDigit && i == end && significantDigits <= MAX_DIGITS) {
+            double value = toDouble(negative, mantissa, exponent);
+            // NaN if the conversion is not certain
+            if (value == value) {
+                return value;
+            }
+        }
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return number of digits from start to end without leading zeros and the decimal point
+     */
+    private static int significantDigits(byte[] bytes, int start, int end) {
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != '.' && (digits > 0 || bytes[i] != '0')) {
+                digits++;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * @param negative true for a negative number
+     * @param mantissa decimal mantissa, not negative
+     * @param exponent decimal exponent
+     * @return the double nearest to mantissa * 10^exponent or NaN if it cannot be determined without a slow path
+     */
+    static double toDouble(boolean negative, long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return negative ? -0d : 0d;
+        }
+        if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = mantissa;
+            value = exponent >= 0 ? value * POWERS_OF_TEN[exponent] : value / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) {
+            return Double.NaN;
+        }
+
+        // Normalize the mantissa to 64 bits and multiply with the upper half of the power
+        int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        long normalized = mantissa << leadingZeros;
+        long binaryExponent = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+        int index = exponent - MIN_EXPONENT;
+        long high = multiplyHigh(normalized, PowersOfTen.HIGH[index]);
+        long low = normalized * PowersOfTen.HIGH[index];
+
+        // The lower half of the power is only needed if the truncation might carry into the bits of the result
+        if ((high & 0x1FF) == 0x1FF && lessThanUnsigned(low + normalized, normalized)) {
+            long lowerHigh = multiplyHigh(normalized, PowersOfTen.LOW[index]);
+            long lowerLow = normalized * PowersOfTen.LOW[index];
+            long mergedHigh = high;
+            long mergedLow = low + lowerHigh;
+            if (lessThanUnsigned(mergedLow, low)) {
+                mergedHigh++;
+            }
+            if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow == -1L && lessThanUnsigned(lowerLow + normalized, normalized)) {
+                return Double.NaN;
+            }
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        // Keep 54 bits, the last one decides the rounding
+        long msb = high >>> 63;
+        long bits = high >>> (msb + 9);
+        binaryExponent -= 1 ^ msb;
+        if (low == 0 && (high & 0x1FF) == 0 && (bits & 3) == 1) {
+            // Exactly halfway between two doubles, the truncated bits would decide
+            return Double.NaN;
+        }
+        bits += bits & 1;
+        bits >>>= 1;
+        if ((bits >>> 53) > 0) {
+            bits >>>= 1;
+            binaryExponent++;
+        }
+        // Subnormal numbers and overflows are left to the slow path
+        if (binaryExponent <= 0 || binaryExponent >= 0x7FF) {
+            return Double.NaN;
+        }
+        long raw = binaryExponent << 52 | bits & 0x000FFFFFFFFFFFFFL;
+        return Double.longBitsToDouble(negative ? raw | Long.MIN_VALUE : raw);
+    }
+
+    /**
+     * @return upper 64 bits of the unsigned 128-bit product of x and y
+     */
+    static long multiplyHigh(long x, long y) {
+        long x0 = x & MASK_32, x1 = x >>> 32;
+        long y0 = y & MASK_32, y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & MASK_32);
+        return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+    }
+
+    private static boolean lessThanUnsigned(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+}
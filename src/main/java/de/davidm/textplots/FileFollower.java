@@ -0,0 +1,155 @@
+package de.davidm.textplots;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Follows a growing file like tail -f. Each {@link #poll()} reads the bytes appended since the last poll, only
+ * complete lines are handed out as characters, an incomplete last line is kept until its line break arrives.
+ *
+ * The lines read by a poll are available through the {@link Reader} interface which signals the end of the stream
+ * once they are consumed, e.g. for a {@link DataReader} that is resumed after the next poll.
+ *
+ * Logs are truncated or rotated while they are followed. If the file shrinks it is assumed to be truncated and is
+ * followed again from the beginning. If the path points to a new file, e.g. after the old one was renamed, the rest
+ * of the old file is read and the new one is followed from its beginning like by tail -F. A new file is recognized
+ * by its file key, on file systems without file keys only truncation is detected.
+ */
+public class FileFollower extends Reader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final Path path;
+    private FileChannel channel;
+    // Identity of the followed file, null if the file system does not provide one
+    private Object fileKey;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    private CharBuffer chars = CharBuffer.allocate(0);
+    private long position = 0;
+
+    /**
+     * @param file path of the file to follow
+     */
+    public FileFollower(String file) throws IOException {
+        this.path = Paths.get(file);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileKey = fileKey();
+    }
+
+    /**
+     * Read the complete lines appended to the file since the last poll
+     *
+     * @return true if new lines are available
+     */
+    public boolean poll() throws IOException {
+        Object key = fileKey();
+        if (key != null && !key.equals(fileKey)) {
+            // Rotated, lines appended to the old file until now are read and its incomplete line is dropped
+            readAppended();
+            int complete = bytes.position();
+            while (complete > 0 && bytes.get(complete - 1) != '\n') {
+                complete--;
+            }
+            bytes.position(complete);
+            FileChannel rotated = FileChannel.open(path, StandardOpenOption.READ);
+            channel.close();
+            channel = rotated;
+            fileKey = key;
+            position = 0;
+        } else if (channel.size() < position) {
+            // Truncated, start over and drop the incomplete line
+            position = 0;
+            bytes.clear();
+        }
+        readAppended();
+
+        // Hand out everything up to and including the last line break
+        int end = bytes.position();
+        while (end > 0 && bytes.get(end - 1) != '\n') {
+            end--;
+        }
+        if (end == 0) {
+            return false;
+        }
+        bytes.flip();
+        ByteBuffer lines = bytes.duplicate();
+        lines.limit(end);
+        CharBuffer decoded = CharBuffer.allocate(chars.remaining() + end);
+        decoded.put(chars);
+        try {
+            decoder.reset();
+            decoded.put(decoder.decode(lines));
+        } catch (CharacterCodingException e) {
+            // Not thrown as malformed input is replaced
+            throw new IllegalStateException(e);
+        }
+        decoded.flip();
+        chars = decoded;
+        bytes.position(end);
+        bytes.compact();
+        return true;
+    }
+
+    /**
+     * Read the bytes appended to the followed file since the last read
+     */
+    private void readAppended() throws IOException {
+        while (true) {
+            if (!bytes.hasRemaining()) {
+                // A single line does not fit into the buffer
+                ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                larger.put(bytes);
+                bytes = larger;
+            }
+            int read = channel.read(bytes, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * @return the file key of the file the path points to now, null if there is none or the path does not exist
+     */
+    private Object fileKey() throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            // Between the rename of the old file and the creation of the new one
+            return null;
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (!chars.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, chars.remaining());
+        chars.get(cbuf, off, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
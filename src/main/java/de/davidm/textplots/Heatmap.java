@@ -0,0 +1,398 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.apache.commons.math3.util.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * A heatmap of xy-values or of weights at xy-values, e.g. latencies by request size and time. Values are binned into
+ * a grid of width x height cells which is aggregated per cell and drawn with a glyph ramp. Unlike a
+ * {@link Scatterplot} the values are not smoothed and the legend shows the value of each glyph.
+ */
+public class Heatmap extends Plot {
+
+    // Parallel binning splits the data into at most PARALLEL_CHUNKS chunks of at least MIN_CHUNK_SIZE points
+    private static final int PARALLEL_CHUNKS = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_CHUNK_SIZE = 65536;
+
+    /**
+     * How the values of a cell are combined
+     */
+    public enum Aggregation {
+        /** number of values */
+        COUNT,
+        /** sum of the weights */
+        SUM,
+        /** mean of the weights */
+        MEAN,
+        /** maximum of the weights */
+        MAX;
+
+        /**
+         * @param name one of count, sum, mean or max
+         * @return the matching aggregation
+         */
+        public static Aggregation forName(String name) {
+            switch (name) {
+                case "count": return COUNT;
+                case "sum": return SUM;
+                case "mean": return MEAN;
+                case "max": return MAX;
+                default: throw new IllegalArgumentException("Unknown aggregation " + name + ", needs to be one of (count, sum, mean, max)");
+            }
+        }
+    }
+
+    private final String nameX, nameY, nameW;
+    private final int width, height;
+    private final Aggregation aggregation;
+    private final DensityQuantizer quantizer;
+
+    // Computed once on first use, rendering only lays out the cached plot and legend
+    private final Supplier<double[]> limits;
+    private final Supplier<Cells> cells;
+    private final Supplier<char[]> plot;
+    private final Supplier<String[]> legend;
+    private final Supplier<String> scale;
+
+    private Heatmap(HeatmapBuilder heatmapBuilder) {
+        this.nameX = heatmapBuilder.x.getFirst();
+        this.nameY = heatmapBuilder.y.getFirst();
+        this.nameW = heatmapBuilder.w != null ? heatmapBuilder.w.getFirst() : null;
+        this.width = heatmapBuilder.width;
+        this.height = heatmapBuilder.height;
+        this.aggregation = heatmapBuilder.aggregation;
+        this.quantizer = new DensityQuantizer(heatmapBuilder.ramp, heatmapBuilder.scale);
+
+        final double[] X = heatmapBuilder.x.getSecond();
+        final double[] Y = heatmapBuilder.y.getSecond();
+        final double[] W = heatmapBuilder.w != null ? heatmapBuilder.w.getSecond() : null;
+        final Double minX = heatmapBuilder.minX, maxX = heatmapBuilder.maxX;
+        final Double minY = heatmapBuilder.minY, maxY = heatmapBuilder.maxY;
+        final DataProfile givenX = heatmapBuilder.profileX, givenY = heatmapBuilder.profileY;
+        final Executor executor = heatmapBuilder.executor;
+        limits = Suppliers.memoize(new Supplier<double[]>() {
+            @Override
+            public double[] get() {
+                DataProfile profileX = givenX != null || minX != null && maxX != null ? givenX : DataProfile.of(X);
+                DataProfile profileY = givenY != null || minY != null && maxY != null ? givenY : DataProfile.of(Y);
+                double[] limits = {minX != null ? minX : profileX.getMin(), maxX != null ? maxX : profileX.getMax(),
+                        minY != null ? minY : profileY.getMin(), maxY != null ? maxY : profileY.getMax()};
+                Preconditions.checkState(limits[0] <= limits[1], "Minimum value for X needs to be smaller than the maximum");
+                Preconditions.checkState(limits[2] <= limits[3], "Minimum value for Y needs to be smaller than the maximum");
+                return limits;
+            }
+        });
+        cells = Suppliers.memoize(new Supplier<Cells>() {
+            @Override
+            public Cells get() {
+                return bin(X, Y, W, width, height, limits.get(), executor);
+            }
+        });
+        plot = Suppliers.memoize(new Supplier<char[]>() {
+            @Override
+            public char[] get() {
+                Cells cells = Heatmap.this.cells.get();
+                return quantizer.quantize(cells.values(aggregation), cells.occupied(), new char[width * height]);
+            }
+        });
+        legend = Suppliers.memoize(new Supplier<String[]>() {
+            @Override
+            public String[] get() {
+                double[] limits = Heatmap.this.limits.get();
+                return new String[]{format(limits[0]), format(limits[1]), format(limits[2]), format(limits[3])};
+            }
+        });
+        scale = Suppliers.memoize(new Supplier<String>() {
+            @Override
+            public String get() {
+                Cells cells = Heatmap.this.cells.get();
+                double[] thresholds = quantizer.thresholds(cells.values(aggregation), cells.occupied());
+                StringBuilder scale = new StringBuilder();
+                scale.append(aggregation.name().toLowerCase(Locale.ROOT));
+                if (aggregation != Aggregation.COUNT) {
+                    scale.append(" of ").append(nameW);
+                }
+                scale.append(':');
+                for (int level = 1; level < quantizer.getRamp().levels(); level++) {
+                    scale.append(' ').append(quantizer.getRamp().glyph(level))
+                            .append(" >=").append(format(thresholds[level - 1]));
+                }
+                return scale.toString();
+            }
+        });
+    }
+
+    /**
+     * Count, sum and maximum of the values of each cell, cells are stored row by row with the largest y first
+     */
+    static final class Cells {
+        final int width, height;
+        final long[] counts;
+        final double[] sums;
+        final double[] maxima;
+
+        Cells(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.counts = new long[width * height];
+            this.sums = new double[width * height];
+            this.maxima = new double[width * height];
+            Arrays.fill(maxima, Double.NEGATIVE_INFINITY);
+        }
+
+        /**
+         * Bin values, values outside of the limits and NaN values are ignored
+         *
+         * @param W weights or null to count values only
+         */
+        void addAll(double[] X, double[] Y, double[] W, int from, int to, double[] limits) {
+            double minX = limits[0], maxX = limits[1], minY = limits[2], maxY = limits[3];
+            double scaleX = width / (maxX - minX);
+            double scaleY = height / (maxY - minY);
+            for (int i = from; i < to; i++) {
+                double x = X[i];
+                double y = Y[i];
+                double w = W != null ? W[i] : 1;
+                // Also skips NaN values
+                if (!(x >= minX && x <= maxX && y >= minY && y <= maxY) || Double.isNaN(w)) {
+                    continue;
+                }
+                // The maximum belongs to the last cell like in Plot#locateBin, rounding must not pass it either
+                int column = x >= maxX ? width - 1 : Math.min(width - 1, (int) ((x - minX) * scaleX));
+                int row = height - 1 - (y >= maxY ? height - 1 : Math.min(height - 1, (int) ((y - minY) * scaleY)));
+                int cell = row * width + column;
+                counts[cell]++;
+                sums[cell] += w;
+                if (w > maxima[cell]) {
+                    maxima[cell] = w;
+                }
+            }
+        }
+
+        void merge(Cells other) {
+            for (int cell = 0; cell < counts.length; cell++) {
+                counts[cell] += other.counts[cell];
+                sums[cell] += other.sums[cell];
+                maxima[cell] = Math.max(maxima[cell], other.maxima[cell]);
+            }
+        }
+
+        boolean[] occupied() {
+            boolean[] occupied = new boolean[counts.length];
+            for (int cell = 0; cell < counts.length; cell++) {
+                occupied[cell] = counts[cell] > 0;
+            }
+            return occupied;
+        }
+
+        /**
+         * @return the aggregated value of each cell, 0 for empty cells
+         */
+        double[] values(Aggregation aggregation) {
+            double[] values = new double[counts.length];
+            for (int cell = 0; cell < counts.length; cell++) {
+                if (counts[cell] == 0) {
+                    continue;
+                }
+                switch (aggregation) {
+                    case COUNT: values[cell] = counts[cell]; break;
+                    case SUM: values[cell] = sums[cell]; break;
+                    case MEAN: values[cell] = sums[cell] / counts[cell]; break;
+                    case MAX: values[cell] = maxima[cell]; break;
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Bin values into cells, chunks of the data are binned in parallel into separate cells which are merged
+     *
+     * @param executor executor binning chunks of the data in parallel or null to bin all data in the calling thread
+     */
+    static Cells bin(final double[] X, final double[] Y, final double[] W, final int width, final int height,
+                     final double[] limits, Executor executor) {
+        final int chunks = executor == null ? 1 : Math.max(1, Math.min(PARALLEL_CHUNKS, X.length / MIN_CHUNK_SIZE));
+        List<Callable<Cells>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) X.length * chunk / chunks);
+            final int to = (int) ((long) X.length * (chunk + 1) / chunks);
+            tasks.add(new Callable<Cells>() {
+                @Override
+                public Cells call() {
+                    Cells cells = new Cells(width, height);
+                    cells.addAll(X, Y, W, from, to, limits);
+                    return cells;
+                }
+            });
+        }
+        List<Cells> cells = invokeAll(chunks == 1 ? null : executor, tasks);
+        for (int chunk = 1; chunk < cells.size(); chunk++) {
+            cells.get(0).merge(cells.get(chunk));
+        }
+        return cells.get(0);
+    }
+
+    @Override
+    public void render(Appendable out, boolean printLegend) throws IOException {
+        renderGrid(out, plot.get(), width, height, nameX, nameY, printLegend ? legend.get() : null);
+        if (printLegend) {
+            // The value of each glyph below the plot
+            String[] limits = legend.get();
+            appendRepeated(out, CHARACTER_EMPTY_BIN, nameY.length() + Math.max(limits[2].length(), limits[3].length()) + 1);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append(scale.get());
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Construct a Heatmap
+     */
+    public static class HeatmapBuilder {
+        Pair<String, double[]> x;
+        Pair<String, double[]> y;
+        Pair<String, double[]> w;
+        DataProfile profileX = null, profileY = null;
+        Double minX = null, minY = null;
+        Double maxX = null, maxY = null;
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        Aggregation aggregation = Aggregation.COUNT;
+        Executor executor = null;
+        DensityQuantizer.Ramp ramp = DensityQuantizer.Ramp.SHADES;
+        DensityQuantizer.Scale scale = DensityQuantizer.Scale.LINEAR;
+
+        /**
+         * Construct a Heatmap of the number of values per cell
+         * @param X a String, Double pair representing a Pair(variable name, variable data) for X axis
+         * @param Y a String, Double pair representing a Pair(variable name, variable data) for Y axis
+         */
+        public HeatmapBuilder(Pair<String, double[]> X, Pair<String, double[]> Y){
+            Preconditions.checkArgument(X.getSecond().length == Y.getSecond().length,
+                    "Input vectors need to be of the same length. Currently X=" + X.getSecond().length + " and Y=" + Y.getSecond().length);
+            this.x = X;
+            this.y = Y;
+        }
+
+        /**
+         * Construct a Heatmap of the sum of weights per cell, see {@link #setAggregation}
+         * @param X a String, Double pair representing a Pair(variable name, variable data) for X axis
+         * @param Y a String, Double pair representing a Pair(variable name, variable data) for Y axis
+         * @param W a String, Double pair representing a Pair(variable name, variable data) for the weights
+         */
+        public HeatmapBuilder(Pair<String, double[]> X, Pair<String, double[]> Y, Pair<String, double[]> W){
+            this(X, Y);
+            Preconditions.checkArgument(W.getSecond().length == X.getSecond().length,
+                    "Input vectors need to be of the same length. Currently X=" + X.getSecond().length + " and W=" + W.getSecond().length);
+            this.w = W;
+            this.aggregation = Aggregation.SUM;
+        }
+
+        /**
+         * @param width width of plots - attention: additional width is added by names and table
+         * @param height height of plots - attention: additional width is added by names and table formatting
+         * @return
+         */
+        public HeatmapBuilder setSize(int width, int height){
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        /**
+         * Set minimum and maximum value shown in plots
+         * @param minX minimum x value shown in printPlot (optional)
+         * @param maxX maximum x value shown in printPlot (optional)
+         * @param minY minimum y value shown in printPlot (optional)
+         * @param maxY maximum y value shown in printPlot (optional)
+         */
+        public HeatmapBuilder setPlotLimits(Double minX, Double maxX, Double minY, Double maxY){
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+            return this;
+        }
+
+        /**
+         * Take the limits which are not set from profiles of the values computed by the caller, e.g. once for several
+         * plots of the same values, instead of a first pass over the values
+         * @param profileX profile of the x values given to the builder or null to compute it
+         * @param profileY profile of the y values given to the builder or null to compute it
+         */
+        public HeatmapBuilder setProfiles(DataProfile profileX, DataProfile profileY){
+            this.profileX = profileX;
+            this.profileY = profileY;
+            return this;
+        }
+
+        /**
+         * @param aggregation how the values of a cell are combined, by default the count without weights and the sum
+         *                    with weights
+         */
+        public HeatmapBuilder setAggregation(Aggregation aggregation){
+            this.aggregation = aggregation;
+            return this;
+        }
+
+        /**
+         * Bin chunks of the data in parallel, e.g. on a ForkJoinPool - the cells of each chunk are merged at the end
+         * @param executor executor for binning chunks of the data - null to bin all data in the calling thread
+         */
+        public HeatmapBuilder setExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param ramp glyphs used for increasing values, by default {@link DensityQuantizer.Ramp#SHADES}
+         */
+        public HeatmapBuilder setDensityRamp(DensityQuantizer.Ramp ramp){
+            this.ramp = ramp;
+            return this;
+        }
+
+        /**
+         * @param scale how the boundaries of the ramp are applied to the values, by default linearly
+         */
+        public HeatmapBuilder setDensityScale(DensityQuantizer.Scale scale){
+            this.scale = scale;
+            return this;
+        }
+
+        /**
+         * @return a Heatmap object with user settings
+         */
+        public Heatmap plotObject(){
+            // Check for correct width
+            Preconditions.checkState(width >= MIN_WIDTH && width <= MAX_WIDTH,
+                    "Width is set to " + width + " but needs to be in " + "[" + MIN_WIDTH + "," + MAX_WIDTH + "]");
+            // Check for correct height
+            Preconditions.checkState(height >= MIN_HEIGHT && height <= MAX_HEIGHT,
+                    "Height is set to " + height + " but needs to be in " + "[" + MIN_HEIGHT + "," + MAX_HEIGHT + "]");
+            Preconditions.checkState(ramp != null && scale != null, "Density ramp and scale need to be set");
+            Preconditions.checkState(aggregation != null, "Aggregation needs to be set");
+            Preconditions.checkState(aggregation == Aggregation.COUNT || w != null,
+                    "Aggregation " + aggregation + " needs weights");
+            checkProfile(profileX, x.getSecond().length, "X");
+            checkProfile(profileY, y.getSecond().length, "Y");
+            // Limits given by the user are checked at once, limits following from the data on first use
+            Preconditions.checkState(minX == null || maxX == null || minX <= maxX,
+                    "Minimum value for X needs to be smaller than the maximum");
+            Preconditions.checkState(minY == null || maxY == null || minY <= maxY,
+                    "Minimum value for Y needs to be smaller than the maximum");
+            return new Heatmap(this);
+        }
+    }
+}
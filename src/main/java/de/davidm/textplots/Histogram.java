@@ -1,10 +1,13 @@
 package de.davidm.textplots;
 
 import com.google.common.base.Preconditions;
-import org.apache.commons.math3.random.EmpiricalDistribution;
-import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.apache.commons.math3.util.Pair;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,25 +18,240 @@ public class Histogram extends Plot {
     public static final String LEGEND_INTERVAL_LEFTBORDER = "(";
     public static final String LEGEND_INTERVAL_DIVISOR = ",";
     public static final String LEGEND_INTERVAL_RIGHTBORDER = "]";
+    public static final String LEGEND_INTERVAL_RIGHTBORDER_OPEN = ")";
+
+    // Percentiles shown below log-linear histograms
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"50", "90", "99", "99.9"};
+    private static final int LEGEND_SIGNIFICANT_DIGITS = 3;
+
+    private static final char HISTOGRAM = CHARACTER_HISTOGRAM.charAt(0);
+    private static final char EMPTY = CHARACTER_EMPTY_BIN.charAt(0);
 
-    private final Pair<String, double[]> data;
-    private final EmpiricalDistribution dist;
     private final int width;
-    private final int bins;
+
+    // Computed once on first use, rendering only lays out the cached bars and legend
+    private final Supplier<Bins> counts;
+    private final Supplier<char[]> bars;
+    private final Supplier<String[]> intervals;
+    // Random sample of the values or null if all values are counted
+    private final Supplier<Reservoir> sample;
 
     private Histogram(HistogramBuilder histogramBuilder){
-        this.data = histogramBuilder.data;
         this.width = histogramBuilder.width;
-        this.bins = histogramBuilder.bins;
 
-        // Create a distribution of data for bins number of bins
-        dist = new EmpiricalDistribution(bins);
-        dist.load(data.getSecond());
+        final int bins = histogramBuilder.bins;
+        if(histogramBuilder.histogram != null) {
+            // Take a snapshot of the running histogram
+            counts = Suppliers.ofInstance(Bins.of(histogramBuilder.histogram));
+            sample = null;
+        } else if(histogramBuilder.logLinear != null) {
+            counts = Suppliers.ofInstance(Bins.of(histogramBuilder.logLinear, bins));
+            sample = null;
+        } else {
+            final DataSeries series = histogramBuilder.series != null ? histogramBuilder.series
+                    : DataSeries.of(histogramBuilder.data.getFirst(), histogramBuilder.data.getSecond());
+            final double[] values = histogramBuilder.data != null ? histogramBuilder.data.getSecond() : null;
+            final Integer significantDigits = histogramBuilder.significantDigits;
+            final DataProfile profile = histogramBuilder.profile;
+            final Integer sampleSize = histogramBuilder.sample;
+            final long seed = histogramBuilder.seed;
+            sample = sampleSize == null ? null : Suppliers.memoize(new Supplier<Reservoir>() {
+                @Override
+                public Reservoir get() {
+                    return Reservoir.of(sampleSize, seed, series);
+                }
+            });
+            counts = Suppliers.memoize(new Supplier<Bins>() {
+                @Override
+                public Bins get() {
+                    if (sample != null) {
+                        double[] sampled = sample.get().getSample(0);
+                        return significantDigits != null
+                                ? Bins.of(countLogLinear(DataSeries.of(series.getName(), sampled), significantDigits), bins)
+                                : Bins.of(count(sampled, bins, null));
+                    }
+                    if (significantDigits != null) {
+                        return Bins.of(countLogLinear(series, significantDigits), bins);
+                    }
+                    return Bins.of(values != null ? count(values, bins, profile) : count(series, bins, profile));
+                }
+            });
+        }
+        bars = Suppliers.memoize(new Supplier<char[]>() {
+            @Override
+            public char[] get() {
+                Bins histogram = counts.get();
+                StringBuilder bars = new StringBuilder(histogram.counts.length * width);
+                for (int i = 0; i < histogram.counts.length; i++) {
+                    try {
+                        appendBin(bars, histogram.counts[i], histogram.n, width);
+                    } catch (IOException e) {
+                        // StringBuilder does not throw
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return bars.toString().toCharArray();
+            }
+        });
+        intervals = Suppliers.memoize(new Supplier<String[]>() {
+            @Override
+            public String[] get() {
+                Bins histogram = counts.get();
+                String[] intervals = new String[histogram.counts.length];
+                for (int i = 0; i < intervals.length; i++) {
+                    intervals[i] = histogram.percentiles == null
+                            ? intervalString(i == 0, histogram.lower[i], histogram.upper[i])
+                            : LEGEND_INTERVAL_LEFTBORDER_FIRST + formatSignificant(histogram.lower[i]) + LEGEND_INTERVAL_DIVISOR
+                            + formatSignificant(histogram.upper[i])
+                            + (i == intervals.length - 1 ? LEGEND_INTERVAL_RIGHTBORDER : LEGEND_INTERVAL_RIGHTBORDER_OPEN);
+                }
+                return intervals;
+            }
+        });
+    }
+
+    /**
+     * Counts and boundaries of the rows of a histogram
+     */
+    private static final class Bins {
+        final long[] counts;
+        final double[] lower, upper;
+        final long n;
+        // Values at PERCENTILES of log-linear histograms, null otherwise
+        final double[] percentiles;
+
+        private Bins(long[] counts, double[] lower, double[] upper, long n, double[] percentiles) {
+            this.counts = counts;
+            this.lower = lower;
+            this.upper = upper;
+            this.n = n;
+            this.percentiles = percentiles;
+        }
+
+        static Bins of(StreamingHistogram histogram) {
+            int bins = histogram.getBinCount();
+            long[] counts = new long[bins];
+            double[] lower = new double[bins];
+            double[] upper = new double[bins];
+            for (int i = 0; i < bins; i++) {
+                counts[i] = histogram.getCount(i);
+                lower[i] = histogram.getLowerBound(i);
+                upper[i] = histogram.getUpperBound(i);
+            }
+            return new Bins(counts, lower, upper, histogram.getN(), null);
+        }
+
+        /**
+         * Collapse the buckets between the smallest and the largest value into at most rows rows of consecutive
+         * buckets, so rows are spaced logarithmically like the buckets
+         */
+        static Bins of(LogLinearHistogram histogram, int rows) {
+            int first = histogram.bucket(histogram.getMin());
+            int last = histogram.bucket(histogram.getMax());
+            int buckets = last - first + 1;
+            rows = Math.min(rows, buckets);
+            long[] counts = new long[rows];
+            double[] lower = new double[rows];
+            double[] upper = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                int from = first + (int) ((long) buckets * row / rows);
+                int to = first + (int) ((long) buckets * (row + 1) / rows);
+                for (int bucket = from; bucket < to; bucket++) {
+                    counts[row] += histogram.getCount(bucket);
+                }
+                lower[row] = row == 0 ? histogram.getMin() : histogram.getLowerBound(from);
+                upper[row] = row == rows - 1 ? histogram.getMax() : histogram.getUpperBound(to - 1);
+            }
+            double[] percentiles = new double[PERCENTILES.length];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentiles[i] = histogram.getValueAtPercentile(PERCENTILES[i]);
+            }
+            return new Bins(counts, lower, upper, histogram.getN(), percentiles);
+        }
+    }
+
+    /**
+     * Count data in bins number of equal-width bins between minimum and maximum
+     *
+     * @param profile profile of the values or null to compute it
+     */
+    private static StreamingHistogram count(double[] values, int bins, DataProfile profile) {
+        if (profile == null) {
+            profile = DataProfile.of(values);
+        }
+        StreamingHistogram counts = new StreamingHistogram(bins, profile.getMin(), profile.getMax());
+        counts.addAll(values, 0, values.length);
+        return counts;
+    }
+
+    /**
+     * Count a series chunk by chunk, minimum and maximum are taken from its profile
+     *
+     * @param profile profile of the series or null to compute it in a first pass
+     */
+    private static StreamingHistogram count(DataSeries series, int bins, DataProfile profile) {
+        if (profile == null) {
+            profile = DataProfile.of(series);
+        }
+        StreamingHistogram counts = new StreamingHistogram(bins, profile.getMin(), profile.getMax());
+        double[] chunk = new double[(int) Math.min(DataSeries.CHUNK_SIZE, series.size())];
+        for (long position = 0; position < series.size(); ) {
+            int count = series.read(position, chunk, 0, chunk.length);
+            counts.addAll(chunk, 0, count);
+            position += count;
+        }
+        return counts;
+    }
+
+    /**
+     * Count a series in log-linear buckets between its smallest positive and its largest value
+     */
+    private static LogLinearHistogram countLogLinear(DataSeries series, int significantDigits) {
+        double lowest = Double.POSITIVE_INFINITY;
+        double highest = Double.MIN_NORMAL;
+        double[] chunk = new double[(int) Math.min(DataSeries.CHUNK_SIZE, series.size())];
+        for (long position = 0; position < series.size(); ) {
+            int count = series.read(position, chunk, 0, chunk.length);
+            for (int i = 0; i < count; i++) {
+                if (chunk[i] >= Double.MIN_NORMAL && chunk[i] < lowest) lowest = chunk[i];
+                if (chunk[i] > highest && !Double.isInfinite(chunk[i])) highest = chunk[i];
+            }
+            position += count;
+        }
+        if (lowest > highest) {
+            // No positive values, all of them are counted in the first bucket
+            lowest = highest;
+        }
+        LogLinearHistogram counts = new LogLinearHistogram(lowest, highest, significantDigits);
+        for (long position = 0; position < series.size(); ) {
+            int count = series.read(position, chunk, 0, chunk.length);
+            counts.addAll(chunk, 0, count);
+            position += count;
+        }
+        return counts;
+    }
+
+    /**
+     * @return value with at most LEGEND_SIGNIFICANT_DIGITS significant digits and without an exponent
+     */
+    static String formatSignificant(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return String.valueOf(value);
+        }
+        return new BigDecimal(value).round(new MathContext(LEGEND_SIGNIFICANT_DIGITS)).stripTrailingZeros().toPlainString();
     }
 
     public static class HistogramBuilder {
 
         Pair<String, double[]> data;
+        StreamingHistogram histogram;
+        LogLinearHistogram logLinear;
+        DataSeries series;
+        DataProfile profile = null;
+        Integer significantDigits = null;
+        Integer sample = null;
+        long seed = Reservoir.DEFAULT_SEED;
         int bins = DEFAULT_NR_BINS;
         int width = DEFAULT_WIDTH;
 
@@ -42,11 +260,43 @@ public class Histogram extends Plot {
          * @param data Pair(variable name, variable data)
          */
         public HistogramBuilder(Pair<String, double[]> data){
+            Preconditions.checkArgument(data.getSecond().length > 0, "Data needs to contain at least one value");
             this.data = data;
         }
 
         /**
-         * @param bins number of bins in histogram
+         * Construct a Histogram showing the current state of a running histogram, the bins of the running
+         * histogram are used and later changes to it are not reflected in the plot
+         * @param histogram counts of values
+         */
+        public HistogramBuilder(StreamingHistogram histogram){
+            Preconditions.checkArgument(histogram.getN() > 0, "Histogram needs to contain at least one value");
+            this.histogram = histogram;
+        }
+
+        /**
+         * Construct a Histogram showing the current state of a log-linear histogram, its buckets between the
+         * minimum and maximum are collapsed into the number of bins and later changes to it are not reflected in the
+         * plot
+         * @param histogram counts of values
+         */
+        public HistogramBuilder(LogLinearHistogram histogram){
+            Preconditions.checkArgument(histogram.getN() > 0, "Histogram needs to contain at least one value");
+            this.logLinear = histogram.copy();
+        }
+
+        /**
+         * Construct a Histogram of a series, e.g. a float[] or a memory-mapped {@link Column}, values are read in
+         * chunks without copying the series
+         * @param series values of the variable
+         */
+        public HistogramBuilder(DataSeries series){
+            Preconditions.checkArgument(series.size() > 0, "Series needs to contain at least one value");
+            this.series = series;
+        }
+
+        /**
+         * @param bins number of bins in histogram (ignored for running histograms)
          * @return
          */
         public HistogramBuilder setBinNumber(int bins){
@@ -54,6 +304,46 @@ public class Histogram extends Plot {
             return this;
         }
 
+        /**
+         * Count values in log-linear buckets like HdrHistogram instead of equal-width bins, e.g. for latencies
+         * spanning several orders of magnitude. Rows are spaced logarithmically and the legend shows percentiles.
+         * @param significantDigits relative precision of the buckets, see {@link LogLinearHistogram} - null for
+         *                          equal-width bins (ignored for running histograms)
+         */
+        public HistogramBuilder setLogLinear(Integer significantDigits){
+            this.significantDigits = significantDigits;
+            return this;
+        }
+
+        /**
+         * Count a uniform random sample of the values drawn in a single pass instead of all values, the legend notes
+         * the size and the margin of error of the sample, see {@link Reservoir}
+         * @param size number of values in the sample or null to count all values (ignored for running histograms)
+         */
+        public HistogramBuilder setSample(Integer size){
+            this.sample = size;
+            return this;
+        }
+
+        /**
+         * @param seed seed of the random sample, the same seed draws the same sample of the same data
+         */
+        public HistogramBuilder setSeed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Take the limits of the equal-width bins from a profile of the values computed by the caller, e.g. once
+         * for several plots of the same values, instead of a first pass over the values
+         * @param profile profile of the values given to the builder or null to compute it (ignored for running
+         *                histograms, log-linear buckets and samples)
+         */
+        public HistogramBuilder setProfile(DataProfile profile){
+            this.profile = profile;
+            return this;
+        }
+
         /**
          * @param width width of plots - attention: additional width is added by names and table formatting
          * @return
@@ -70,6 +360,12 @@ public class Histogram extends Plot {
             // Check for correct width
             Preconditions.checkState(width >= MIN_WIDTH && width <= MAX_WIDTH,
                     "Width is set to " + width + " but needs to be in " + "[" + MIN_WIDTH + "," + MAX_WIDTH + "]");
+            Preconditions.checkState(bins > 0, "Number of bins needs to be positive");
+            Preconditions.checkState(sample == null || sample > 0, "Sample size needs to be positive");
+            checkProfile(profile, data != null ? data.getSecond().length : series != null ? series.size() : -1, "the data");
+            Preconditions.checkState(significantDigits == null
+                            || significantDigits >= LogLinearHistogram.MIN_SIGNIFICANT_DIGITS && significantDigits <= LogLinearHistogram.MAX_SIGNIFICANT_DIGITS,
+                    "Significant digits need to be in [" + LogLinearHistogram.MIN_SIGNIFICANT_DIGITS + "," + LogLinearHistogram.MAX_SIGNIFICANT_DIGITS + "]");
             return new Histogram(this);
         }
     }
@@ -80,73 +376,78 @@ public class Histogram extends Plot {
      * @param printLegend switch legend on/off
      */
     @Override
-    public String plot(boolean printLegend) {
-        String out = "";
-
-        // Create the histogram out of given distribution
-        List<Pair<double[], String>> plot = histogram();
-        List<SummaryStatistics> bounds = dist.getBinStats();
-        long N = dist.getSampleStats().getN();
+    public void render(Appendable out, boolean printLegend) throws IOException {
+        Bins counts = this.counts.get();
+        char[] bars = this.bars.get();
+        int bins = counts.counts.length;
+        long N = counts.n;
 
         // Get the length of the longest bin interval string
+        String[] intervals = null;
         int maxLengthLeft = 0;
         if(printLegend) {
-            for(Pair<double[], String> row : plot){
-                int length1 = intervalString(false, row.getFirst()[0], row.getFirst()[1]).length();
-                int length2 = intervalString(true, row.getFirst()[0], row.getFirst()[1]).length();
-                maxLengthLeft = Math.max(maxLengthLeft, Math.max(length1, length2));
+            intervals = this.intervals.get();
+            for (String interval : intervals) {
+                maxLengthLeft = Math.max(maxLengthLeft, interval.length());
             }
         }
 
         // Add rows
-        int rowCount = 0;
-        for (Pair<double[], String> row : plot) {
-            String line = "";
+        int digitsN = digits(N);
+        for (int i = 0; i < bins; i++) {
+            long n = counts.counts[i];
 
             // Add a legend to the left
             if (printLegend) {
-                String interval = intervalString(rowCount == 0 ? true : false, row.getFirst()[0], row.getFirst()[1]);
-                line += interval;
+                out.append(intervals[i]);
                 // Fill in case of smaller interval strings
-                for (int i = interval.length(); i < maxLengthLeft; i++) {
-                    line += CHARACTER_EMPTY_BIN;
-                }
-                line += CHARACTER_COLUMN_DIVISOR;
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthLeft - intervals[i].length());
+                out.append(CHARACTER_COLUMN_DIVISOR);
             }
-            line += row.getSecond();
+            appendRow(out, bars, i * width, width);
 
             // Add bin count to the right
             if (printLegend) {
-                line += CHARACTER_COLUMN_DIVISOR;
-                line += "n=";
-                long n = bounds.get(rowCount).getN();
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                out.append("n=");
                 // Add spaces for right-alignment
-                for (int i = String.valueOf(n).length(); i < String.valueOf(N).length(); i++) {
-                    line += CHARACTER_EMPTY_BIN;
-                }
-                line += n;
+                appendRepeated(out, CHARACTER_EMPTY_BIN, digitsN - digits(n));
+                appendCount(out, n);
             }
-            out += line + "\n";
-            rowCount++;
+            out.append('\n');
         }
 
         // Write x axis labelling under plot
         if(printLegend) {
-            String line = "";
-            for (int i = 0; i < maxLengthLeft; i++) {
-               line += CHARACTER_EMPTY_BIN;
+            appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthLeft);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append("0%");
+            appendRepeated(out, CHARACTER_EMPTY_BIN, width - 6);
+            out.append("100%");
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append('\n');
+
+            if (counts.percentiles != null) {
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthLeft);
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    out.append(i == 0 ? "p" : " p");
+                    out.append(PERCENTILE_NAMES[i]);
+                    out.append('=');
+                    out.append(formatSignificant(counts.percentiles[i]));
+                }
+                out.append('\n');
             }
-            line += CHARACTER_COLUMN_DIVISOR;
-            line += "0%";
-            for (int i = 0; i < width - 6; i++) {
-                line += CHARACTER_EMPTY_BIN;
+
+            // Note the size and the error of a sample
+            String note = sample != null ? sample.get().note() : null;
+            if (note != null) {
+                appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthLeft);
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                out.append(note);
+                out.append('\n');
             }
-            line +=  "100%";
-            line += CHARACTER_COLUMN_DIVISOR;
-            out += line + "\n";
         }
-
-        return out;
     }
 
     /**
@@ -158,9 +459,9 @@ public class Histogram extends Plot {
     protected String intervalString(boolean first, double left, double right){
         return (
                 (first ? LEGEND_INTERVAL_LEFTBORDER_FIRST : LEGEND_INTERVAL_LEFTBORDER) +
-                df.format(left) +
+                format(left) +
                 LEGEND_INTERVAL_DIVISOR +
-                df.format(right) +
+                format(right) +
                 LEGEND_INTERVAL_RIGHTBORDER);
     }
 
@@ -170,20 +471,14 @@ public class Histogram extends Plot {
     public List<Pair<double[], String>> histogram() {
         List<Pair<double[], String>> histogram = new ArrayList<>();
 
-        double min = dist.getSampleStats().getMin();
-        long N = dist.getSampleStats().getN();
-        int i = 0;
-        double[] bounds = dist.getUpperBounds();
-        for (SummaryStatistics binStats : dist.getBinStats()) {
-            long n = binStats.getN();
+        Bins counts = this.counts.get();
+        char[] bars = this.bars.get();
+        for (int i = 0; i < counts.counts.length; i++) {
             double[] binBounds = {
-                    i == 0 ? min : bounds[i - 1],
-                    bounds[i]
+                    counts.lower[i],
+                    counts.upper[i]
             };
-            i++;
-            // convert count for bin to String
-            String binString = stringForBin(n, N, width);
-            histogram.add(Pair.create(binBounds, binString));
+            histogram.add(Pair.create(binBounds, new String(bars, i * width, width)));
         }
 
         return histogram;
@@ -196,11 +491,25 @@ public class Histogram extends Plot {
      * @return a String representation of the counts in a bin adjusted to width
      */
     protected static String stringForBin(long n, long N, int width) {
-        String output = "";
+        StringBuilder output = new StringBuilder(width);
+        try {
+            appendBin(output, n, N, width);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Appends the representation of the counts in a bin adjusted to width
+     *
+     * @see #stringForBin(long, long, int)
+     */
+    protected static void appendBin(Appendable out, long n, long N, int width) throws IOException {
         int maxBin = locateBin(n, width, 0d, (double) N);
         for(int i = 0; i < width; i++){
-           output += i < maxBin ? CHARACTER_HISTOGRAM : CHARACTER_EMPTY_BIN;
+            out.append(i < maxBin ? HISTOGRAM : EMPTY);
         }
-        return output;
     }
 }
@@ -0,0 +1,93 @@
+package de.davidm.textplots;
+
+/**
+ * Tight loops over primitive arrays shared by the plots: the minimum and maximum of a range of values, which backs
+ * {@link DataProfile} and thereby the limits of all plots, and counting values in equal-width bins for
+ * {@link StreamingHistogram}. The loops work on primitives only and keep independent accumulators, so a scan is
+ * limited by memory bandwidth rather than by boxing or by the latency of a single dependency chain. NaN values are
+ * skipped, counting also skips infinite values.
+ */
+final class Kernels {
+
+    private static final int UNROLL = 4;
+
+    private Kernels() {}
+
+    /**
+     * Updates the minimum and maximum with a range of values
+     *
+     * @param values values
+     * @param off    index of the first value
+     * @param len    number of values
+     * @param minMax minimum and maximum so far, {+Infinity, -Infinity} to start, updated in place
+     */
+    static void minMax(double[] values, int off, int len, double[] minMax) {
+        double min0 = minMax[0], min1 = min0, min2 = min0, min3 = min0;
+        double max0 = minMax[1], max1 = max0, max2 = max0, max3 = max0;
+        int end = off + len;
+        int unrolled = off + len - len % UNROLL;
+        int i = off;
+        // Four independent chains, comparisons with NaN are false so NaN is skipped
+        for (; i < unrolled; i += UNROLL) {
+            double v0 = values[i], v1 = values[i + 1], v2 = values[i + 2], v3 = values[i + 3];
+            min0 = v0 < min0 ? v0 : min0;
+            min1 = v1 < min1 ? v1 : min1;
+            min2 = v2 < min2 ? v2 : min2;
+            min3 = v3 < min3 ? v3 : min3;
+            max0 = v0 > max0 ? v0 : max0;
+            max1 = v1 > max1 ? v1 : max1;
+            max2 = v2 > max2 ? v2 : max2;
+            max3 = v3 > max3 ? v3 : max3;
+        }
+        for (; i < end; i++) {
+            double v = values[i];
+            min0 = v < min0 ? v : min0;
+            max0 = v > max0 ? v : max0;
+        }
+        min0 = min1 < min0 ? min1 : min0;
+        min2 = min3 < min2 ? min3 : min2;
+        max0 = max1 > max0 ? max1 : max0;
+        max2 = max3 > max2 ? max3 : max2;
+        minMax[0] = min2 < min0 ? min2 : min0;
+        minMax[1] = max2 > max0 ? max2 : max0;
+    }
+
+    /**
+     * Counts a range of values in equal-width bins starting at lower, each bin includes its upper boundary like
+     * {@link StreamingHistogram}. Values outside of the bins are counted in the first or last bin. The minimum and
+     * maximum of the counted values are updated in the same pass.
+     *
+     * @param values   values
+     * @param off      index of the first value
+     * @param len      number of values
+     * @param lower    lower boundary of the first bin
+     * @param binWidth width of a bin
+     * @param counts   counts of the bins, updated in place
+     * @param minMax   minimum and maximum so far, {+Infinity, -Infinity} to start, updated in place
+     * @return number of counted values
+     */
+    static long count(double[] values, int off, int len, double lower, double binWidth, long[] counts, double[] minMax) {
+        int last = counts.length - 1;
+        double min = minMax[0], max = minMax[1];
+        long n = 0;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            double v = values[i];
+            // v - v is NaN for NaN and infinite values
+            if (v - v != 0) {
+                continue;
+            }
+            // Same arithmetic as StreamingHistogram, values on a boundary must end up in the same bin. Clamped before
+            // the cast, far outliers and a bin width of 0 would overflow the int.
+            double position = Math.ceil((v - lower) / binWidth);
+            int bin = !(v > lower) ? 0 : position > last ? last : (int) position - 1;
+            counts[bin < 0 ? 0 : bin]++;
+            min = v < min ? v : min;
+            max = v > max ? v : max;
+            n++;
+        }
+        minMax[0] = min;
+        minMax[1] = max;
+        return n;
+    }
+}
@@ -0,0 +1,497 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.apache.commons.math3.util.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * A line plot of ordered values, e.g. a time series, which is decimated to one column of characters per x-interval.
+ * Each column shows the range of y the line passes in its interval, so millions of points are drawn in a single pass
+ * without a grid of densities.
+ */
+public class Lineplot extends Plot {
+
+    public static final String CHARACTER_LINE = "*";
+
+    // Parallel decimation splits the columns into at most PARALLEL_CHUNKS ranges of at least MIN_CHUNK_SIZE points
+    private static final int PARALLEL_CHUNKS = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_CHUNK_SIZE = 65536;
+
+    /**
+     * How the points are reduced to the width of the plot
+     */
+    public enum Decimation {
+        /**
+         * The minimum and maximum of the line in each column, peaks of single points are always shown
+         */
+        MIN_MAX,
+        /**
+         * Largest-Triangle-Three-Buckets: one point per column which keeps the visual shape of the line, drawn as
+         * a line through the selected points
+         */
+        LTTB;
+
+        /**
+         * @param name one of minmax or lttb
+         * @return the matching decimation
+         */
+        public static Decimation forName(String name) {
+            switch (name) {
+                case "minmax": return MIN_MAX;
+                case "lttb": return LTTB;
+                default: throw new IllegalArgumentException("Unknown decimation " + name + ", needs to be one of (minmax, lttb)");
+            }
+        }
+    }
+
+    private final String nameX, nameY;
+    private final int width, height;
+
+    // Computed once on first use, rendering only lays out the cached plot and legend
+    private final Supplier<double[][]> envelope;
+    private final Supplier<double[]> limits;
+    private final Supplier<char[]> plot;
+    private final Supplier<String[]> legend;
+
+    private Lineplot(LineplotBuilder lineplotBuilder) {
+        this.nameX = lineplotBuilder.x.getFirst();
+        this.nameY = lineplotBuilder.y.getFirst();
+        this.width = lineplotBuilder.width;
+        this.height = lineplotBuilder.height;
+
+        final double[] X = lineplotBuilder.x.getSecond();
+        final double[] Y = lineplotBuilder.y.getSecond();
+        final Double minX = lineplotBuilder.minX, maxX = lineplotBuilder.maxX;
+        final Double minY = lineplotBuilder.minY, maxY = lineplotBuilder.maxY;
+        final Decimation decimation = lineplotBuilder.decimation;
+        final DataProfile profileX = lineplotBuilder.profileX;
+        final Executor executor = lineplotBuilder.executor;
+        envelope = Suppliers.memoize(new Supplier<double[][]>() {
+            @Override
+            public double[][] get() {
+                double lower = minX != null ? minX : x(X, 0);
+                double upper = maxX != null ? maxX : x(X, Y.length - 1);
+                Preconditions.checkState(lower <= upper, "Minimum value for X needs to be smaller than the maximum");
+                checkAscending(X, profileX);
+                if (decimation == Decimation.LTTB) {
+                    int[] points = largestTriangleThreeBuckets(X, Y, lower, upper, width);
+                    double[] selectedX = new double[points.length];
+                    double[] selectedY = new double[points.length];
+                    for (int i = 0; i < points.length; i++) {
+                        selectedX[i] = x(X, points[i]);
+                        selectedY[i] = Y[points[i]];
+                    }
+                    return envelope(selectedX, selectedY, width, lower, upper, null);
+                }
+                return envelope(X, Y, width, lower, upper, executor);
+            }
+        });
+        limits = Suppliers.memoize(new Supplier<double[]>() {
+            @Override
+            public double[] get() {
+                double[][] envelope = Lineplot.this.envelope.get();
+                double lower = Double.NaN;
+                double upper = Double.NaN;
+                for (int column = 0; column < width; column++) {
+                    lower = min(lower, envelope[0][column]);
+                    upper = max(upper, envelope[1][column]);
+                }
+                Preconditions.checkState(minY != null && maxY != null || !Double.isNaN(lower),
+                        "There are no values of Y within the limits of X");
+                double[] limits = {envelope[2][0], envelope[2][1], minY != null ? minY : lower, maxY != null ? maxY : upper};
+                Preconditions.checkState(limits[2] <= limits[3], "Minimum value for Y needs to be smaller than the maximum");
+                return limits;
+            }
+        });
+        plot = Suppliers.memoize(new Supplier<char[]>() {
+            @Override
+            public char[] get() {
+                return draw(envelope.get(), limits.get(), width, height);
+            }
+        });
+        legend = Suppliers.memoize(new Supplier<String[]>() {
+            @Override
+            public String[] get() {
+                double[] limits = Lineplot.this.limits.get();
+                return new String[]{format(limits[0]), format(limits[1]), format(limits[2]), format(limits[3])};
+            }
+        });
+    }
+
+    /**
+     * @return x of the i-th point, the index if no x values are given
+     */
+    private static double x(double[] X, int i) {
+        return X == null ? i : X[i];
+    }
+
+    /**
+     * @param profile profile of X or null to compute it
+     */
+    private static void checkAscending(double[] X, DataProfile profile) {
+        if (X == null || (profile != null ? profile : DataProfile.of(X)).isSorted()) {
+            return;
+        }
+        // Only scanned again to report the first index out of order
+        for (int i = 1; i < X.length; i++) {
+            if (!(X[i - 1] <= X[i])) {
+                throw new IllegalStateException("X needs to be in ascending order, see index " + i);
+            }
+        }
+    }
+
+    /**
+     * Compute the range of y the line through all points passes in each column. Segments crossing the border of a
+     * column are interpolated at the border, so the columns of a line are connected.
+     *
+     * @param X        ascending x values or null for the index
+     * @param executor executor computing ranges of columns in parallel or null to compute all in the calling thread
+     * @return {lower y per column, upper y per column, {minX, maxX}}, empty columns are NaN
+     */
+    static double[][] envelope(final double[] X, final double[] Y, final int width, final double minX,
+                               final double maxX, Executor executor) {
+        int chunks = executor == null ? 1 : Math.max(1, Math.min(PARALLEL_CHUNKS, Y.length / MIN_CHUNK_SIZE));
+        List<Callable<double[][]>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            // Each task owns a range of columns and starts at the first point of its first column
+            final int firstColumn = width * chunk / chunks;
+            final int lastColumn = width * (chunk + 1) / chunks;
+            tasks.add(new Callable<double[][]>() {
+                @Override
+                public double[][] call() {
+                    double[] lower = new double[width];
+                    double[] upper = new double[width];
+                    Arrays.fill(lower, Double.NaN);
+                    Arrays.fill(upper, Double.NaN);
+                    double fromX = minX + (maxX - minX) * firstColumn / width;
+                    double toX = minX + (maxX - minX) * lastColumn / width;
+                    int start = Math.max(0, search(X, Y.length, fromX) - 1);
+                    double scale = width / (maxX - minX);
+                    double x0 = Y.length > 0 ? x(X, start) : 0;
+                    int column0 = column(x0, width, minX, maxX, scale);
+                    for (int i = start; i < Y.length - 1 && x0 <= toX; i++) {
+                        double x1 = x(X, i + 1);
+                        double y0 = Y[i], y1 = Y[i + 1];
+                        int column1 = column(x1, width, minX, maxX, scale);
+                        if (column0 == column1 && x0 >= fromX && x1 <= toX) {
+                            // Most segments start and end in the same column, a NaN value skips the segment
+                            lower[column0] = min(lower[column0], Math.min(y0, y1));
+                            upper[column0] = max(upper[column0], Math.max(y0, y1));
+                        } else {
+                            segment(lower, upper, width, minX, maxX, fromX, toX, x0, y0, x1, y1);
+                        }
+                        x0 = x1;
+                        column0 = column1;
+                    }
+                    if (Y.length == 1) {
+                        segment(lower, upper, width, minX, maxX, fromX, toX, x(X, 0), Y[0], x(X, 0), Y[0]);
+                    }
+                    return new double[][]{lower, upper};
+                }
+            });
+        }
+        List<double[][]> results = Plot.invokeAll(chunks == 1 ? null : executor, tasks);
+        double[] lower = results.get(0)[0];
+        double[] upper = results.get(0)[1];
+        for (int chunk = 1; chunk < results.size(); chunk++) {
+            for (int column = 0; column < width; column++) {
+                lower[column] = min(lower[column], results.get(chunk)[0][column]);
+                upper[column] = max(upper[column], results.get(chunk)[1][column]);
+            }
+        }
+        return new double[][]{lower, upper, {minX, maxX}};
+    }
+
+    /**
+     * @return index of the first point with x not smaller than the given x
+     */
+    private static int search(double[] X, int size, double x) {
+        if (X == null) {
+            return (int) Math.max(0, Math.min(size, Math.ceil(x)));
+        }
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (X[middle] < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Add the part of a segment between fromX and toX to the ranges of the columns it passes
+     */
+    private static void segment(double[] lower, double[] upper, int width, double minX, double maxX,
+                                double fromX, double toX, double x0, double y0, double x1, double y1) {
+        double left = Math.max(x0, fromX);
+        double right = Math.min(x1, toX);
+        // Also skips NaN values
+        if (!(left <= right) || Double.isNaN(y0) || Double.isNaN(y1)) {
+            return;
+        }
+        double binWidth = (maxX - minX) / width;
+        int first = column(left, width, minX, maxX, width / (maxX - minX));
+        int last = column(right, width, minX, maxX, width / (maxX - minX));
+        for (int column = first; column <= last; column++) {
+            // Interpolate the line at the borders of the column, the extremes of a segment are at its ends
+            double from = column == first ? left : minX + column * binWidth;
+            double to = column == last ? right : minX + (column + 1) * binWidth;
+            double yFrom = interpolate(x0, y0, x1, y1, from);
+            double yTo = interpolate(x0, y0, x1, y1, to);
+            lower[column] = min(lower[column], Math.min(yFrom, yTo));
+            upper[column] = max(upper[column], Math.max(yFrom, yTo));
+        }
+    }
+
+    /**
+     * Like {@link Plot#locateBin} clamped to the plot, without boxing the limits
+     *
+     * @param scale width / (maxX - minX)
+     */
+    private static int column(double x, int width, double minX, double maxX, double scale) {
+        if (x >= maxX) {
+            return width - 1;
+        }
+        return Math.max(0, (int) ((x - minX) * scale));
+    }
+
+    private static double interpolate(double x0, double y0, double x1, double y1, double x) {
+        return x1 == x0 ? y1 : y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    // Minimum and maximum where NaN marks an empty column
+    private static double min(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : Math.min(a, b);
+    }
+
+    private static double max(double a, double b) {
+        return Double.isNaN(a) ? b : Double.isNaN(b) ? a : Math.max(a, b);
+    }
+
+    /**
+     * Select points by Largest-Triangle-Three-Buckets (Steinarsson 2013): the first and last point are kept and of
+     * each bucket in between the point forming the largest triangle with the point selected before and the average
+     * of the next bucket. Each selection depends on the one before, so the pass is sequential.
+     *
+     * @param X         ascending x values or null for the index
+     * @param minX      points with smaller x are not selected
+     * @param maxX      points with larger x are not selected
+     * @param threshold number of points to be selected
+     * @return ascending indexes of the selected points, all points if there are not more than threshold
+     */
+    static int[] largestTriangleThreeBuckets(double[] X, double[] Y, double minX, double maxX, int threshold) {
+        Preconditions.checkArgument(threshold >= 3, "At least 3 points need to be selected");
+        int from = search(X, Y.length, minX);
+        int to = X == null ? (int) Math.max(from, Math.min(Y.length, Math.floor(maxX) + 1)) : upperBound(X, maxX);
+        int size = to - from;
+        if (size <= threshold) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+        int[] selected = new int[threshold];
+        selected[0] = from;
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int a = from;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, the last point for the last bucket
+            int nextFrom = from + 1 + (int) ((bucket + 1) * bucketSize);
+            int nextTo = Math.min(to, from + 1 + (int) ((bucket + 2) * bucketSize));
+            double averageX = 0, averageY = 0;
+            for (int i = nextFrom; i < nextTo; i++) {
+                averageX += x(X, i);
+                averageY += Y[i];
+            }
+            averageX /= nextTo - nextFrom;
+            averageY /= nextTo - nextFrom;
+
+            int bucketFrom = from + 1 + (int) (bucket * bucketSize);
+            int bucketTo = nextFrom;
+            double ax = x(X, a), ay = Y[a];
+            double largest = -1;
+            int next = bucketFrom;
+            for (int i = bucketFrom; i < bucketTo; i++) {
+                double area = Math.abs((ax - averageX) * (Y[i] - ay) - (ax - x(X, i)) * (averageY - ay));
+                if (area > largest) {
+                    largest = area;
+                    next = i;
+                }
+            }
+            selected[bucket + 1] = next;
+            a = next;
+        }
+        selected[threshold - 1] = to - 1;
+        return selected;
+    }
+
+    /**
+     * @return index of the first point with x larger than the given x
+     */
+    private static int upperBound(double[] X, double x) {
+        int low = 0, high = X.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (X[middle] <= x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Draw the range of each column as a vertical line of characters
+     */
+    private static char[] draw(double[][] envelope, double[] limits, int width, int height) {
+        char[] plot = new char[width * height];
+        Arrays.fill(plot, CHARACTER_EMPTY_BIN.charAt(0));
+        for (int column = 0; column < width; column++) {
+            double lower = Math.max(envelope[0][column], limits[2]);
+            double upper = Math.min(envelope[1][column], limits[3]);
+            // Also skips empty columns
+            if (!(lower <= upper)) {
+                continue;
+            }
+            int bottom = height - 1 - row(lower, height, limits[2], limits[3]);
+            int top = height - 1 - row(upper, height, limits[2], limits[3]);
+            for (int row = top; row <= bottom; row++) {
+                plot[row * width + column] = CHARACTER_LINE.charAt(0);
+            }
+        }
+        return plot;
+    }
+
+    private static int row(double y, int height, double minY, double maxY) {
+        return column(y, height, minY, maxY, height / (maxY - minY));
+    }
+
+    @Override
+    public void render(Appendable out, boolean printLegend) throws IOException {
+        renderGrid(out, plot.get(), width, height, nameX, nameY, printLegend ? legend.get() : null);
+    }
+
+    /**
+     * Construct a Lineplot
+     */
+    public static class LineplotBuilder {
+        Pair<String, double[]> x;
+        Pair<String, double[]> y;
+        DataProfile profileX = null;
+        Double minX = null, minY = null;
+        Double maxX = null, maxY = null;
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        Decimation decimation = Decimation.MIN_MAX;
+        Executor executor = null;
+
+        /**
+         * Construct a Lineplot of values over their index
+         * @param Y a String, Double pair representing a Pair(variable name, variable data) in the order of the line
+         */
+        public LineplotBuilder(Pair<String, double[]> Y){
+            this(new Pair<String, double[]>("index", null), Y);
+        }
+
+        /**
+         * Construct a Lineplot
+         * @param X a String, Double pair representing a Pair(variable name, variable data) for X axis, the data
+         *          needs to be in ascending order, e.g. timestamps
+         * @param Y a String, Double pair representing a Pair(variable name, variable data) for Y axis
+         */
+        public LineplotBuilder(Pair<String, double[]> X, Pair<String, double[]> Y){
+            Preconditions.checkArgument(Y.getSecond().length > 0, "Input vector needs to hold at least one value");
+            Preconditions.checkArgument(X.getSecond() == null || X.getSecond().length == Y.getSecond().length,
+                    "Input vectors need to be of the same length. Currently X=" + (X.getSecond() == null ? 0 : X.getSecond().length) + " and Y=" + Y.getSecond().length);
+            this.x = X;
+            this.y = Y;
+        }
+
+        /**
+         * @param width width of plots - attention: additional width is added by names and table
+         * @param height height of plots - attention: additional width is added by names and table formatting
+         * @return
+         */
+        public LineplotBuilder setSize(int width, int height){
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        /**
+         * Set minimum and maximum value shown in plots
+         * @param minX minimum x value shown in printPlot (optional)
+         * @param maxX maximum x value shown in printPlot (optional)
+         * @param minY minimum y value shown in printPlot (optional)
+         * @param maxY maximum y value shown in printPlot (optional)
+         */
+        public LineplotBuilder setPlotLimits(Double minX, Double maxX, Double minY, Double maxY){
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+            return this;
+        }
+
+        /**
+         * Take the order of X from a profile computed by the caller, e.g. once for several plots of the same values,
+         * instead of a pass over X
+         * @param profileX profile of the x values given to the builder or null to compute it (ignored without x values)
+         */
+        public LineplotBuilder setProfileX(DataProfile profileX){
+            this.profileX = profileX;
+            return this;
+        }
+
+        /**
+         * @param decimation how points are reduced to the width of the plot, by default the minimum and maximum per
+         *                   column
+         */
+        public LineplotBuilder setDecimation(Decimation decimation){
+            this.decimation = decimation;
+            return this;
+        }
+
+        /**
+         * Decimate ranges of columns in parallel, e.g. on a ForkJoinPool - only used by {@link Decimation#MIN_MAX}
+         * @param executor executor for ranges of columns - null to decimate all data in the calling thread
+         */
+        public LineplotBuilder setExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @return a Lineplot object with user settings
+         */
+        public Lineplot plotObject(){
+            // Check for correct width
+            Preconditions.checkState(width >= MIN_WIDTH && width <= MAX_WIDTH,
+                    "Width is set to " + width + " but needs to be in " + "[" + MIN_WIDTH + "," + MAX_WIDTH + "]");
+            // Check for correct height
+            Preconditions.checkState(height >= MIN_HEIGHT && height <= MAX_HEIGHT,
+                    "Height is set to " + height + " but needs to be in " + "[" + MIN_HEIGHT + "," + MAX_HEIGHT + "]");
+            Preconditions.checkState(decimation != null, "Decimation needs to be set");
+            checkProfile(profileX, x.getSecond() != null ? x.getSecond().length : -1, "X");
+            // Limits given by the user are checked at once, limits following from the data on first use
+            Preconditions.checkState(minX == null || maxX == null || minX <= maxX,
+                    "Minimum value for X needs to be smaller than the maximum");
+            Preconditions.checkState(minY == null || maxY == null || minY <= maxY,
+                    "Minimum value for Y needs to be smaller than the maximum");
+            return new Lineplot(this);
+        }
+    }
+}
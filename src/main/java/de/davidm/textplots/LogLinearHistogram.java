@@ -0,0 +1,208 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A histogram with log-linear buckets like HdrHistogram for values spanning many orders of magnitude, e.g.
+ * latencies from microseconds to seconds. Each power of two between the lowest and the highest trackable value is
+ * split into 2^s equal-width buckets, so the width of a bucket is at most 10^-d of its lower bound for d significant
+ * digits. The bucket of a value follows from the exponent and the leading mantissa bits of the double, memory is
+ * fixed at construction regardless of the number of values.
+ *
+ * Values below the lowest trackable value, including zero and negative values, are counted in the first bucket and
+ * values above the highest trackable value in the last bucket. Minimum and maximum are tracked exactly. NaN and
+ * infinite values are ignored. A LogLinearHistogram is not thread-safe.
+ */
+public class LogLinearHistogram {
+
+    public static final int MIN_SIGNIFICANT_DIGITS = 1;
+    public static final int MAX_SIGNIFICANT_DIGITS = 5;
+
+    private static final int MANTISSA_BITS = 52;
+    private static final long EXPONENT_MASK = 0x7FFL;
+    private static final int EXPONENT_BIAS = 1023;
+
+    private final int significantDigits;
+    private final int subBucketBits;
+    private final int minExponent, maxExponent;
+    private final long[] counts;
+
+    private long n = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * @param lowest            lowest value which is distinguished from smaller values, positive
+     * @param highest           highest value which is distinguished from larger values
+     * @param significantDigits relative precision of the buckets in decimal digits, in [1, 5] - each power of two
+     *                          between lowest and highest takes 16, 128, 1024, 16384 or 131072 buckets
+     */
+    public LogLinearHistogram(double lowest, double highest, int significantDigits) {
+        Preconditions.checkArgument(lowest >= Double.MIN_NORMAL && !Double.isInfinite(highest),
+                "Lowest value needs to be positive and highest value finite");
+        Preconditions.checkArgument(lowest <= highest, "Lowest value needs to be smaller than the highest value");
+        Preconditions.checkArgument(significantDigits >= MIN_SIGNIFICANT_DIGITS && significantDigits <= MAX_SIGNIFICANT_DIGITS,
+                "Significant digits need to be in [" + MIN_SIGNIFICANT_DIGITS + "," + MAX_SIGNIFICANT_DIGITS + "] but are " + significantDigits);
+        this.significantDigits = significantDigits;
+        // 2^-s <= 10^-d
+        this.subBucketBits = (int) Math.ceil(significantDigits * Math.log(10) / Math.log(2));
+        this.minExponent = Math.getExponent(lowest);
+        this.maxExponent = Math.getExponent(highest);
+        this.counts = new long[(maxExponent - minExponent + 1) << subBucketBits];
+    }
+
+    private LogLinearHistogram(LogLinearHistogram other) {
+        this.significantDigits = other.significantDigits;
+        this.subBucketBits = other.subBucketBits;
+        this.minExponent = other.minExponent;
+        this.maxExponent = other.maxExponent;
+        this.counts = other.counts.clone();
+        this.n = other.n;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    /**
+     * @param value value to be counted
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        counts[bucket(value)]++;
+        if (n == 0 || value < min) min = value;
+        if (n == 0 || value > max) max = value;
+        n++;
+    }
+
+    /**
+     * @param values array of values
+     * @param off    index of the first value to be counted
+     * @param len    number of values to be counted
+     */
+    public void addAll(double[] values, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram with the same range and significant digits to this histogram
+     */
+    public void merge(LogLinearHistogram other) {
+        Preconditions.checkArgument(significantDigits == other.significantDigits
+                        && minExponent == other.minExponent && maxExponent == other.maxExponent,
+                "Histograms with different ranges or significant digits cannot be merged");
+        if (other.n == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        if (n == 0 || other.min < min) min = other.min;
+        if (n == 0 || other.max > max) max = other.max;
+        n += other.n;
+    }
+
+    /**
+     * @return an independent copy of this histogram
+     */
+    public LogLinearHistogram copy() {
+        return new LogLinearHistogram(this);
+    }
+
+    /**
+     * @return index of the bucket counting the value
+     */
+    int bucket(double value) {
+        int exponent = Math.getExponent(value);
+        if (!(value > 0) || exponent < minExponent) {
+            return 0;
+        }
+        if (exponent > maxExponent) {
+            return counts.length - 1;
+        }
+        // The leading bits of the mantissa select the linear sub-bucket
+        long bits = Double.doubleToRawLongBits(value);
+        int subBucket = (int) (bits >>> (MANTISSA_BITS - subBucketBits)) & ((1 << subBucketBits) - 1);
+        return ((exponent - minExponent) << subBucketBits) + subBucket;
+    }
+
+    /**
+     * @return number of buckets
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * @return number of values in bucket
+     */
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @return lower boundary of bucket (inclusive)
+     */
+    public double getLowerBound(int bucket) {
+        int exponent = minExponent + (bucket >>> subBucketBits);
+        int subBucket = bucket & ((1 << subBucketBits) - 1);
+        return Math.scalb((double) ((1 << subBucketBits) + subBucket), exponent - subBucketBits);
+    }
+
+    /**
+     * @return upper boundary of bucket (exclusive)
+     */
+    public double getUpperBound(int bucket) {
+        return bucket == counts.length - 1
+                ? Math.scalb(1d, maxExponent + 1)
+                : getLowerBound(bucket + 1);
+    }
+
+    /**
+     * @param percentile percentile in [0, 100]
+     * @return upper boundary of the bucket holding the value at the percentile, limited to the minimum and maximum,
+     * NaN if empty
+     */
+    public double getValueAtPercentile(double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "Percentile needs to be in [0, 100]");
+        if (n == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, getUpperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * @return total number of counted values
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return smallest counted value or NaN if empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest counted value or NaN if empty
+     */
+    public double getMax() {
+        return max;
+    }
+}
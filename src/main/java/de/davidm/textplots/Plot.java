@@ -1,11 +1,25 @@
 package de.davidm.textplots;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.apache.commons.math3.util.Pair;
 
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
+/**
+ * Base class of all plots. A plot is immutable once built: its bins, grids and legends are computed once on first
+ * use and cached, rendering only lays out the cached state. A single plot can therefore be rendered by many threads
+ * at the same time without locking, e.g. to serve concurrent requests of a status page. The input data must not
+ * change until the plot has been rendered for the first time. Limits of the input are taken from a
+ * {@link DataProfile} computed once per plot or handed to its builder.
+ */
 public abstract class Plot {
 
     public static final String CHARACTER_COLUMN_DIVISOR = "|";
@@ -17,7 +31,7 @@ public abstract class Plot {
     public static final int MIN_HEIGHT = 10;
     public static final int MAX_HEIGHT = 50;
 
-    protected final DecimalFormat df = new DecimalFormat("0.00");
+    private static final String DECIMAL_PATTERN = "0.00";
 
     protected Plot(){}
 
@@ -25,13 +39,159 @@ public abstract class Plot {
      * Plot to command line
      */
     public void printPlot(boolean printLegend){
-        System.out.println(plot(printLegend));
+        Utf8Sink sink = new Utf8Sink(System.out);
+        try {
+            render(sink, printLegend);
+            sink.append(System.lineSeparator());
+            sink.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not print plot", e);
+        }
     }
 
     /**
      * Returns the plot as a single String
      */
-    public abstract String plot(boolean printLegend);
+    public String plot(boolean printLegend){
+        StringBuilder out = new StringBuilder();
+        try {
+            render(out, printLegend);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the plot to the given target without building intermediate strings
+     *
+     * @param out         target of the plot, e.g. a StringBuilder or a {@link Utf8Sink}
+     * @param printLegend switch legend on/off
+     */
+    public abstract void render(Appendable out, boolean printLegend) throws IOException;
+
+    /**
+     * Formats a value with two decimals for the legend. DecimalFormat is not thread-safe, so every call uses its own
+     * instance instead of sharing one per plot.
+     */
+    protected static String format(double value) {
+        return new DecimalFormat(DECIMAL_PATTERN).format(value);
+    }
+
+    /**
+     * Appends a string count times
+     */
+    protected static void appendRepeated(Appendable out, CharSequence s, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.append(s);
+        }
+    }
+
+    /**
+     * Appends len characters of a row starting at off
+     */
+    protected static void appendRow(Appendable out, char[] row, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            out.append(row[i]);
+        }
+    }
+
+    /**
+     * Writes a grid of width x height characters row by row, framed by the limits of x and y and the names of the
+     * variables
+     *
+     * @param limits formatted minimum and maximum of x and y or null to write the grid without a legend
+     */
+    protected static void renderGrid(Appendable out, char[] plot, int width, int height, String nameX, String nameY,
+                                     String[] limits) throws IOException {
+        if (limits != null) {
+
+            /*
+             * Add a legend for Y to the left
+             */
+            int leftSize = nameY.length();
+            String minYString = limits[2];
+            String maxYString = limits[3];
+            int maxLengthY = Math.max(minYString.length(), maxYString.length());
+
+            for (int i = 0; i < height; i++) {
+                // Add the name of Y in the first line or fill otherwise
+                if (i == 0) {
+                    out.append(nameY);
+                } else {
+                    appendRepeated(out, CHARACTER_EMPTY_BIN, leftSize);
+                }
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                // Show min and max values for first and last line or fill otherwise
+                if (i == 0) {
+                    out.append(maxYString);
+                    appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthY - maxYString.length());
+                } else if (i == height - 1) {
+                    out.append(minYString);
+                    appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthY - minYString.length());
+                } else {
+                    appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthY);
+                }
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                // Add actual plot row
+                appendRow(out, plot, i * width, width);
+                out.append(CHARACTER_COLUMN_DIVISOR);
+                out.append('\n');
+            }
+
+            /*
+             * Add a legend for X below
+             */
+            String minXString = limits[0];
+            String maxXString = limits[1];
+            appendRepeated(out, CHARACTER_EMPTY_BIN, leftSize + maxLengthY + 1);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append(minXString);
+            appendRepeated(out, CHARACTER_EMPTY_BIN, width - (minXString.length() + maxXString.length()));
+            out.append(maxXString);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append('\n');
+
+            // Add name of variable
+            appendRepeated(out, CHARACTER_EMPTY_BIN, maxLengthY + 1 + leftSize);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            appendRepeated(out, CHARACTER_EMPTY_BIN, width - nameX.length());
+            out.append(nameX);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append('\n');
+        } else {
+            for (int i = 0; i < height; i++) {
+                appendRow(out, plot, i * width, width);
+                out.append('\n');
+            }
+        }
+    }
+
+    /**
+     * Appends the decimal representation of a non-negative value without creating a String
+     */
+    protected static void appendCount(Appendable out, long value) throws IOException {
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    /**
+     * @return number of decimal digits of a non-negative value
+     */
+    protected static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
 
     /**
      * @param value any given value of a variable
@@ -41,7 +201,7 @@ public abstract class Plot {
      *
      * @return bin for a given value
      */
-    protected static int locateBin(double value, int width, Double min, Double max) {
+    protected static int locateBin(double value, int width, double min, double max) {
         double span = (max - min);
         double binWidth = span / (1d * width);
         int bin = (int) ((value - min) / binWidth);
@@ -59,7 +219,7 @@ public abstract class Plot {
      *
      * @return 2 bins surrounding given value and assignment percentage for each bin (avoid skew by floor operation)
      */
-    protected static List<Pair<Integer, Double>> locateBins(double value, int width, Double min, Double max) {
+    protected static List<Pair<Integer, Double>> locateBins(double value, int width, double min, double max) {
         double span = (max - min);
         double binWidth = span / (1d * width);
         List<Pair<Integer, Double>>  output = new ArrayList<>();
@@ -81,19 +241,28 @@ public abstract class Plot {
     /**
      * @param data array of double data
      *
-     * @return the minimum and maximum value in the array in the form of Pair(min, max)
+     * @return the minimum and maximum value of the array in the form of Pair(min, max), taken from its {@link DataProfile}
      */
     protected static Pair<Double, Double> getMinimumAndMaximum(double[] data){
-        Double min = null, max = null;
-        for(double element : data){
-            if(min == null || min > element){
-                min = element;
-            }
-            if(max == null || max < element){
-                max = element;
-            }
+        if (data.length == 0) {
+            return new Pair<Double, Double>(null, null);
+        }
+        // NaN if there are only NaN values
+        DataProfile profile = DataProfile.of(data);
+        return Pair.create(profile.getMin(), profile.getMax());
+    }
+
+    /**
+     * Check that a profile handed to a builder describes the data of the builder
+     *
+     * @param profile profile handed to the builder or null
+     * @param n       number of values of the data or -1 if the builder has no values
+     * @param name    name of the data in the message
+     */
+    protected static void checkProfile(DataProfile profile, long n, String name) {
+        if (profile != null && n >= 0 && profile.getN() != n) {
+            throw new IllegalStateException("Profile of " + name + " holds " + profile.getN() + " values but the data holds " + n);
         }
-        return Pair.create(min, max);
     }
 
     /**
@@ -115,6 +284,46 @@ public abstract class Plot {
         return Pair.create(globalMin, globalMax);
     }
 
+    /**
+     * Runs tasks and waits for all of them to complete
+     *
+     * @param executor executor running the tasks or null to run them in the calling thread
+     * @param tasks    tasks to be run
+     *
+     * @return the results in the order of the tasks
+     */
+    protected static <T> List<T> invokeAll(Executor executor, List<? extends Callable<T>> tasks) {
+        if (executor == null) {
+            executor = MoreExecutors.sameThreadExecutor();
+        }
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            FutureTask<T> future = new FutureTask<>(task);
+            futures.add(future);
+            executor.execute(future);
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (FutureTask<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for results", e);
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            throw Throwables.propagate(e.getCause());
+        }
+        return results;
+    }
+
+    private static void cancelAll(List<? extends FutureTask<?>> futures) {
+        for (FutureTask<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
     /**
      * Checks whether a given bin is out of bounds
      *
@@ -0,0 +1,340 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A mergeable quantile sketch (KLL) which estimates quantiles of a stream of values in a single pass with memory
+ * independent of the number of values.
+ *
+ * Values are kept in a hierarchy of compactors. Level h holds values representing 2^h original values each. Once a
+ * level exceeds its capacity it is sorted and every second value is promoted to the next level. The capacity of
+ * a level shrinks geometrically from k for the top level, so the sketch holds about 3k values in total. The
+ * rank error of a quantile shrinks roughly with 1/k, see {@link #getNormalizedRankError()}.
+ *
+ * Minimum and maximum are tracked exactly. A QuantileSketch is not thread-safe.
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+    public static final int MIN_K = 8;
+
+    // Bounds of sketches read from a summary file, a sketch of n values has about log2(n / k) levels
+    static final int MAX_SERIALIZED_K = 1 << 20;
+    static final int MAX_LEVELS = 64;
+
+    private static final double CAPACITY_DECAY = 2d / 3d;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    private final int k;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private int[] capacities = new int[1];
+    private int totalCapacity = 0;
+    private int retained = 0;
+    private long n = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long random = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Construct a sketch with {@link #DEFAULT_K}
+     */
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k accuracy parameter, the rank error is about 2.3 / k
+     */
+    public QuantileSketch(int k) {
+        Preconditions.checkArgument(k >= MIN_K, "k needs to be at least " + MIN_K + " but is " + k);
+        this.k = k;
+        updateCapacities();
+        this.levels[0] = new double[capacities[0]];
+    }
+
+    /**
+     * @param value value to be added, NaN values are ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (n == 0 || value < min) min = value;
+        if (n == 0 || value > max) max = value;
+        n++;
+        append(0, value);
+        if (retained >= totalCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * @param values array of values
+     * @param off    index of the first value to be added
+     * @param len    number of values to be added
+     */
+    public void addAll(double[] values, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            add(values[i]);
+        }
+    }
+
+    /**
+     * Adds all values of another sketch to this sketch, the other sketch is not modified
+     */
+    public void merge(QuantileSketch other) {
+        if (other.n == 0) {
+            return;
+        }
+        for (int h = 0; h < other.levels.length; h++) {
+            if (h == levels.length) {
+                addLevel();
+            }
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        if (n == 0 || other.min < min) min = other.min;
+        if (n == 0 || other.max > max) max = other.max;
+        n += other.n;
+        while (retained > totalCapacity) {
+            compress();
+        }
+    }
+
+    /**
+     * @return an independent copy of this sketch
+     */
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(k);
+        copy.levels = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            copy.levels[h] = levels[h].clone();
+        }
+        copy.sizes = sizes.clone();
+        copy.capacities = capacities.clone();
+        copy.totalCapacity = totalCapacity;
+        copy.retained = retained;
+        copy.n = n;
+        copy.min = min;
+        copy.max = max;
+        copy.random = random;
+        return copy;
+    }
+
+    /**
+     * @param q quantile in [0, 1]
+     * @return an estimate of the value at quantile q, the exact minimum for 0 and maximum for 1, NaN if empty
+     */
+    public double getQuantile(double q) {
+        return getQuantiles(new double[]{q})[0];
+    }
+
+    /**
+     * @param quantiles quantiles in [0, 1] in ascending order
+     * @return estimates of the values at the given quantiles in a single pass over the sketch
+     * @see #getQuantile(double)
+     */
+    public double[] getQuantiles(double[] quantiles) {
+        double[] output = new double[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            Preconditions.checkArgument(quantiles[i] >= 0 && quantiles[i] <= 1,
+                    "Quantile needs to be in [0, 1] but is " + quantiles[i]);
+            Preconditions.checkArgument(i == 0 || quantiles[i - 1] <= quantiles[i], "Quantiles need to be in ascending order");
+        }
+        if (n == 0) {
+            Arrays.fill(output, Double.NaN);
+            return output;
+        }
+
+        // Sort each level and walk through all levels in order of value, a value on level h has weight 2^h
+        double[][] sorted = new double[levels.length][];
+        for (int h = 0; h < levels.length; h++) {
+            sorted[h] = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(sorted[h]);
+        }
+        int[] cursor = new int[levels.length];
+        long cumulative = 0;
+        int i = 0;
+        while (i < quantiles.length) {
+            if (quantiles[i] == 0) {
+                output[i++] = min;
+                continue;
+            }
+            int next = -1;
+            for (int h = 0; h < sorted.length; h++) {
+                if (cursor[h] < sorted[h].length && (next < 0 || sorted[h][cursor[h]] < sorted[next][cursor[next]])) {
+                    next = h;
+                }
+            }
+            if (next < 0) {
+                // Only reached for q = 1
+                output[i++] = max;
+                continue;
+            }
+            double value = sorted[next][cursor[next]];
+            long weight = 1L << next;
+            while (i < quantiles.length && quantiles[i] < 1 && cumulative + weight >= quantiles[i] * n) {
+                output[i++] = value;
+            }
+            if (i < quantiles.length && quantiles[i] == 1) {
+                output[i++] = max;
+                continue;
+            }
+            cumulative += weight;
+            cursor[next]++;
+        }
+        return output;
+    }
+
+    /**
+     * @return approximate normalized rank error of a quantile estimate with 99% confidence
+     */
+    public double getNormalizedRankError() {
+        return getNormalizedRankError(k);
+    }
+
+    /**
+     * @param k accuracy parameter of a sketch
+     * @return approximate normalized rank error of a quantile estimate with 99% confidence
+     */
+    public static double getNormalizedRankError(int k) {
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return number of values added to the sketch
+     */
+    public long getN() {
+        return n;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return number of values currently held by the sketch
+     */
+    public int retained() {
+        return retained;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeLong(n);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeLong(random);
+        out.writeInt(levels.length);
+        for (int h = 0; h < levels.length; h++) {
+            out.writeInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                out.writeDouble(levels[h][i]);
+            }
+        }
+    }
+
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+        int k = in.readInt();
+        // Checked before the top level is allocated, a corrupt k must not allocate gigabytes
+        Preconditions.checkArgument(k >= MIN_K && k <= MAX_SERIALIZED_K,
+                "Quantile sketch with k = " + k + " is not in [" + MIN_K + ", " + MAX_SERIALIZED_K + "]");
+        QuantileSketch sketch = new QuantileSketch(k);
+        sketch.n = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        sketch.random = in.readLong();
+        int levels = in.readInt();
+        Preconditions.checkArgument(levels >= 1 && levels <= MAX_LEVELS,
+                "Quantile sketch with " + levels + " levels is not in [1, " + MAX_LEVELS + "]");
+        for (int h = 0; h < levels; h++) {
+            if (h == sketch.levels.length) {
+                sketch.addLevel();
+            }
+            int size = in.readInt();
+            Preconditions.checkArgument(size >= 0, "Level " + h + " of a quantile sketch holds " + size + " values");
+            for (int i = 0; i < size; i++) {
+                sketch.append(h, in.readDouble());
+            }
+        }
+        return sketch;
+    }
+
+    /**
+     * Compute the capacity of each level given the current number of levels
+     */
+    private void updateCapacities() {
+        capacities = new int[levels.length];
+        totalCapacity = 0;
+        for (int h = 0; h < levels.length; h++) {
+            int depth = levels.length - 1 - h;
+            capacities[h] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+            totalCapacity += capacities[h];
+        }
+    }
+
+    private void append(int h, double value) {
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], Math.max(2 * levels[h].length, MIN_LEVEL_CAPACITY));
+        }
+        levels[h][sizes[h]++] = value;
+        retained++;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new double[MIN_LEVEL_CAPACITY];
+        updateCapacities();
+    }
+
+    /**
+     * Compact the lowest level which exceeds its capacity
+     */
+    private void compress() {
+        for (int h = 0; h < levels.length; h++) {
+            if (sizes[h] >= capacities[h]) {
+                if (h + 1 == levels.length) {
+                    addLevel();
+                }
+                double[] level = levels[h];
+                int size = sizes[h];
+                Arrays.sort(level, 0, size);
+                // Keep one value on this level if the number of values is odd
+                int keep = size % 2;
+                int offset = nextBit();
+                for (int i = keep + offset; i < size; i += 2) {
+                    append(h + 1, level[i]);
+                }
+                retained -= size - keep;
+                sizes[h] = keep;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return a pseudo random bit (xorshift) - the sketch is deterministic for the same input
+     */
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random & 1);
+    }
+}
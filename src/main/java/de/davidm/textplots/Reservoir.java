@@ -0,0 +1,169 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+
+/**
+ * A uniform random sample of a fixed number of rows from a stream of one or more aligned columns, e.g. x and y of a
+ * scatterplot, drawn in a single pass by reservoir sampling (Algorithm L, Li 1994). Once the reservoir is full, the
+ * number of rows to skip until the next replacement is drawn instead of a random number per row, so a stream of n
+ * rows takes O(k (1 + log(n / k))) random numbers and memory for k rows only. All columns of a row are kept or
+ * replaced together, so rows stay aligned.
+ *
+ * The sample only depends on the seed and the rows, not on how the rows are split into chunks. A Reservoir is not
+ * thread-safe.
+ */
+public class Reservoir {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    // Two-sided 95% quantile of the standard normal distribution
+    private static final double Z_95 = 1.959964;
+
+    private final int capacity;
+    private final double[][] sample;
+    private final Random random;
+
+    private long n = 0;
+    // Index of the next row replacing a row of the full reservoir
+    private long next;
+    private double w;
+
+    /**
+     * @param capacity number of rows in the sample
+     * @param columns  number of values per row
+     * @param seed     seed of the random generator
+     */
+    public Reservoir(int capacity, int columns, long seed) {
+        Preconditions.checkArgument(capacity > 0, "Sample size needs to be positive but is " + capacity);
+        Preconditions.checkArgument(columns > 0, "Rows need at least one column");
+        this.capacity = capacity;
+        this.sample = new double[columns][capacity];
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sample rows of a series or of aligned series of the same size, read in chunks
+     *
+     * @param capacity number of rows in the sample
+     * @param seed     seed of the random generator
+     * @param series   one series per column
+     */
+    public static Reservoir of(int capacity, long seed, DataSeries... series) {
+        for (DataSeries column : series) {
+            Preconditions.checkArgument(column.size() == series[0].size(), "Series need to be of the same size");
+        }
+        Reservoir reservoir = new Reservoir(capacity, series.length, seed);
+        int chunkSize = (int) Math.min(DataSeries.CHUNK_SIZE, Math.max(1, series[0].size()));
+        double[][] chunks = new double[series.length][chunkSize];
+        for (long position = 0; position < series[0].size(); ) {
+            int count = chunkSize;
+            // Segments of columns with different types may end at different positions
+            for (int column = 0; column < series.length; column++) {
+                count = series[column].read(position, chunks[column], 0, count);
+            }
+            reservoir.addAll(chunks, 0, count);
+            position += count;
+        }
+        return reservoir;
+    }
+
+    /**
+     * @param columns one array per column
+     * @param off     index of the first row to be added
+     * @param len     number of rows to be added
+     */
+    public void addAll(double[][] columns, int off, int len) {
+        Preconditions.checkArgument(columns.length == sample.length,
+                "Rows need " + sample.length + " columns but have " + columns.length);
+        int i = off;
+        int end = off + len;
+        // Keep all rows until the reservoir is full
+        for (; n < capacity && i < end; i++) {
+            for (int column = 0; column < sample.length; column++) {
+                sample[column][(int) n] = columns[column][i];
+            }
+            n++;
+            if (n == capacity) {
+                w = Math.exp(Math.log(uniform()) / capacity);
+                next = skip(n - 1);
+            }
+        }
+        // Jump to the rows replacing a random row of the reservoir, row j of this chunk is row first + j
+        long first = n - i;
+        long last = n + (end - i) - 1;
+        while (n >= capacity && next <= last) {
+            int row = (int) (next - first);
+            int replaced = random.nextInt(capacity);
+            for (int column = 0; column < sample.length; column++) {
+                sample[column][replaced] = columns[column][row];
+            }
+            w *= Math.exp(Math.log(uniform()) / capacity);
+            next = skip(next);
+        }
+        n += end - i;
+    }
+
+    /**
+     * @return uniform random number in (0, 1]
+     */
+    private double uniform() {
+        return 1d - random.nextDouble();
+    }
+
+    /**
+     * @return index of the next row entering the reservoir after row current
+     */
+    private long skip(long current) {
+        // log1p keeps the denominator negative for tiny w, a huge skip saturates instead of overflowing
+        return (long) (current + 1d + Math.floor(Math.log(uniform()) / Math.log1p(-w)));
+    }
+
+    /**
+     * @return number of rows seen
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return number of rows in the sample
+     */
+    public int getSize() {
+        return (int) Math.min(n, capacity);
+    }
+
+    /**
+     * @return copy of the sampled values of a column in no particular order
+     */
+    public double[] getSample(int column) {
+        double[] values = new double[getSize()];
+        System.arraycopy(sample[column], 0, values, 0, values.length);
+        return values;
+    }
+
+    /**
+     * @return half width of the 95% confidence interval of the share of rows estimated from the sample, e.g. of a
+     * bin or of a quantile, in the worst case of a share of 50% and with finite population correction - 0 if the
+     * sample holds all rows
+     */
+    public double getMarginOfError() {
+        if (n <= capacity) {
+            return 0;
+        }
+        return Z_95 * Math.sqrt(0.25 / capacity) * Math.sqrt((double) (n - capacity) / (n - 1));
+    }
+
+    /**
+     * @return a note on the sample for the legend of a plot, e.g. "sample of 1000 of 150000 rows, ±3.10% at 95%
+     * confidence", null if the sample holds all rows
+     */
+    String note() {
+        if (n <= capacity) {
+            return null;
+        }
+        return "sample of " + capacity + " of " + n + " rows, ±" + Plot.format(100 * getMarginOfError())
+                + "% at 95% confidence";
+    }
+}
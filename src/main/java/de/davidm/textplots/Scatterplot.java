@@ -1,12 +1,15 @@
 package de.davidm.textplots;
 
 import com.google.common.base.Preconditions;
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.apache.commons.math3.util.Pair;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 public class Scatterplot extends Plot {
 
@@ -19,32 +22,238 @@ public class Scatterplot extends Plot {
     public static final int BOUNDARY_MEDIUM_DENSITY = 50;
     public static final int BOUNDARY_HIGH_DENSITY = 80;
 
-    private final Pair<String, double[]> X;
-    private final Pair<String, double[]> Y;
+    // Parallel binning splits the data into at most PARALLEL_CHUNKS chunks of at least MIN_CHUNK_SIZE points
+    private static final int PARALLEL_CHUNKS = Runtime.getRuntime().availableProcessors();
+    private static final int MIN_CHUNK_SIZE = 65536;
+
+    private final String nameX, nameY;
     private final int width, height;
-    private final Double minX, maxX, minY, maxY;
-    private final boolean smoothing;
+    private final DensityQuantizer quantizer;
+
+    // Computed once on first use, rendering only lays out the cached plot and legend
+    private final Supplier<double[]> limits;
+    private final Supplier<char[]> plot;
+    private final Supplier<String[]> legend;
+    // Random sample of the points or null if all points are plotted
+    private final Supplier<Reservoir> sample;
 
     private Scatterplot(ScatterplotBuilder scatterplotBuilder) {
-        this.X = scatterplotBuilder.x;
-        this.Y = scatterplotBuilder.y;
-        this.width = scatterplotBuilder.width;
-        this.height = scatterplotBuilder.height;
-        this.smoothing = scatterplotBuilder.smoothing;
+        this.nameX = scatterplotBuilder.x.getFirst();
+        this.nameY = scatterplotBuilder.y.getFirst();
+        this.width = scatterplotBuilder.grid != null ? scatterplotBuilder.grid.getWidth() : scatterplotBuilder.width;
+        this.height = scatterplotBuilder.grid != null ? scatterplotBuilder.grid.getHeight() : scatterplotBuilder.height;
+        this.quantizer = new DensityQuantizer(scatterplotBuilder.ramp, scatterplotBuilder.scale);
+
+        if (scatterplotBuilder.grid != null) {
+            // Take a snapshot of the grid, its size and limits are used
+            final DensityGrid grid = scatterplotBuilder.grid.copy();
+            limits = Suppliers.ofInstance(new double[]{grid.getMinX(), grid.getMaxX(), grid.getMinY(), grid.getMaxY()});
+            plot = Suppliers.memoize(new Supplier<char[]>() {
+                @Override
+                public char[] get() {
+                    return quantizer.quantize(grid.densities(), new char[width * height]);
+                }
+            });
+            sample = null;
+        } else {
+            final double[] X = scatterplotBuilder.x.getSecond();
+            final double[] Y = scatterplotBuilder.y.getSecond();
+            final DataSeries seriesX = scatterplotBuilder.seriesX;
+            final DataSeries seriesY = scatterplotBuilder.seriesY;
+            final Double minX = scatterplotBuilder.minX, maxX = scatterplotBuilder.maxX;
+            final Double minY = scatterplotBuilder.minY, maxY = scatterplotBuilder.maxY;
+            // Profiles describe all points, a sample takes its limits from the sampled points
+            final DataProfile profileX = scatterplotBuilder.sample == null ? scatterplotBuilder.profileX : null;
+            final DataProfile profileY = scatterplotBuilder.sample == null ? scatterplotBuilder.profileY : null;
+            final boolean smoothing = scatterplotBuilder.smoothing;
+            final boolean braille = scatterplotBuilder.braille;
+            final Executor executor = scatterplotBuilder.executor;
+            final Integer sampleSize = scatterplotBuilder.sample;
+            final long seed = scatterplotBuilder.seed;
+            // Pairs of x and y are sampled together, so the points of the sample are points of the data
+            sample = sampleSize == null ? null : Suppliers.memoize(new Supplier<Reservoir>() {
+                @Override
+                public Reservoir get() {
+                    return seriesX != null ? Reservoir.of(sampleSize, seed, seriesX, seriesY)
+                            : Reservoir.of(sampleSize, seed, DataSeries.of(nameX, X), DataSeries.of(nameY, Y));
+                }
+            });
+            // x and y values held in arrays, null if series are read in chunks
+            final Supplier<double[][]> points = Suppliers.memoize(new Supplier<double[][]>() {
+                @Override
+                public double[][] get() {
+                    if (sample != null) {
+                        return new double[][]{sample.get().getSample(0), sample.get().getSample(1)};
+                    }
+                    return seriesX != null ? null : new double[][]{X, Y};
+                }
+            });
+            limits = Suppliers.memoize(new Supplier<double[]>() {
+                @Override
+                public double[] get() {
+                    double[][] xy = points.get();
+                    return xy == null ? limits(seriesX, seriesY, minX, maxX, minY, maxY, profileX, profileY)
+                            : limits(xy[0], xy[1], minX, maxX, minY, maxY, profileX, profileY);
+                }
+            });
+            plot = Suppliers.memoize(new Supplier<char[]>() {
+                @Override
+                public char[] get() {
+                    double[] limits = Scatterplot.this.limits.get();
+                    double[][] xy = points.get();
+                    if (braille) {
+                        BrailleRaster raster = xy == null ? brailleRaster(seriesX, seriesY, width, height, limits)
+                                : brailleRaster(xy[0], xy[1], width, height, limits, executor);
+                        return raster.glyphs(new char[width * height]);
+                    }
+                    double[] grid = xy == null ? densityGrid(seriesX, seriesY, width, height, limits, smoothing)
+                            : densityGrid(xy[0], xy[1], width, height, limits[0], limits[1], limits[2], limits[3], smoothing,
+                            executor, chunks(xy[0].length, executor));
+                    // Map densities to characters with thresholds computed once for the whole grid
+                    return quantizer.quantize(grid, new char[width * height]);
+                }
+            });
+        }
+        legend = Suppliers.memoize(new Supplier<String[]>() {
+            @Override
+            public String[] get() {
+                double[] limits = Scatterplot.this.limits.get();
+                return new String[]{format(limits[0]), format(limits[1]), format(limits[2]), format(limits[3])};
+            }
+        });
+    }
 
+    /**
+     * @param profileX profile of X or null to compute it
+     * @param profileY profile of Y or null to compute it
+     * @return minimum and maximum of x and y, limits which are not given follow from the data
+     */
+    private static double[] limits(double[] X, double[] Y, Double minX, Double maxX, Double minY, Double maxY,
+                                   DataProfile profileX, DataProfile profileY) {
         // Set min and max values X
-        Pair<Double, Double> minMaxData = getMinimumAndMaximum(X.getSecond());
-        minX = scatterplotBuilder.minX != null ? scatterplotBuilder.minX : minMaxData.getFirst();
-        maxX = scatterplotBuilder.maxX != null ? scatterplotBuilder.maxX : minMaxData.getSecond();
+        if (minX == null || maxX == null) {
+            Pair<Double, Double> minMaxData = profileX != null ? Pair.create(profileX.getMin(), profileX.getMax())
+                    : getMinimumAndMaximum(X);
+            minX = minX != null ? minX : minMaxData.getFirst();
+            maxX = maxX != null ? maxX : minMaxData.getSecond();
+        }
+        // Set min and max values Y
+        if (minY == null || maxY == null) {
+            Pair<Double, Double> minMaxDataY = profileY != null ? Pair.create(profileY.getMin(), profileY.getMax())
+                    : getMinimumAndMaximum(Y);
+            minY = minY != null ? minY : minMaxDataY.getFirst();
+            maxY = maxY != null ? maxY : minMaxDataY.getSecond();
+        }
+        return checkLimits(minX, maxX, minY, maxY);
+    }
+
+    /**
+     * @param profileX profile of X or null to compute it
+     * @param profileY profile of Y or null to compute it
+     * @return minimum and maximum of x and y, limits which are not given follow from a first pass over the series
+     */
+    private static double[] limits(DataSeries X, DataSeries Y, Double minX, Double maxX, Double minY, Double maxY,
+                                   DataProfile profileX, DataProfile profileY) {
+        if (profileX == null && (minX == null || maxX == null)) {
+            profileX = DataProfile.of(X);
+        }
+        if (profileY == null && (minY == null || maxY == null)) {
+            profileY = DataProfile.of(Y);
+        }
+        return checkLimits(minX != null ? minX : profileX.getMin(), maxX != null ? maxX : profileX.getMax(),
+                minY != null ? minY : profileY.getMin(), maxY != null ? maxY : profileY.getMax());
+    }
+
+    private static double[] checkLimits(double minX, double maxX, double minY, double maxY) {
         // Check for correct min and max value settings
         Preconditions.checkState(minX<=maxX, "Minimum value for X needs to be smaller than the maximum");
+        Preconditions.checkState(minY<=maxY, "Minimum value for Y needs to be smaller than the maximum");
+        return new double[]{minX, maxX, minY, maxY};
+    }
 
-        // Set min and max values Y
-        Pair<Double, Double> minMaxDataY = getMinimumAndMaximum(Y.getSecond());
-        minY = scatterplotBuilder.minY != null ? scatterplotBuilder.minY : minMaxDataY.getFirst();
-        maxY = scatterplotBuilder.maxY != null ? scatterplotBuilder.maxY : minMaxDataY.getSecond();
-        // Check for correct min and max value settings
-        Preconditions.checkState(minY<=maxY, "Minimum value for X needs to be smaller than the maximum");
+    /**
+     * @return number of chunks counted in parallel
+     */
+    private static int chunks(int points, Executor executor) {
+        return executor == null ? 1 : Math.max(1, Math.min(PARALLEL_CHUNKS, points / MIN_CHUNK_SIZE));
+    }
+
+    /**
+     * Count the values of two series chunk by chunk into a grid
+     */
+    private static double[] densityGrid(DataSeries seriesX, DataSeries seriesY, int width, int height,
+                                        double[] limits, boolean smoothing) {
+        final DensityGrid grid = new DensityGrid(width, height, limits[0], limits[1], limits[2], limits[3], smoothing);
+        forEachChunk(seriesX, seriesY, new ChunkConsumer() {
+            @Override
+            public void accept(double[] X, double[] Y, int count) {
+                grid.addAll(X, Y, 0, count);
+            }
+        });
+        return grid.densities();
+    }
+
+    /**
+     * Set the dots of the values of two series chunk by chunk
+     */
+    private static BrailleRaster brailleRaster(DataSeries seriesX, DataSeries seriesY, int width, int height,
+                                               double[] limits) {
+        final BrailleRaster raster = new BrailleRaster(width, height, limits[0], limits[1], limits[2], limits[3]);
+        forEachChunk(seriesX, seriesY, new ChunkConsumer() {
+            @Override
+            public void accept(double[] X, double[] Y, int count) {
+                raster.addAll(X, Y, 0, count);
+            }
+        });
+        return raster;
+    }
+
+    /**
+     * Set the dots of xy-values, chunks of the data are drawn in parallel into separate rasters which are merged
+     *
+     * @param executor executor drawing chunks of the data in parallel or null to draw all data in the calling thread
+     */
+    private static BrailleRaster brailleRaster(final double[] X, final double[] Y, final int width, final int height,
+                                               final double[] limits, Executor executor) {
+        final int chunks = chunks(X.length, executor);
+        List<Callable<BrailleRaster>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) X.length * chunk / chunks);
+            final int to = (int) ((long) X.length * (chunk + 1) / chunks);
+            tasks.add(new Callable<BrailleRaster>() {
+                @Override
+                public BrailleRaster call() {
+                    BrailleRaster raster = new BrailleRaster(width, height, limits[0], limits[1], limits[2], limits[3]);
+                    raster.addAll(X, Y, from, to - from);
+                    return raster;
+                }
+            });
+        }
+        List<BrailleRaster> rasters = invokeAll(chunks == 1 ? null : executor, tasks);
+        for (int chunk = 1; chunk < rasters.size(); chunk++) {
+            rasters.get(0).merge(rasters.get(chunk));
+        }
+        return rasters.get(0);
+    }
+
+    private interface ChunkConsumer {
+        void accept(double[] X, double[] Y, int count);
+    }
+
+    /**
+     * Read two series of equal size in chunks
+     */
+    private static void forEachChunk(DataSeries seriesX, DataSeries seriesY, ChunkConsumer consumer) {
+        int chunkSize = (int) Math.min(DataSeries.CHUNK_SIZE, Math.max(1, seriesX.size()));
+        double[] chunkX = new double[chunkSize];
+        double[] chunkY = new double[chunkSize];
+        for (long position = 0; position < seriesX.size(); ) {
+            int count = seriesX.read(position, chunkX, 0, chunkX.length);
+            // Segments of columns with different types may end at different positions
+            count = seriesY.read(position, chunkY, 0, count);
+            consumer.accept(chunkX, chunkY, count);
+            position += count;
+        }
     }
 
     /**
@@ -53,11 +262,20 @@ public class Scatterplot extends Plot {
     public static class ScatterplotBuilder {
         Pair<String, double[]> x;
         Pair<String, double[]> y;
+        DensityGrid grid;
+        DataSeries seriesX, seriesY;
+        DataProfile profileX = null, profileY = null;
         Double minX = null, minY = null;
         Double maxX = null, maxY = null;
         int width = DEFAULT_WIDTH;
         int height = DEFAULT_HEIGHT;
         boolean smoothing = true;
+        boolean braille = false;
+        Integer sample = null;
+        long seed = Reservoir.DEFAULT_SEED;
+        Executor executor = null;
+        DensityQuantizer.Ramp ramp = DensityQuantizer.Ramp.DEFAULT;
+        DensityQuantizer.Scale scale = DensityQuantizer.Scale.RANK;
 
         /**
          * Construct a Scatterplot
@@ -72,6 +290,37 @@ public class Scatterplot extends Plot {
             this.y = Y;
         }
 
+        /**
+         * Construct a Scatterplot of series, e.g. of float[] or of memory-mapped {@link Column}s, values are read in
+         * chunks without copying the series
+         * @param X values of the variable on the X axis
+         * @param Y values of the variable on the Y axis
+         */
+        public ScatterplotBuilder(DataSeries X, DataSeries Y){
+            Preconditions.checkArgument(X.size() == Y.size(),
+                    "Input vectors need to be of the same length. Currently X=" + X.size() + " and Y=" + Y.size());
+            this.x = new Pair<String, double[]>(X.getName(), null);
+            this.y = new Pair<String, double[]>(Y.getName(), null);
+            this.seriesX = X;
+            this.seriesY = Y;
+        }
+
+        /**
+         * Construct a Scatterplot of a density grid, the size, limits and smoothing of the grid are used and later
+         * changes to it are not reflected in the plot
+         * @param nameX name of the variable on the X axis
+         * @param nameY name of the variable on the Y axis
+         * @param grid densities of xy-values
+         */
+        public ScatterplotBuilder(String nameX, String nameY, DensityGrid grid){
+            this.x = new Pair<String, double[]>(nameX, null);
+            this.y = new Pair<String, double[]>(nameY, null);
+            this.grid = grid;
+            this.width = grid.getWidth();
+            this.height = grid.getHeight();
+            this.smoothing = grid.isSmoothing();
+        }
+
         /**
          * @param width width of plots - attention: additional width is added by names and table
          * @param height height of plots - attention: additional width is added by names and table formatting
@@ -98,6 +347,19 @@ public class Scatterplot extends Plot {
             return this;
         }
 
+        /**
+         * Take the limits which are not set from profiles of the values computed by the caller, e.g. once for several
+         * plots of the same values, instead of a first pass over the values
+         * @param profileX profile of the x values given to the builder or null to compute it
+         * @param profileY profile of the y values given to the builder or null to compute it (both ignored for density
+         *                 grids and samples)
+         */
+        public ScatterplotBuilder setProfiles(DataProfile profileX, DataProfile profileY){
+            this.profileX = profileX;
+            this.profileY = profileY;
+            return this;
+        }
+
         /**
          * @param smoothing if true output will be smoothed to better fit to limited amount of bins in command line
          * @return
@@ -107,6 +369,60 @@ public class Scatterplot extends Plot {
             return this;
         }
 
+        /**
+         * Draw each cell as a Braille pattern of 2x4 dots, which shows 8 times as many points as densities do. A dot
+         * is set for each point, so the plot shows where points are but not how many.
+         * @param braille if true dots are drawn instead of densities, smoothing and the density ramp are not used
+         */
+        public ScatterplotBuilder setBraille(boolean braille){
+            this.braille = braille;
+            return this;
+        }
+
+        /**
+         * Plot a uniform random sample of the points drawn in a single pass instead of all points, x and y of a point
+         * are sampled together and the legend notes the size and the margin of error of the sample, see
+         * {@link Reservoir}
+         * @param size number of points in the sample or null to plot all points (ignored for density grids)
+         */
+        public ScatterplotBuilder setSample(Integer size){
+            this.sample = size;
+            return this;
+        }
+
+        /**
+         * @param seed seed of the random sample, the same seed draws the same sample of the same data
+         */
+        public ScatterplotBuilder setSeed(long seed){
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Count chunks of the data in parallel, e.g. on a ForkJoinPool - the counts of each chunk are merged at the end
+         * @param executor executor for counting chunks of the data - null to count all data in the calling thread
+         */
+        public ScatterplotBuilder setExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param ramp glyphs used for increasing densities, e.g. {@link DensityQuantizer.Ramp#SHADES}
+         */
+        public ScatterplotBuilder setDensityRamp(DensityQuantizer.Ramp ramp){
+            this.ramp = ramp;
+            return this;
+        }
+
+        /**
+         * @param scale how the boundaries of the ramp are applied to the densities, by default as percentiles
+         */
+        public ScatterplotBuilder setDensityScale(DensityQuantizer.Scale scale){
+            this.scale = scale;
+            return this;
+        }
+
         /**
          * @return a Scatterplot object with user settings
          */
@@ -117,94 +433,38 @@ public class Scatterplot extends Plot {
             // Check for correct height
             Preconditions.checkState(height >= MIN_HEIGHT && height <= MAX_HEIGHT,
                     "Height is set to " + height + " but needs to be in " + "[" + MIN_HEIGHT + "," + MAX_HEIGHT + "]");
+            Preconditions.checkState(ramp != null && scale != null, "Density ramp and scale need to be set");
+            Preconditions.checkState(!braille || grid == null, "A density grid cannot be drawn as Braille dots");
+            Preconditions.checkState(sample == null || sample > 0, "Sample size needs to be positive");
+            long n = x.getSecond() != null ? x.getSecond().length : seriesX != null ? seriesX.size() : -1;
+            checkProfile(profileX, n, "X");
+            checkProfile(profileY, n, "Y");
+            // Limits given by the user are checked at once, limits following from the data on first use
+            Preconditions.checkState(minX == null || maxX == null || minX <= maxX,
+                    "Minimum value for X needs to be smaller than the maximum");
+            Preconditions.checkState(minY == null || maxY == null || minY <= maxY,
+                    "Minimum value for Y needs to be smaller than the maximum");
             return new Scatterplot(this);
         }
     }
 
     /**
-     * @return the Scatterplot in a single String
+     * Print the Scatterplot to command line
+     *
+     * @param printLegend switch legend on/off
      */
     @Override
-    public String plot(boolean printLegend){
-        String out = "";
-
-        String[] plot = scatterplotString(X.getSecond(), Y.getSecond(), width, height, minX, maxX, minY, maxY, smoothing);
-
-        if(printLegend) {
-
-            /*
-             * Add a legend for Y to the left
-             */
-            out = Y.getFirst();
-            int leftSize = out.length();
-            String minYString = df.format(minY.doubleValue());
-            String maxYString = df.format(maxY.doubleValue());
-            int maxLengthY = Math.max(minYString.length(), maxYString.length());
-
-            df.format(maxY.doubleValue());
-            for (int i = 0; i < plot.length; i++) {
-                // Add strings to the left if we are not in first line
-                if (i > 0) {
-                    for (int j = 0; j < leftSize; j++) {
-                        out += CHARACTER_EMPTY_BIN;
-                    }
-                }
-                out += CHARACTER_COLUMN_DIVISOR;
-                // Show min and max values for first and last line or fill otherwise
-                if (i == 0) {
-                    out += maxYString;
-                    for (int j = 0; j < (maxLengthY - maxYString.length()); j++) {
-                        out += CHARACTER_EMPTY_BIN;
-                    }
-                } else if (i == plot.length - 1) {
-                    out += minYString;
-                    for (int j = 0; j < (maxLengthY - minYString.length()); j++) {
-                        out += CHARACTER_EMPTY_BIN;
-                    }
-                } else {
-                    for (int j = 0; j < maxLengthY; j++) {
-                        out += CHARACTER_EMPTY_BIN;
-                    }
-                }
-                out += CHARACTER_COLUMN_DIVISOR;
-                // Add actual plot row
-                out += plot[i] + CHARACTER_COLUMN_DIVISOR + "\n";
-            }
-
-            /*
-             * Add a legend for X below
-             */
-            String minXString = df.format(minX.doubleValue());
-            String maxXString = df.format(maxX.doubleValue());
-            for (int j = 0; j < leftSize + maxLengthY + 1; j++) {
-                out += CHARACTER_EMPTY_BIN;
-            }
-            out += CHARACTER_COLUMN_DIVISOR;
-            out += minXString;
-            for (int j = 0; j < width - (minXString.length() + maxXString.length()); j++) {
-                out += CHARACTER_EMPTY_BIN;
-            }
-            out += maxXString;
-            out += CHARACTER_COLUMN_DIVISOR + "\n";
-
-            // Add name of variable
-            int nameLength = X.getFirst().length();
-            for (int j = 0; j < maxLengthY + 1 + Y.getFirst().length(); j++) {
-                out += CHARACTER_EMPTY_BIN;
-            }
-            out += CHARACTER_COLUMN_DIVISOR;
-            for (int j = 0; j < width - nameLength; j++) {
-                out += CHARACTER_EMPTY_BIN;
-            }
-            out += X.getFirst();
-            out += CHARACTER_COLUMN_DIVISOR + "\n";
-        } else {
-            for(String line : plot){
-                out += line + "\n";
-            }
+    public void render(Appendable out, boolean printLegend) throws IOException {
+        renderGrid(out, plot.get(), width, height, nameX, nameY, printLegend ? legend.get() : null);
+        // Note the size and the error of a sample below the plot
+        String note = printLegend && sample != null ? sample.get().note() : null;
+        if (note != null) {
+            String[] limits = legend.get();
+            appendRepeated(out, CHARACTER_EMPTY_BIN, nameY.length() + Math.max(limits[2].length(), limits[3].length()) + 1);
+            out.append(CHARACTER_COLUMN_DIVISOR);
+            out.append(note);
+            out.append('\n');
         }
-
-        return out;
     }
 
     /**
@@ -222,109 +482,152 @@ public class Scatterplot extends Plot {
      */
     protected static String[] scatterplotString(
             double[] X, double[] Y, int width, int height, Double minX, Double maxX, Double minY, Double maxY, boolean smoothing) {
+        char[] plot = scatterplotChars(X, Y, width, height, minX, maxX, minY, maxY, smoothing);
+        String[] out = new String[height];
+        for (int y = 0; y < height; y++) {
+            out[y] = new String(plot, y * width, width);
+        }
+        return out;
+    }
 
-        // Locate visual boundaries
-        Pair<Double, Double> minMaxX = getMinimumAndMaximum(X);
-        Pair<Double, Double> minMaxY = getMinimumAndMaximum(Y);
-        if(minX==null) minX=minMaxX.getFirst();
-        if(minY==null) minY=minMaxY.getFirst();
-        if(maxX==null) maxX=minMaxX.getSecond();
-        if(maxY==null) maxY=minMaxY.getSecond();
+    /**
+     * Draw a Scatterplot for given variables into a char array holding height rows of width characters
+     *
+     * @see #scatterplotString(double[], double[], int, int, Double, Double, Double, Double, boolean)
+     */
+    protected static char[] scatterplotChars(
+            double[] X, double[] Y, int width, int height, Double minX, Double maxX, Double minY, Double maxY, boolean smoothing) {
+        return scatterplotChars(X, Y, width, height, minX, maxX, minY, maxY, smoothing, null, new DensityQuantizer());
+    }
 
-        // Locate bins for visual boundaries
-        int minBoundX = locateBin(minX, width, minX, maxX);
-        int maxBoundX = locateBin(maxX, width, minX, maxX);
-        int minBoundY = locateBin(minY, height, minY, maxY);
-        int maxBoundY = locateBin(maxY, height, minY, maxY);
+    /**
+     * Draw a Scatterplot for given variables into a char array holding height rows of width characters
+     *
+     * @param executor executor binning chunks of the data in parallel or null to bin all data in the calling thread
+     * @param quantizer mapping of the densities to characters
+     * @see #scatterplotString(double[], double[], int, int, Double, Double, Double, Double, boolean)
+     */
+    protected static char[] scatterplotChars(
+            double[] X, double[] Y, int width, int height, Double minX, Double maxX, Double minY, Double maxY, boolean smoothing,
+            Executor executor, DensityQuantizer quantizer) {
 
-        // Fill outputdata 2d-array counting occurrences of xy-values
-        double[][] outputData = new double[width][height]; // keep track of data in bins
-        // Fill with 0s
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                outputData[x][y] = 0d;
-            }
+        // Locate visual boundaries
+        if(minX==null || maxX==null) {
+            Pair<Double, Double> minMaxX = getMinimumAndMaximum(X);
+            if(minX==null) minX=minMaxX.getFirst();
+            if(maxX==null) maxX=minMaxX.getSecond();
         }
-        // Fill with values
-        for (int x = 0; x < X.length; x++) {
-            int y = x;
-            // Count the occurrences
-            if (smoothing) {
-                // Distributed over two bins to avoid skew introduced by floor operation
-                List<Pair<Integer, Double>> binsX = locateBins(X[x], width, minX, maxX);
-                List<Pair<Integer, Double>> binsY = locateBins(Y[y], height, minY, maxY);
-                for (int i = 0; i < binsX.size(); i++) {
-                    int binX = binsX.get(i).getFirst();
-                    int binY = binsY.get(i).getFirst();
-                    double valueX = binsX.get(i).getSecond();
-                    double valueY = binsY.get(i).getSecond();
-                    double value = (valueX + valueY) / (double) binsX.size();
-                    if (!isOutOfBounds(binX, minBoundX, maxBoundX) && !isOutOfBounds(binY, minBoundY, maxBoundY)) {
-                        outputData[binX][height - binY - 1] += value;
-                    }
-                }
-            } else {
-                // Distributed over two bins to avoid skew introduced by floor operation
-                int binX = locateBin(X[x], width, minX, maxX);
-                int binY = locateBin(Y[y], height, minY, maxY);
-                if (!isOutOfBounds(binX, minBoundX, maxBoundX) && !isOutOfBounds(binY, minBoundY, maxBoundY)) {
-                    outputData[binX][height - binY - 1] += 1;
-                }
-            }
+        if(minY==null || maxY==null) {
+            Pair<Double, Double> minMaxY = getMinimumAndMaximum(Y);
+            if(minY==null) minY=minMaxY.getFirst();
+            if(maxY==null) maxY=minMaxY.getSecond();
         }
 
+        // Count occurrences of xy-values in a grid of height rows with width cells each
+        int chunks = executor == null ? 1 : Math.max(1, Math.min(PARALLEL_CHUNKS, X.length / MIN_CHUNK_SIZE));
+        double[] grid = densityGrid(X, Y, width, height, minX, maxX, minY, maxY, smoothing, executor, chunks);
 
-        // Create density mapping
-        List<Double> density = new ArrayList<>();
-        for (double[] data : outputData) {
-            for (double value : data) {
-                if (value > 0) {
-                    density.add(value);
-                }
-            }
+        // Map densities to characters with thresholds computed once for the whole grid
+        return quantizer.quantize(grid, new char[width * height]);
+    }
+
+    /**
+     * Count the occurrences of xy-values in a grid, the data is split into chunks which are counted in parallel
+     * into separate grids and merged afterwards
+     *
+     * @param executor executor counting the chunks, null to count all chunks in the calling thread
+     * @param chunks   number of chunks
+     * @return densities in height rows of width cells, the first row holds the largest y values
+     */
+    protected static double[] densityGrid(
+            final double[] X, final double[] Y, final int width, final int height,
+            final double minX, final double maxX, final double minY, final double maxY, final boolean smoothing,
+            Executor executor, int chunks) {
+        if (chunks == 1) {
+            double[] grid = new double[width * height];
+            splat(X, Y, 0, X.length, grid, width, height, minX, maxX, minY, maxY, smoothing);
+            return grid;
         }
-        DescriptiveStatistics densityStats = new DescriptiveStatistics(ArrayUtils.toPrimitive(density.toArray(new Double[] { })));
-
-        // Generate output
-        String[][] output = new String[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if(outputData[x][y]==0) {
-                    output[x][y] = CHARACTER_NO_DENSITY;
-                } else {
-                    output[x][y] = matchDensityChar(densityStats, outputData[x][y]);
+
+        List<Callable<double[]>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) X.length * chunk / chunks);
+            final int to = (int) ((long) X.length * (chunk + 1) / chunks);
+            tasks.add(new Callable<double[]>() {
+                @Override
+                public double[] call() {
+                    double[] grid = new double[width * height];
+                    splat(X, Y, from, to, grid, width, height, minX, maxX, minY, maxY, smoothing);
+                    return grid;
                 }
-            }
+            });
         }
-
-        // Build results
-        String[] out = new String[height];
-
-        for(int wY = 0; wY < height; wY++){
-            String line = "";
-            for(int wX = 0; wX < width; wX++){
-                line += output[wX][wY];
+        // Merge the grids of all chunks
+        List<double[]> grids = invokeAll(executor, tasks);
+        double[] grid = grids.get(0);
+        for (int chunk = 1; chunk < grids.size(); chunk++) {
+            double[] chunkGrid = grids.get(chunk);
+            for (int i = 0; i < grid.length; i++) {
+                grid[i] += chunkGrid[i];
             }
-            out[wY] = line;
         }
-
-        return out;
+        return grid;
     }
 
     /**
-     * @param densityStats an object containing information on the distribution of bin occurrences
-     * @param value value which is matched with an appropriate density representing character
-     * @return a character that resembles the density for the input value given a distribution of values
+     * Add the values from index from (inclusive) to index to (exclusive) to a grid of height rows and width cells,
+     * see {@link #locateBin(double, int, double, double)} and {@link #locateBins(double, int, double, double)}
      */
-    private static String matchDensityChar(DescriptiveStatistics densityStats, double value) {
-        if(value < densityStats.getPercentile(BOUNDARY_NO_DENSITY)){
-            return CHARACTER_NO_DENSITY;
-        } else if(value < densityStats.getPercentile(BOUNDARY_MEDIUM_DENSITY)){
-            return CHARACTER_MEDIUM_DENSITY;
-        } else if (value < densityStats.getPercentile(BOUNDARY_HIGH_DENSITY)){
-            return CHARACTER_HIGH_DENSITY;
-        } else {
-            return CHARACTER_HIGHEST_DENSITY;
+    static void splat(double[] X, double[] Y, int from, int to, double[] grid, int width, int height,
+                      double minX, double maxX, double minY, double maxY, boolean smoothing) {
+        // Locate bins for visual boundaries
+        int minBoundX = locateBin(minX, width, minX, maxX);
+        int maxBoundX = locateBin(maxX, width, minX, maxX);
+        int minBoundY = locateBin(minY, height, minY, maxY);
+        int maxBoundY = locateBin(maxY, height, minY, maxY);
+        double binWidthX = (maxX - minX) / (1d * width);
+        double binWidthY = (maxY - minY) / (1d * height);
+
+        for (int i = from; i < to; i++) {
+            double x = X[i];
+            double y = Y[i];
+            double binX = (x - minX) / binWidthX;
+            double binY = (y - minY) / binWidthY;
+            if (smoothing) {
+                // Distributed over two bins to avoid skew introduced by floor operation
+                int binX1, binX2, binY1, binY2;
+                double valueX1, valueX2, valueY1, valueY2;
+                if (x < maxX) {
+                    binX1 = (int) binX;
+                    binX2 = binX1 + 1;
+                    valueX1 = binX - (int) binX;
+                    valueX2 = 1 - valueX1;
+                } else {
+                    binX1 = binX2 = (int) binX - 1;
+                    valueX1 = valueX2 = 0.5;
+                }
+                if (y < maxY) {
+                    binY1 = (int) binY;
+                    binY2 = binY1 + 1;
+                    valueY1 = binY - (int) binY;
+                    valueY2 = 1 - valueY1;
+                } else {
+                    binY1 = binY2 = (int) binY - 1;
+                    valueY1 = valueY2 = 0.5;
+                }
+                if (!isOutOfBounds(binX1, minBoundX, maxBoundX) && !isOutOfBounds(binY1, minBoundY, maxBoundY)) {
+                    grid[(height - binY1 - 1) * width + binX1] += (valueX1 + valueY1) / 2d;
+                }
+                if (!isOutOfBounds(binX2, minBoundX, maxBoundX) && !isOutOfBounds(binY2, minBoundY, maxBoundY)) {
+                    grid[(height - binY2 - 1) * width + binX2] += (valueX2 + valueY2) / 2d;
+                }
+            } else {
+                int binX1 = x >= maxX ? width - 1 : (int) binX;
+                int binY1 = y >= maxY ? height - 1 : (int) binY;
+                if (!isOutOfBounds(binX1, minBoundX, maxBoundX) && !isOutOfBounds(binY1, minBoundY, maxBoundY)) {
+                    grid[(height - binY1 - 1) * width + binX1] += 1;
+                }
+            }
         }
     }
 
@@ -0,0 +1,296 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An incremental histogram with a fixed number of equal-width bins which counts values without retaining them.
+ *
+ * Bins are closed to the right, i.e. [lower, upper(0)], (upper(0), upper(1)], ..., (upper(n-2), upper].
+ * The range of the bins is either fixed at construction - values outside of the range are counted in the first or
+ * last bin - or expands automatically: whenever a value falls outside of the current range the bin width is
+ * doubled and adjacent bins are merged pairwise. In this case values on the previous lower boundary may end up in
+ * the neighbouring bin. NaN and infinite values are ignored.
+ *
+ * Adding a value is O(1) (amortized for the expanding range). A StreamingHistogram is not thread-safe.
+ */
+public class StreamingHistogram {
+
+    /**
+     * Largest number of bins of a histogram read from a summary file
+     */
+    static final int MAX_SERIALIZED_BINS = 1 << 20;
+
+    private final long[] counts;
+    private final boolean fixedRange;
+    private double lower = Double.NaN;
+    private double upper = Double.NaN;
+    private double binWidth = 0d;
+
+    private long n = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Construct a histogram with a range that expands automatically to include all values
+     *
+     * @param bins number of bins, needs to be even
+     */
+    public StreamingHistogram(int bins) {
+        Preconditions.checkArgument(bins >= 2 && bins % 2 == 0, "Number of bins needs to be even but is " + bins);
+        this.counts = new long[bins];
+        this.fixedRange = false;
+    }
+
+    /**
+     * Construct a histogram with a fixed range
+     *
+     * @param bins number of bins
+     * @param min  lower boundary of the first bin
+     * @param max  upper boundary of the last bin
+     */
+    public StreamingHistogram(int bins, double min, double max) {
+        Preconditions.checkArgument(bins >= 1, "Number of bins needs to be positive but is " + bins);
+        Preconditions.checkArgument(min <= max, "Minimum value needs to be smaller than the maximum");
+        this.counts = new long[bins];
+        this.fixedRange = true;
+        this.lower = min;
+        this.upper = max;
+        this.binWidth = (max - min) / bins;
+    }
+
+    private StreamingHistogram(StreamingHistogram other) {
+        this.counts = other.counts.clone();
+        this.fixedRange = other.fixedRange;
+        this.lower = other.lower;
+        this.upper = other.upper;
+        this.binWidth = other.binWidth;
+        this.n = other.n;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    /**
+     * @param value value to be counted
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (!fixedRange) {
+            expand(value);
+        }
+        counts[findBin(value)]++;
+        if (n == 0 || value < min) min = value;
+        if (n == 0 || value > max) max = value;
+        n++;
+    }
+
+    /**
+     * @param values array of values
+     * @param off    index of the first value to be counted
+     * @param len    number of values to be counted
+     */
+    public void addAll(double[] values, int off, int len) {
+        if (!fixedRange) {
+            for (int i = off; i < off + len; i++) {
+                add(values[i]);
+            }
+            return;
+        }
+        // The bins do not move, count the whole range in one primitive loop
+        double[] minMax = {n == 0 ? Double.POSITIVE_INFINITY : min, n == 0 ? Double.NEGATIVE_INFINITY : max};
+        long counted = Kernels.count(values, off, len, lower, binWidth, counts, minMax);
+        if (counted > 0) {
+            min = minMax[0];
+            max = minMax[1];
+            n += counted;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram with the same number of bins to this histogram, the other histogram is
+     * not modified. Counts are added bin by bin if both histograms cover the same range. Otherwise this histogram
+     * expands to the range of the other one (unless its range is fixed) and the count of each bin of the other
+     * histogram is added to the bin holding its center.
+     */
+    public void merge(StreamingHistogram other) {
+        Preconditions.checkArgument(other.counts.length == counts.length,
+                "Histograms with " + counts.length + " and " + other.counts.length + " bins cannot be merged");
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0 && !fixedRange) {
+            lower = other.lower;
+            upper = other.upper;
+            binWidth = other.binWidth;
+            System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        } else if (lower == other.lower && upper == other.upper) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        } else {
+            if (!fixedRange) {
+                expand(other.min);
+                expand(other.max);
+            }
+            for (int i = 0; i < counts.length; i++) {
+                if (other.counts[i] > 0) {
+                    counts[findBin((other.getLowerBound(i) + other.getUpperBound(i)) / 2)] += other.counts[i];
+                }
+            }
+        }
+        if (n == 0 || other.min < min) min = other.min;
+        if (n == 0 || other.max > max) max = other.max;
+        n += other.n;
+    }
+
+    /**
+     * @return an independent copy of this histogram
+     */
+    public StreamingHistogram copy() {
+        return new StreamingHistogram(this);
+    }
+
+    /**
+     * @return number of bins
+     */
+    public int getBinCount() {
+        return counts.length;
+    }
+
+    /**
+     * @return number of values in bin
+     */
+    public long getCount(int bin) {
+        return counts[bin];
+    }
+
+    /**
+     * @return lower boundary of bin
+     */
+    public double getLowerBound(int bin) {
+        return bin == 0 ? lower : getUpperBound(bin - 1);
+    }
+
+    /**
+     * @return upper boundary of bin
+     */
+    public double getUpperBound(int bin) {
+        return bin == counts.length - 1 ? upper : lower + binWidth * (bin + 1);
+    }
+
+    /**
+     * @return total number of counted values
+     */
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return smallest counted value or NaN if empty
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return largest counted value or NaN if empty
+     */
+    public double getMax() {
+        return max;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(counts.length);
+        out.writeBoolean(fixedRange);
+        out.writeDouble(lower);
+        out.writeDouble(upper);
+        out.writeDouble(binWidth);
+        out.writeLong(n);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    static StreamingHistogram readFrom(DataInput in) throws IOException {
+        int bins = in.readInt();
+        // Checked before the bins are allocated, a corrupt count must not allocate gigabytes
+        Preconditions.checkArgument(bins >= 1 && bins <= MAX_SERIALIZED_BINS,
+                "Histogram with " + bins + " bins is not in [1, " + MAX_SERIALIZED_BINS + "]");
+        StreamingHistogram histogram = in.readBoolean() ? new StreamingHistogram(bins, 0, 0) : new StreamingHistogram(bins);
+        histogram.lower = in.readDouble();
+        histogram.upper = in.readDouble();
+        histogram.binWidth = in.readDouble();
+        histogram.n = in.readLong();
+        histogram.min = in.readDouble();
+        histogram.max = in.readDouble();
+        for (int i = 0; i < bins; i++) {
+            histogram.counts[i] = in.readLong();
+        }
+        return histogram;
+    }
+
+    private int findBin(double value) {
+        // Clamped before the cast, far outliers and a range of width 0 would overflow the int
+        if (!(value > lower)) {
+            return 0;
+        }
+        if (value >= upper) {
+            return counts.length - 1;
+        }
+        int bin = (int) Math.ceil((value - lower) / binWidth) - 1;
+        return Math.min(Math.max(bin, 0), counts.length - 1);
+    }
+
+    /**
+     * Expand the range until value is included
+     */
+    private void expand(double value) {
+        int bins = counts.length;
+        if (n == 0) {
+            // Start with a range of width 0 which is expanded on the first distinct value
+            lower = value;
+            upper = value;
+            return;
+        }
+        if (binWidth == 0d) {
+            if (value > lower) {
+                upper = value;
+                binWidth = (upper - lower) / bins;
+            } else if (value < lower) {
+                // All values counted so far equal the upper boundary
+                counts[bins - 1] = counts[0];
+                counts[0] = 0;
+                upper = lower;
+                lower = value;
+                binWidth = (upper - lower) / bins;
+            }
+            return;
+        }
+        while (value > upper) {
+            // Merge pairs of bins into the lower half
+            for (int i = 0; i < bins / 2; i++) {
+                counts[i] = counts[2 * i] + counts[2 * i + 1];
+            }
+            Arrays.fill(counts, bins / 2, bins, 0L);
+            binWidth *= 2;
+            upper = lower + binWidth * bins;
+        }
+        while (value < lower) {
+            // Merge pairs of bins into the upper half
+            for (int i = bins / 2 - 1; i >= 0; i--) {
+                counts[bins / 2 + i] = counts[2 * i] + counts[2 * i + 1];
+            }
+            Arrays.fill(counts, 0, bins / 2, 0L);
+            lower = upper - 2 * binWidth * bins;
+            binWidth *= 2;
+        }
+    }
+}
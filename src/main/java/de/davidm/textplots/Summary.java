@@ -0,0 +1,228 @@
+package de.davidm.textplots;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A named summary of data which can be plotted without the raw values: a {@link StreamingHistogram}, a
+ * {@link QuantileSketch} or a {@link DensityGrid}. Summaries are written to a compact binary format and summaries
+ * of the same variables, e.g. collected on several hosts, can be merged before plotting.
+ *
+ * The format starts with the magic bytes "TXPS" and a version byte followed by any number of records. Each record
+ * holds the type, the names of the variables and the state of the summary. All numbers are big-endian.
+ */
+public class Summary {
+
+    public static final int MAGIC = 0x54585053;
+    public static final int VERSION = 1;
+
+    /**
+     * Type of a summary, the ordinal is written to the format - new types need to be appended
+     */
+    public enum Type {
+        HISTOGRAM, QUANTILE_SKETCH, DENSITY_GRID
+    }
+
+    private final Type type;
+    private final String[] names;
+    private final StreamingHistogram histogram;
+    private final QuantileSketch sketch;
+    private final DensityGrid grid;
+
+    private Summary(Type type, String[] names, StreamingHistogram histogram, QuantileSketch sketch, DensityGrid grid) {
+        this.type = type;
+        this.names = names;
+        this.histogram = histogram;
+        this.sketch = sketch;
+        this.grid = grid;
+    }
+
+    /**
+     * @param name      name of the variable
+     * @param histogram counts of the variable, later changes are reflected in the summary
+     */
+    public static Summary of(String name, StreamingHistogram histogram) {
+        return new Summary(Type.HISTOGRAM, new String[]{name}, histogram, null, null);
+    }
+
+    /**
+     * @param name   name of the variable
+     * @param sketch quantiles of the variable, later changes are reflected in the summary
+     */
+    public static Summary of(String name, QuantileSketch sketch) {
+        return new Summary(Type.QUANTILE_SKETCH, new String[]{name}, null, sketch, null);
+    }
+
+    /**
+     * @param nameX name of the x variable
+     * @param nameY name of the y variable
+     * @param grid  densities of the xy-values, later changes are reflected in the summary
+     */
+    public static Summary of(String nameX, String nameY, DensityGrid grid) {
+        return new Summary(Type.DENSITY_GRID, new String[]{nameX, nameY}, null, null, grid);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of the variable, for density grids the names of x and y
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    public StreamingHistogram getHistogram() {
+        Preconditions.checkState(type == Type.HISTOGRAM, "Summary is a " + type);
+        return histogram;
+    }
+
+    public QuantileSketch getSketch() {
+        Preconditions.checkState(type == Type.QUANTILE_SKETCH, "Summary is a " + type);
+        return sketch;
+    }
+
+    public DensityGrid getGrid() {
+        Preconditions.checkState(type == Type.DENSITY_GRID, "Summary is a " + type);
+        return grid;
+    }
+
+    /**
+     * Adds another summary of the same type and variables to this summary, the other summary is not modified
+     */
+    public void merge(Summary other) {
+        Preconditions.checkArgument(type == other.type && Arrays.equals(names, other.names),
+                "Cannot merge " + type + " " + Arrays.toString(names) + " with " + other.type + " " + Arrays.toString(other.names));
+        switch (type) {
+            case HISTOGRAM:
+                histogram.merge(other.histogram);
+                break;
+            case QUANTILE_SKETCH:
+                sketch.merge(other.sketch);
+                break;
+            case DENSITY_GRID:
+                grid.merge(other.grid);
+                break;
+        }
+    }
+
+    /**
+     * Merge summaries of the same type and variables, the input summaries are not modified
+     *
+     * @return one summary for each type and variable in the order of first occurrence
+     */
+    public static List<Summary> mergeAll(List<Summary> summaries) {
+        Map<String, Summary> merged = new LinkedHashMap<>();
+        for (Summary summary : summaries) {
+            String key = summary.type + Arrays.toString(summary.names);
+            Summary existing = merged.get(key);
+            if (existing == null) {
+                merged.put(key, summary.copy());
+            } else {
+                existing.merge(summary);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Write summaries in the binary format
+     *
+     * @param out target of the summaries, will not be closed
+     */
+    public static void writeAll(OutputStream out, List<Summary> summaries) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        for (Summary summary : summaries) {
+            data.writeByte(summary.type.ordinal());
+            for (String name : summary.names) {
+                data.writeUTF(name);
+            }
+            switch (summary.type) {
+                case HISTOGRAM:
+                    summary.histogram.writeTo(data);
+                    break;
+                case QUANTILE_SKETCH:
+                    summary.sketch.writeTo(data);
+                    break;
+                case DENSITY_GRID:
+                    summary.grid.writeTo(data);
+                    break;
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Read all summaries written by {@link #writeAll(OutputStream, List)}
+     *
+     * @param in source of the summaries, will not be closed
+     */
+    public static List<Summary> readAll(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Input is not a summary file");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported summary version " + version + ", expected " + VERSION);
+        }
+        List<Summary> summaries = new ArrayList<>();
+        while (true) {
+            int type = data.read();
+            if (type < 0) {
+                return summaries;
+            }
+            if (type >= Type.values().length) {
+                throw new IllegalArgumentException("Unknown summary type " + type);
+            }
+            int index = summaries.size() + 1;
+            try {
+                switch (Type.values()[type]) {
+                    case HISTOGRAM:
+                        summaries.add(of(data.readUTF(), StreamingHistogram.readFrom(data)));
+                        break;
+                    case QUANTILE_SKETCH:
+                        summaries.add(of(data.readUTF(), QuantileSketch.readFrom(data)));
+                        break;
+                    case DENSITY_GRID:
+                        summaries.add(of(data.readUTF(), data.readUTF(), DensityGrid.readFrom(data)));
+                        break;
+                }
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Summary file is truncated", e);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Summary " + index + " of the file is corrupt: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return an independent copy of this summary
+     */
+    private Summary copy() {
+        switch (type) {
+            case HISTOGRAM:
+                return of(names[0], histogram.copy());
+            case QUANTILE_SKETCH:
+                return of(names[0], sketch.copy());
+            default:
+                return of(names[0], names[1], grid.copy());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.davidm.textplots;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redraws a plot in place on an ANSI terminal. The first frame is printed as is, for every following frame the
+ * cursor is moved back to the first row of the previous frame and only rows which changed are cleared and
+ * rewritten, unchanged rows are skipped by moving the cursor down.
+ */
+public class TerminalRedraw {
+
+    private static final String ESCAPE = "\u001B[";
+    private static final String CLEAR_LINE = ESCAPE + "2K";
+
+    private final Appendable out;
+    private List<String> previous = new ArrayList<>();
+
+    /**
+     * @param out terminal output, e.g. a {@link Utf8Sink} on System.out - needs to be flushed by the caller
+     */
+    public TerminalRedraw(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Draw a frame over the previous one
+     *
+     * @param frame rows of the frame, each terminated by a line break
+     */
+    public void draw(CharSequence frame) throws IOException {
+        List<String> rows = rows(frame);
+        // Blank the rows of a larger previous frame
+        while (rows.size() < previous.size()) {
+            rows.add("");
+        }
+
+        if (!previous.isEmpty()) {
+            out.append('\r');
+            moveCursor(previous.size(), 'A');
+        }
+        int skipped = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            String row = rows.get(i);
+            if (i < previous.size() && row.equals(previous.get(i))) {
+                skipped++;
+                continue;
+            }
+            moveCursor(skipped, 'B');
+            skipped = 0;
+            out.append(CLEAR_LINE);
+            out.append(row);
+            out.append('\n');
+        }
+        // Leave the cursor below the frame
+        moveCursor(skipped, 'B');
+        previous = rows;
+    }
+
+    private void moveCursor(int lines, char direction) throws IOException {
+        if (lines > 0) {
+            out.append(ESCAPE);
+            Plot.appendCount(out, lines);
+            out.append(direction);
+        }
+    }
+
+    private static List<String> rows(CharSequence frame) {
+        List<String> rows = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < frame.length(); i++) {
+            if (frame.charAt(i) == '\n') {
+                rows.add(frame.subSequence(start, i).toString());
+                start = i + 1;
+            }
+        }
+        if (start < frame.length()) {
+            rows.add(frame.subSequence(start, frame.length()).toString());
+        }
+        return rows;
+    }
+}
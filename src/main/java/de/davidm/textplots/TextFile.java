@@ -0,0 +1,343 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads a text file in the format of {@link DataReader} in parallel. The file is memory-mapped and split into chunks
+ * which end at a line break. Each chunk is copied from its mapping and parsed on its own: delimiters are searched
+ * eight bytes at a time and numbers are converted from the bytes by {@link FastDoubleParser} without intermediate
+ * Strings. Only the selected columns are decoded, the fields of all other columns are skipped without being parsed
+ * or checked.
+ *
+ * Lines, headers and errors are handled like by DataReader: a first line with non-numeric fields names the columns,
+ * blank lines are skipped and every line needs to hold the same number of fields.
+ */
+public class TextFile {
+
+    /**
+     * Size of a chunk parsed by a single task, chunks are extended to the end of their last line
+     */
+    static final int CHUNK_BYTES = 1 << 23;
+
+    private static final int SCAN_BUFFER = 1 << 16;
+
+    // Delimiters repeated in the eight bytes of a long
+    private static final long COMMAS = 0x2C2C2C2C2C2C2C2CL;
+    private static final long TABS = 0x0909090909090909L;
+    private static final long LINE_BREAKS = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private TextFile() {}
+
+    /**
+     * @param file     path of the file
+     * @param columns  names of the columns to be read in the order of the result - the header names or V1, V2, ...
+     *                 if there is no header - null to read all columns
+     * @param executor executor parsing the chunks in parallel or null to parse them in the calling thread
+     * @return a list of pairs (column name, column data)
+     */
+    public static List<Pair<String, double[]>> read(String file, List<String> columns, Executor executor)
+            throws IOException {
+        return read(file, columns, executor, CHUNK_BYTES);
+    }
+
+    /**
+     * @param chunkBytes minimum size of a chunk
+     */
+    static List<Pair<String, double[]>> read(String file, List<String> columns, Executor executor, int chunkBytes)
+            throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // The first line which is not blank decides on the header and the number of fields
+            long start = 0;
+            long end;
+            byte[] line;
+            while (true) {
+                if (start >= size) {
+                    throw new IllegalArgumentException("Input does not contain any values");
+                }
+                end = indexOf(channel, start, (byte) '\n');
+                line = read(channel, start, end);
+                if (!isBlank(line, 0, line.length)) {
+                    break;
+                }
+                start = end + 1;
+            }
+            int fields = 0;
+            boolean numeric = true;
+            int fieldStart = 0;
+            for (int i = 0; i <= line.length; i++) {
+                if (i == line.length || line[i] == ',' || line[i] == '\t') {
+                    try {
+                        FastDoubleParser.parse(line, fieldStart, i);
+                    } catch (NumberFormatException e) {
+                        numeric = false;
+                    }
+                    fields++;
+                    fieldStart = i + 1;
+                }
+            }
+            String[] names = new String[fields];
+            if (numeric) {
+                for (int i = 0; i < fields; i++) {
+                    names[i] = "V" + (i + 1);
+                }
+            } else {
+                names = new String(line, StandardCharsets.UTF_8).split("[,\\t]", -1);
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = names[i].trim();
+                }
+                start = end + 1;
+            }
+
+            // Fields to be decoded and the field of each column of the result
+            List<String> selected = columns != null ? columns : Arrays.asList(names);
+            if (selected.isEmpty()) {
+                throw new IllegalArgumentException("At least one column needs to be selected");
+            }
+            int[] fieldsOfColumns = new int[selected.size()];
+            final boolean[] decoded = new boolean[fields];
+            for (int i = 0; i < fieldsOfColumns.length; i++) {
+                fieldsOfColumns[i] = Arrays.asList(names).indexOf(selected.get(i));
+                if (fieldsOfColumns[i] < 0) {
+                    throw new IllegalArgumentException("Column " + selected.get(i) + " not found in "
+                            + Arrays.toString(names));
+                }
+                decoded[fieldsOfColumns[i]] = true;
+            }
+
+            // Chunks end after a line break, so no line is split
+            List<Callable<DoubleList[]>> tasks = new ArrayList<>();
+            while (start < size) {
+                long chunkEnd = size - start <= chunkBytes ? size : indexOf(channel, start + chunkBytes, (byte) '\n') + 1;
+                chunkEnd = Math.min(chunkEnd, size);
+                if (chunkEnd - start > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Line after byte " + start + " is too long");
+                }
+                final long chunkStart = start;
+                final long chunkLimit = chunkEnd;
+                tasks.add(new Callable<DoubleList[]>() {
+                    @Override
+                    public DoubleList[] call() throws IOException {
+                        return parse(channel, chunkStart, chunkLimit, decoded);
+                    }
+                });
+                start = chunkEnd;
+            }
+            List<DoubleList[]> chunks = Plot.invokeAll(executor, tasks);
+
+            // Concatenate the chunks of each decoded field
+            double[][] values = new double[fields][];
+            long rows = 0;
+            for (DoubleList[] chunk : chunks) {
+                rows += chunk[fieldsOfColumns[0]].size();
+            }
+            if (rows == 0) {
+                throw new IllegalArgumentException("Input does not contain any values");
+            }
+            if (rows > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Input with " + rows + " rows does not fit into arrays");
+            }
+            for (int field = 0; field < fields; field++) {
+                if (decoded[field]) {
+                    values[field] = new double[(int) rows];
+                    int position = 0;
+                    for (DoubleList[] chunk : chunks) {
+                        chunk[field].copyTo(values[field], position);
+                        position += chunk[field].size();
+                    }
+                }
+            }
+            List<Pair<String, double[]>> output = new ArrayList<>();
+            for (int i = 0; i < fieldsOfColumns.length; i++) {
+                output.add(Pair.create(selected.get(i), values[fieldsOfColumns[i]]));
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Parse the lines of a chunk
+     *
+     * @param decoded fields of a line to be decoded
+     * @return values of each decoded field, null for skipped fields
+     */
+    private static DoubleList[] parse(FileChannel channel, long start, long end, boolean[] decoded) throws IOException {
+        byte[] bytes = read(channel, start, end);
+        int fields = decoded.length;
+        DoubleList[] values = new DoubleList[fields];
+        for (int field = 0; field < fields; field++) {
+            if (decoded[field]) {
+                values[field] = new DoubleList();
+            }
+        }
+        Delimiters delimiters = new Delimiters(bytes);
+        int limit = bytes.length;
+        int lineStart = 0;
+        while (lineStart < limit) {
+            boolean blank = false;
+            int field = 0;
+            int fieldStart = lineStart;
+            int i;
+            while (true) {
+                i = delimiters.next();
+                byte b = i < limit ? bytes[i] : (byte) '\n';
+                int fieldEnd = b == '\n' && i > fieldStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                if (field < fields && decoded[field]) {
+                    try {
+                        values[field].add(FastDoubleParser.parse(bytes, fieldStart, fieldEnd));
+                    } catch (NumberFormatException e) {
+                        // A blank line has a single empty field
+                        if (field == 0 && b == '\n' && isBlank(bytes, lineStart, i)) {
+                            blank = true;
+                            break;
+                        }
+                        throw new IllegalArgumentException("Could not parse value in line "
+                                + lineNumber(channel, start + lineStart), e);
+                    }
+                }
+                field++;
+                fieldStart = i + 1;
+                if (b == '\n') {
+                    break;
+                }
+            }
+            if (field != fields && !blank && !(field == 1 && isBlank(bytes, lineStart, i))) {
+                throw new IllegalArgumentException("Line " + lineNumber(channel, start + lineStart) + " contains "
+                        + field + " values but " + fields + " are expected");
+            }
+            lineStart = i + 1;
+        }
+        return values;
+    }
+
+    /**
+     * Positions of the commas, tabs and line breaks of a chunk in ascending order. Eight bytes are tested at once,
+     * each delimiter of a word is marked by the high bit of its byte in a mask.
+     */
+    private static final class Delimiters {
+        private final byte[] bytes;
+        private final ByteBuffer words;
+        private long mask = 0;
+        private int word = -8;
+
+        Delimiters(byte[] bytes) {
+            this.bytes = bytes;
+            this.words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @return index of the next delimiter, the length of the chunk after the last one
+         */
+        int next() {
+            while (mask == 0) {
+                word += 8;
+                if (word + 8 <= bytes.length) {
+                    long value = words.getLong(word);
+                    mask = matches(value, COMMAS) | matches(value, TABS) | matches(value, LINE_BREAKS);
+                } else {
+                    for (int i = word; i < bytes.length; i++) {
+                        if (bytes[i] == ',' || bytes[i] == '\t' || bytes[i] == '\n') {
+                            mask |= 0x80L << ((i - word) << 3);
+                        }
+                    }
+                    if (mask == 0) {
+                        word = bytes.length - 8;
+                        return bytes.length;
+                    }
+                }
+            }
+            int next = word + (Long.numberOfTrailingZeros(mask) >>> 3);
+            mask &= mask - 1;
+            return next;
+        }
+
+        /**
+         * @param pattern the searched byte repeated in all eight bytes
+         * @return the high bit of each byte of value which equals the searched byte
+         */
+        private static long matches(long value, long pattern) {
+            long zeros = value ^ pattern;
+            // Exact without false positives: the high bit is set iff all bits of the byte are zero
+            return ~(((zeros & LOW_BITS) + LOW_BITS) | zeros | LOW_BITS);
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the bytes from start (inclusive) to end (exclusive), copied from a read-only mapping
+     */
+    private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        mapping.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return index of the first occurrence of value at or after from, the size of the file if there is none
+     */
+    private static long indexOf(FileChannel channel, long from, byte value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        long position = from;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == value) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * @return number of the line starting at position, counted from 1 - only needed for error messages
+     */
+    private static long lineNumber(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        long lines = 1;
+        for (long offset = 0; offset < position; ) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), position - offset));
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            offset += read;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,146 @@
+package de.davidm.textplots;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An Appendable that encodes characters to UTF-8 into a reusable byte buffer and writes them
+ * to a stream (e.g. System.out) or a channel (e.g. a FileChannel) once the buffer is full.
+ *
+ * A sink can be reused for any number of plots and does not allocate after construction.
+ */
+public class Utf8Sink implements Appendable, Flushable, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private char highSurrogate = 0;
+
+    /**
+     * @param stream target stream, will not be closed by this sink
+     */
+    public Utf8Sink(OutputStream stream) {
+        this(stream, null, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel target channel, will not be closed by this sink
+     */
+    public Utf8Sink(WritableByteChannel channel) {
+        this(null, channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel    target channel, will not be closed by this sink
+     * @param bufferSize size of the byte buffer (at least 4)
+     */
+    public Utf8Sink(WritableByteChannel channel, int bufferSize) {
+        this(null, channel, bufferSize);
+    }
+
+    private Utf8Sink(OutputStream stream, WritableByteChannel channel, int bufferSize) {
+        if (bufferSize < 4) {
+            throw new IllegalArgumentException("Buffer size needs to be at least 4 but is " + bufferSize);
+        }
+        this.stream = stream;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    public Utf8Sink append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Utf8Sink append(CharSequence csq, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Utf8Sink append(char c) throws IOException {
+        if (buffer.remaining() < 4) {
+            drain();
+        }
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return this;
+            }
+            // Unpaired surrogate
+            buffer.put((byte) '?');
+            return append(c);
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            // Unpaired surrogate
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return this;
+    }
+
+    /**
+     * Writes all buffered bytes to the target and flushes it. A high surrogate at the end of the appended characters
+     * is kept until the next character, which may be its low surrogate.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * Flushes the sink, the underlying stream or channel is left open. A high surrogate at the end of the appended
+     * characters is unpaired and written as '?'.
+     */
+    @Override
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) '?');
+        }
+        flush();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        if (stream != null) {
+            stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+}
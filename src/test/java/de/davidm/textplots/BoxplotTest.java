@@ -1,8 +1,19 @@
 package de.davidm.textplots;
 
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.apache.commons.math3.util.Pair;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class BoxplotTest {
     @Test
@@ -19,4 +30,189 @@ public class BoxplotTest {
         String boxplotExpected = "|-----[###############|##]-------------------|    ";
         assertEquals(boxplotExpected, boxplot);
     }
+
+    @Test
+    public void testApproximateBoxplots(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        data.add(Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH));
+        Boxplot exact = new Boxplot.BoxplotBuilder(data).plotObject();
+        Boxplot approximate = new Boxplot.BoxplotBuilder(data).setApproximation(QuantileSketch.DEFAULT_K).plotObject();
+        // Small inputs fit into the sketch without compaction
+        assertEquals(exact.boxplots().get(1).getSecond(), approximate.boxplots().get(1).getSecond());
+        assertTrue(approximate.plot(true).contains("rank error"));
+    }
+
+    @Test
+    public void testBoxplotsFromSketches(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        data.add(Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH));
+        List<Pair<String, QuantileSketch>> sketches = new ArrayList<>();
+        for (Pair<String, double[]> variable : data) {
+            QuantileSketch sketch = new QuantileSketch();
+            sketch.addAll(variable.getSecond(), 0, variable.getSecond().length);
+            sketches.add(Pair.create(variable.getFirst(), sketch));
+        }
+        Boxplot approximate = new Boxplot.BoxplotBuilder(data).setApproximation(QuantileSketch.DEFAULT_K).plotObject();
+        Boxplot fromSketches = Boxplot.BoxplotBuilder.fromSketches(sketches).plotObject();
+        assertEquals(approximate.plot(true), fromSketches.plot(true));
+    }
+
+    @Test
+    public void testStatisticsAreComputedOnFirstRender(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        // The minimum follows from the data and is only checked when the plot is rendered
+        Boxplot boxplot = new Boxplot.BoxplotBuilder(data).setPlotLimits(null, 0d).plotObject();
+        try {
+            boxplot.plot(true);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Minimum"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInvalidLimitsAreCheckedAtOnce(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        new Boxplot.BoxplotBuilder(data).setPlotLimits(10d, 0d).plotObject();
+    }
+
+    @Test
+    public void testParallelBoxplots(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            double[] values = new double[1000];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = i + random.nextGaussian();
+            }
+            data.add(Pair.create("series" + i, values));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            String sequential = new Boxplot.BoxplotBuilder(data).plotObject().plot(true);
+            String parallel = new Boxplot.BoxplotBuilder(data).setExecutor(executor).plotObject().plot(true);
+            assertEquals(sequential, parallel);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPercentileOfSorted(){
+        Random random = new Random(3);
+        for (int n = 1; n < 40; n++) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextGaussian();
+            }
+            Arrays.sort(values);
+            for (double p : new double[]{1, 25, 50, 75, 99, 100}) {
+                assertEquals(new Percentile().evaluate(values, p), Boxplot.percentileOfSorted(values, p), 1e-12);
+            }
+        }
+        assertTrue(Double.isNaN(Boxplot.percentileOfSorted(new double[0], 50)));
+    }
+
+    @Test
+    public void testSortedAndReversedBoxplotsAreEqual(){
+        double[] sorted = new double[1001];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = Math.sqrt(i);
+        }
+        double[] reversed = sorted.clone();
+        for (int i = 0; i < reversed.length / 2; i++) {
+            double swap = reversed[i];
+            reversed[i] = reversed[reversed.length - 1 - i];
+            reversed[reversed.length - 1 - i] = swap;
+        }
+        List<Pair<String, double[]>> sortedData = new ArrayList<>();
+        sortedData.add(Pair.create("x", sorted));
+        List<Pair<String, double[]>> reversedData = new ArrayList<>();
+        reversedData.add(Pair.create("x", reversed));
+        assertEquals(new Boxplot.BoxplotBuilder(reversedData).plotObject().plot(true),
+                new Boxplot.BoxplotBuilder(sortedData).plotObject().plot(true));
+    }
+
+    @Test
+    public void testRefilledArrayIsPlottedWithItsCurrentValues(){
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("x", values));
+        new Boxplot.BoxplotBuilder(data).plotObject().plot(true);
+
+        Random random = new Random(3);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 500 + random.nextGaussian() * 10;
+        }
+        List<Pair<String, double[]>> copy = new ArrayList<>();
+        copy.add(Pair.create("x", values.clone()));
+        assertEquals(new Boxplot.BoxplotBuilder(copy).plotObject().plot(true),
+                new Boxplot.BoxplotBuilder(data).plotObject().plot(true));
+    }
+
+    @Test
+    public void testSample(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("small", new double[]{1, 2, 3}));
+        data.add(Pair.create("sepal", IrisData.IRIS_SEPAL_LENGTH));
+        String plot = new Boxplot.BoxplotBuilder(data).setSample(20).plotObject().plot(true);
+        // The note shows the sample with the largest error
+        assertTrue(plot, plot.contains("|sample of 20 of 150 rows"));
+    }
+
+    @Test
+    public void testMemoryBudget(){
+        Random random = new Random(3);
+        double[] values = new double[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("x", values));
+        data.add(Pair.create("sepal", IrisData.IRIS_SEPAL_LENGTH));
+        String exact = new Boxplot.BoxplotBuilder(data).plotObject().plot(true);
+        // The large variable is merged from spilled runs, the small one is within the budget
+        assertEquals(exact, new Boxplot.BoxplotBuilder(data).setMemoryBudget(4096L).plotObject().plot(true));
+        List<DataSeries> series = Arrays.asList(DataSeries.of("x", values),
+                DataSeries.of("sepal", IrisData.IRIS_SEPAL_LENGTH));
+        assertEquals(exact, Boxplot.BoxplotBuilder.fromSeries(series).setMemoryBudget(4096L).plotObject().plot(true));
+    }
+
+    @Test
+    public void testGivenProfilesAreUsed(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        data.add(Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH));
+        List<DataProfile> profiles = new ArrayList<>();
+        for (Pair<String, double[]> variable : data) {
+            profiles.add(DataProfile.of(variable.getSecond()));
+        }
+        assertEquals(new Boxplot.BoxplotBuilder(data).plotObject().plot(true),
+                new Boxplot.BoxplotBuilder(data).setProfiles(profiles).plotObject().plot(true));
+
+        // The whiskers end at the minimum and maximum of the profile, a null entry is computed from the values
+        double[] spread = new double[IrisData.IRIS_SEPAL_LENGTH.length];
+        spread[spread.length - 1] = 10;
+        String plot = new Boxplot.BoxplotBuilder(data)
+                .setProfiles(Arrays.asList(DataProfile.of(spread), null))
+                .plotObject()
+                .plot(true);
+        assertTrue(plot, plot.contains("|0.00") && plot.contains("10.00|"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProfilesOfOtherVariablesAreRejected(){
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH));
+        new Boxplot.BoxplotBuilder(data)
+                .setProfiles(Arrays.asList(DataProfile.of(IrisData.IRIS_SEPAL_LENGTH), DataProfile.of(IrisData.IRIS_SEPAL_WIDTH)))
+                .plotObject();
+    }
 }
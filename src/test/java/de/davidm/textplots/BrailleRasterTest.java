@@ -0,0 +1,46 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BrailleRasterTest {
+
+    @Test
+    public void testDotsOfCorners() {
+        BrailleRaster raster = new BrailleRaster(2, 1, 0, 4, 0, 4);
+        // Lower left dot of the first cell and upper right dot of the second cell
+        raster.addAll(new double[]{0, 4}, new double[]{0, 4});
+        assertEquals(0x40, raster.getDots(0, 0));
+        assertEquals(0x08, raster.getDots(0, 1));
+        assertEquals("⡀⠈", new String(raster.glyphs(new char[2])));
+    }
+
+    @Test
+    public void testAllDotsOfACell() {
+        BrailleRaster raster = new BrailleRaster(1, 1, 0, 2, 0, 4);
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 4; y++) {
+                raster.addAll(new double[]{x + 0.5}, new double[]{y + 0.5});
+            }
+        }
+        assertEquals(0xFF, raster.getDots(0, 0));
+        assertEquals('⣿', raster.glyphs(new char[1])[0]);
+    }
+
+    @Test
+    public void testPackedCellsAndMerge() {
+        // 9 cells span two longs
+        BrailleRaster first = new BrailleRaster(9, 1, 0, 18, 0, 4);
+        BrailleRaster second = new BrailleRaster(9, 1, 0, 18, 0, 4);
+        first.addAll(new double[]{0.5, 100, Double.NaN}, new double[]{3.5, 1, 1});
+        second.addAll(new double[]{17.5}, new double[]{0.5});
+        first.merge(second);
+        assertEquals("⠁       ⢀", new String(first.glyphs(new char[9])));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentLimits() {
+        new BrailleRaster(2, 2, 0, 1, 0, 1).merge(new BrailleRaster(2, 2, 0, 2, 0, 1));
+    }
+}
@@ -0,0 +1,215 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.kohsuke.args4j.CmdLineException;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CLITest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParse() {
+        List<Pair<String, double[]>> data = new CLI().parse("{a|1,2,3}{b|4,5}");
+        assertEquals(2, data.size());
+        assertEquals("a", data.get(0).getFirst());
+        assertArrayEquals(new double[]{1, 2, 3}, data.get(0).getSecond(), 0d);
+        assertArrayEquals(new double[]{4, 5}, data.get(1).getSecond(), 0d);
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        List<Pair<String, double[]>> data = new CLI().read(new StringReader("x,y\n1,2\n3,4\n5,6\n"));
+        assertEquals(2, data.size());
+        assertEquals("x", data.get(0).getFirst());
+        assertEquals("y", data.get(1).getFirst());
+        assertArrayEquals(new double[]{1, 3, 5}, data.get(0).getSecond(), 0d);
+        assertArrayEquals(new double[]{2, 4, 6}, data.get(1).getSecond(), 0d);
+
+        data = new CLI().read(new StringReader("1\n2\n"));
+        assertEquals("V1", data.get(0).getFirst());
+        assertArrayEquals(new double[]{1, 2}, data.get(0).getSecond(), 0d);
+    }
+
+    @Test
+    public void testParseDuration() {
+        assertEquals(500, CLI.parseDuration("500"));
+        assertEquals(500, CLI.parseDuration("500ms"));
+        assertEquals(2000, CLI.parseDuration("2s"));
+        assertEquals(60000, CLI.parseDuration("1m"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidDuration() {
+        CLI.parseDuration("fast");
+    }
+
+    @Test
+    public void testParseSize() {
+        assertEquals(4096, CLI.parseSize("4096"));
+        assertEquals(512 * 1024, CLI.parseSize("512k"));
+        assertEquals(256L * 1024 * 1024, CLI.parseSize("256M"));
+        assertEquals(2L * 1024 * 1024 * 1024, CLI.parseSize("2g"));
+    }
+
+    @Test
+    public void testLineplot() throws CmdLineException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(bytes, true, "UTF-8")).run(new String[]{"-type", "lineplot",
+                "-data", "{t|0,1,2,3}{v|1,4,2,3}", "-width", "20", "-height", "10", "-decimation", "lttb"});
+        String output = bytes.toString("UTF-8");
+        assertTrue(output, output.startsWith("v|4.00|"));
+        assertTrue(output, output.contains("|0.00            3.00|"));
+    }
+
+    @Test
+    public void testHeatmap() throws CmdLineException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(bytes, true, "UTF-8")).run(new String[]{"-type", "heatmap",
+                "-data", "{x|0,1,2,3}{y|1,4,2,3}{w|5,6,7,8}", "-width", "20", "-height", "10", "-aggregate", "max"});
+        String output = bytes.toString("UTF-8");
+        assertTrue(output, output.startsWith("y|4.00|"));
+        assertTrue(output, output.contains("|max of w: ░ >=5.00 ▒ >=5.75 ▓ >=6.50 █ >=7.25"));
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        File input = folder.newFolder("input");
+        File output = new File(folder.getRoot(), "output");
+        for (int i = 0; i < 5; i++) {
+            try (FileOutputStream stream = new FileOutputStream(new File(input, "series" + i + ".csv"))) {
+                stream.write(("value\n" + i + "\n" + (i + 1) + "\n" + (i + 5) + "\n").getBytes("UTF-8"));
+            }
+        }
+        try (FileOutputStream stream = new FileOutputStream(new File(input, "broken.csv"))) {
+            stream.write("value\nnot a number\n".getBytes("UTF-8"));
+        }
+
+        // A budget of a single file at a time must not deadlock
+        String summary = new CLI().batch(input, output, 2, 1);
+        assertTrue(summary, summary.startsWith("Plotted 5 of 6 files"));
+        // Failures are listed with the message of their cause
+        assertTrue(summary, summary.endsWith(System.lineSeparator() + "Could not plot "
+                + new File(input, "broken.csv") + ": Could not parse value in line 2"));
+        assertEquals(5, output.list().length);
+        String expected = new CLI().plotData(new CLI().read(new StringReader("value\n3\n4\n8\n"))).plot(true);
+        byte[] plot = Files.readAllBytes(new File(output, "series3.csv.txt").toPath());
+        assertEquals(expected + System.lineSeparator(), new String(plot, "UTF-8"));
+    }
+
+    @Test
+    public void testBatchClosesOutputFiles() throws IOException {
+        File descriptors = new File("/proc/self/fd");
+        Assume.assumeTrue(descriptors.isDirectory());
+        File input = folder.newFolder("input");
+        File output = new File(folder.getRoot(), "output");
+        for (int i = 0; i < 50; i++) {
+            try (FileOutputStream stream = new FileOutputStream(new File(input, "series" + i + ".csv"))) {
+                stream.write(("value\n" + i + "\n" + (i + 1) + "\n").getBytes("UTF-8"));
+            }
+        }
+        int before = descriptors.list().length;
+        new CLI().batch(input, output, 2, 1 << 20);
+        // A leaked stream per file would add 50 descriptors
+        assertTrue(descriptors.list().length < before + 10);
+    }
+
+    @Test
+    public void testFollow() throws IOException {
+        File file = folder.newFile("latency.csv");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write("latency\n1\n2\n3\n4\n".getBytes("UTF-8"));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CLI().follow(file.getPath(), new Utf8Sink(bytes), 0, 2);
+        String output = bytes.toString("UTF-8");
+        assertTrue(output.contains("latency|"));
+        assertTrue(output.contains("rank error"));
+    }
+
+    @Test
+    public void testSummarizeAndMerge() throws IOException, CmdLineException {
+        File first = folder.newFile("first.summary");
+        File second = folder.newFile("second.summary");
+        new CLI().run(new String[]{"-data", "{a|1,2,3}{b|4,5,6}", "-summarize", first.getPath()});
+        new CLI().run(new String[]{"-data", "{a|7,8,9}{b|1,2,3}", "-summarize", second.getPath()});
+
+        List<Summary> summaries = new ArrayList<>();
+        for (File file : new File[]{first, second}) {
+            try (FileInputStream stream = new FileInputStream(file)) {
+                summaries.addAll(Summary.readAll(stream));
+            }
+        }
+        List<Summary> merged = Summary.mergeAll(summaries);
+        assertEquals(2, merged.size());
+        assertEquals(6, merged.get(0).getSketch().getN());
+        assertEquals(9, merged.get(0).getSketch().getMax(), 0d);
+
+        String plot = new CLI().plot(merged).plot(true);
+        assertTrue(plot.startsWith("a|"));
+        assertTrue(plot.contains("1.00") || plot.contains("1,00"));
+    }
+
+    @Test
+    public void testSample() throws CmdLineException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(bytes, true, "UTF-8")).run(new String[]{"-type", "histogram",
+                "-data", "{x|1,2,3,4,5,6,7,8,9,10,11,12}", "-sample", "5", "-seed", "3"});
+        String output = bytes.toString("UTF-8");
+        assertTrue(output, output.contains("|sample of 5 of 12 rows, ±"));
+    }
+
+    @Test
+    public void testMemoryBudget() throws CmdLineException, IOException {
+        StringBuilder data = new StringBuilder("{x|");
+        for (int i = 0; i < 500; i++) {
+            data.append(i > 0 ? "," : "").append((i * 37) % 101);
+        }
+        data.append("}");
+        ByteArrayOutputStream exact = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(exact, true, "UTF-8")).run(new String[]{"-data", data.toString()});
+        ByteArrayOutputStream spilled = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(spilled, true, "UTF-8")).run(new String[]{"-data", data.toString(),
+                "-memoryBudget", "1k"});
+        assertEquals(exact.toString("UTF-8"), spilled.toString("UTF-8"));
+    }
+
+    @Test
+    public void testColumns() throws CmdLineException, IOException {
+        File file = folder.newFile("data.csv");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write("id,value\nfoo,3\nbar,4\nbaz,8\n".getBytes("UTF-8"));
+        }
+        String expected = new CLI().plotData(new CLI().read(new StringReader("value\n3\n4\n8\n"))).plot(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new CLI(System.in, new PrintStream(bytes, true, "UTF-8")).run(new String[]{"-input", file.getPath(),
+                "-columns", "value", "-threads", "2"});
+        assertEquals(expected + System.lineSeparator(), bytes.toString("UTF-8"));
+
+        // Columns are selected from stdin as well
+        bytes.reset();
+        new CLI(new ByteArrayInputStream("id,value\n1,3\n2,4\n3,8\n".getBytes("UTF-8")),
+                new PrintStream(bytes, true, "UTF-8")).run(new String[]{"-input", "-", "-columns", "value"});
+        assertEquals(expected + System.lineSeparator(), bytes.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,127 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        File file = folder.newFile("iris.columns");
+        List<Pair<String, double[]>> data = iris();
+        ColumnFile.write(file.getPath(), data, Column.Type.FLOAT64);
+        assertTrue(ColumnFile.isColumnFile(file.getPath()));
+
+        try (ColumnFile columns = ColumnFile.open(file.getPath())) {
+            assertEquals(2, columns.getColumns().size());
+            Column length = columns.getColumn("IRIS_SEPAL_LENGTH");
+            assertEquals(Column.Type.FLOAT64, length.getType());
+            assertArrayEquals(IrisData.IRIS_SEPAL_LENGTH, length.toArray(), 0d);
+            assertArrayEquals(IrisData.IRIS_SEPAL_WIDTH, columns.getColumns().get(1).toArray(), 0d);
+            assertEquals(IrisData.IRIS_SEPAL_LENGTH[7], length.get(7), 0d);
+            assertArrayEquals(new double[]{4.3, 7.9}, length.minMax(), 0d);
+        }
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        File file = folder.newFile("iris.columns");
+        ColumnFile.write(file.getPath(), iris(), Column.Type.FLOAT32);
+        // Map at most 8 values at once
+        try (ColumnFile columns = ColumnFile.open(file.getPath(), 32)) {
+            Column length = columns.getColumn("IRIS_SEPAL_LENGTH");
+            double[] values = length.toArray();
+            for (int i = 0; i < values.length; i++) {
+                assertEquals((float) IrisData.IRIS_SEPAL_LENGTH[i], values[i], 0d);
+                assertEquals(values[i], length.get(i), 0d);
+            }
+            assertEquals(8, length.read(5, new double[20], 0, 20) + 5);
+        }
+    }
+
+    @Test
+    public void testFloat32AndInt64() throws IOException {
+        File file = folder.newFile("values.columns");
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("a", new double[]{1.5, -2.25, 3}));
+        ColumnFile.write(file.getPath(), data, Column.Type.FLOAT32);
+        try (ColumnFile columns = ColumnFile.open(file.getPath())) {
+            assertArrayEquals(new double[]{1.5, -2.25, 3}, columns.getColumn("a").toArray(), 0d);
+        }
+        ColumnFile.write(file.getPath(), data, Column.Type.INT64);
+        try (ColumnFile columns = ColumnFile.open(file.getPath())) {
+            assertArrayEquals(new double[]{2, -2, 3}, columns.getColumn("a").toArray(), 0d);
+        }
+    }
+
+    @Test
+    public void testRawFile() throws IOException {
+        File file = folder.newFile("latency.f32");
+        ByteBuffer bytes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putFloat(1).putFloat(2).putFloat(4);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes.array());
+        }
+        assertFalse(ColumnFile.isColumnFile(file.getPath()));
+        try (ColumnFile columns = ColumnFile.raw(file.getPath(), Column.Type.FLOAT32)) {
+            Column column = columns.getColumns().get(0);
+            assertEquals("latency.f32", column.getName());
+            double[] chunk = new double[2];
+            assertEquals(2, column.read(1, chunk, 0, 2));
+            assertArrayEquals(new double[]{2, 4}, chunk, 0d);
+            assertEquals(0, column.read(3, chunk, 0, 2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRawFileWithPartialValue() throws IOException {
+        File file = folder.newFile("broken.f64");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[12]);
+        }
+        ColumnFile.raw(file.getPath(), Column.Type.FLOAT64);
+    }
+
+    @Test
+    public void testBuildersMatchArrays() throws IOException {
+        File file = folder.newFile("iris.columns");
+        List<Pair<String, double[]>> data = iris();
+        ColumnFile.write(file.getPath(), data, Column.Type.FLOAT64);
+        try (ColumnFile columns = ColumnFile.open(file.getPath())) {
+            List<Column> list = columns.getColumns();
+            assertEquals(new Boxplot.BoxplotBuilder(data).plotObject().plot(true),
+                    Boxplot.BoxplotBuilder.fromColumns(list).plotObject().plot(true));
+            assertEquals(new Boxplot.BoxplotBuilder(data).setApproximation(50).plotObject().plot(true),
+                    Boxplot.BoxplotBuilder.fromColumns(list).setApproximation(50).plotObject().plot(true));
+            assertEquals(new Histogram.HistogramBuilder(data.get(0)).plotObject().plot(true),
+                    new Histogram.HistogramBuilder(list.get(0)).plotObject().plot(true));
+            assertEquals(new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1)).plotObject().plot(true),
+                    new Scatterplot.ScatterplotBuilder(list.get(0), list.get(1)).plotObject().plot(true));
+        }
+    }
+
+    private static List<Pair<String, double[]>> iris() {
+        return new ArrayList<>(Arrays.asList(
+                Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH),
+                Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH)));
+    }
+}
@@ -0,0 +1,152 @@
+package de.davidm.textplots;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.args4j.CmdLineParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DaemonTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File portFile;
+    private Daemon daemon;
+    private Thread serving;
+
+    @Before
+    public void start() throws Exception {
+        portFile = new File(folder.getRoot(), "daemon");
+        daemon = new Daemon();
+        new CmdLineParser(daemon).parseArgument("-portFile", portFile.getPath(), "-threads", "2", "-timeout", "500ms");
+        daemon.start();
+        serving = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        serving.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        daemon.stop();
+        serving.join();
+    }
+
+    @Test
+    public void testRenderMatchesCLI() throws Exception {
+        String[] args = {"-type", "histogram", "-input", "-"};
+        byte[] data = "latency\n1\n2\n3\n5\n8\n".getBytes("UTF-8");
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new CLI(new ByteArrayInputStream(data), new PrintStream(expected, true, "UTF-8")).run(args);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = DaemonClient.run(args, portFile, new ByteArrayInputStream(data), output, System.err);
+        assertEquals(0, status);
+        assertArrayEquals(expected.toByteArray(), output.toByteArray());
+    }
+
+    @Test
+    public void testFailureAndStatus() throws Exception {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int status = DaemonClient.run(new String[]{"-type", "pie", "-data", "{a|1,2}"}, portFile,
+                new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), new PrintStream(errors, true, "UTF-8"));
+        assertEquals(1, status);
+        assertTrue(errors.toString("UTF-8").contains("plot type"));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        status = DaemonClient.run(new String[]{"-status"}, portFile, new ByteArrayInputStream(new byte[0]), output, System.err);
+        assertEquals(0, status);
+        String text = output.toString("UTF-8");
+        assertTrue(text, text.contains("1 requests, 1 failed"));
+        assertTrue(text, text.contains("p99"));
+    }
+
+    @Test
+    public void testFollowAndBatchAreRejected() throws Exception {
+        for (String[] args : new String[][]{{"-follow", "data.csv"}, {"-batch", "in", "-out", "out"}}) {
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int status = DaemonClient.run(args, portFile, new ByteArrayInputStream(new byte[0]),
+                    new ByteArrayOutputStream(), new PrintStream(errors, true, "UTF-8"));
+            assertEquals(1, status);
+            assertTrue(errors.toString("UTF-8"), errors.toString("UTF-8").contains(args[0] + " is not supported"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleConnectionIsClosed() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            // Nothing is sent, the daemon closes the connection after its timeout
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testInvalidNumberOfArgumentsIsRejected() throws Exception {
+        String token = Files.readAllLines(portFile.toPath(), StandardCharsets.UTF_8).get(1);
+        for (int count : new int[]{-1, Integer.MAX_VALUE}) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(Daemon.MAGIC);
+                out.writeByte(Daemon.RENDER);
+                out.writeUTF(token);
+                out.writeInt(count);
+                out.flush();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                assertEquals(Daemon.REJECTED, in.readInt());
+                in.readFully(new byte[in.readInt()]);
+                assertTrue(in.readUTF().contains("Number of arguments"));
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DaemonClient.run(new String[]{"-status"}, portFile, new ByteArrayInputStream(new byte[0]), output, System.err);
+        assertTrue(output.toString("UTF-8"), output.toString("UTF-8").contains("2 requests, 2 failed"));
+    }
+
+    @Test
+    public void testStopDeletesPortFile() throws Exception {
+        assertTrue(portFile.exists());
+        int status = DaemonClient.run(new String[]{"-stop"}, portFile, new ByteArrayInputStream(new byte[0]),
+                new ByteArrayOutputStream(), System.err);
+        assertEquals(0, status);
+        serving.join();
+        assertFalse(portFile.exists());
+    }
+
+    @Test
+    public void testResolvePaths() {
+        String[] resolved = DaemonClient.resolvePaths(new String[]{"-min", "-5", "-input", "data.csv", "-merge", "a", "b", "-width", "30"});
+        assertEquals("-5", resolved[1]);
+        assertEquals(new File("data.csv").getAbsolutePath(), resolved[3]);
+        assertEquals(new File("a").getAbsolutePath(), resolved[5]);
+        assertEquals(new File("b").getAbsolutePath(), resolved[6]);
+        assertEquals("30", resolved[8]);
+        assertEquals("-", DaemonClient.resolvePaths(new String[]{"-input", "-"})[1]);
+    }
+}
@@ -0,0 +1,88 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DataProfileTest {
+
+    @Test
+    public void testProfile(){
+        DataProfile profile = DataProfile.of(new double[]{3, Double.NaN, -1, Double.POSITIVE_INFINITY, 2});
+        assertEquals(5, profile.getN());
+        assertEquals(1, profile.getNaNCount());
+        assertEquals(1, profile.getInfiniteCount());
+        assertEquals(3, profile.getFiniteCount());
+        assertEquals(-1, profile.getMin(), 0);
+        assertEquals(Double.POSITIVE_INFINITY, profile.getMax(), 0);
+        assertEquals(4, profile.getSum(), 0);
+        assertFalse(profile.isSorted());
+    }
+
+    @Test
+    public void testSorted(){
+        assertTrue(DataProfile.of(new double[]{-2, -2, 0, 1.5, Double.POSITIVE_INFINITY}).isSorted());
+        assertTrue(DataProfile.of(new double[0]).isSorted());
+        assertFalse(DataProfile.of(new double[]{0, 1, Double.NaN}).isSorted());
+        assertFalse(DataProfile.of(new double[]{Double.NaN, 0, 1}).isSorted());
+    }
+
+    @Test
+    public void testEmpty(){
+        DataProfile profile = DataProfile.of(new double[]{Double.NaN});
+        assertTrue(Double.isNaN(profile.getMin()));
+        assertTrue(Double.isNaN(profile.getMax()));
+        assertEquals(0, DataProfile.of(new double[0]).getN());
+    }
+
+    @Test
+    public void testSeriesIsProfiledInChunks(){
+        double[] values = new double[2 * DataSeries.CHUNK_SIZE + 7];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertTrue(DataProfile.of(DataSeries.of("x", DoubleBuffer.wrap(values))).isSorted());
+
+        // The only value out of order is the first one of the second chunk
+        values[DataSeries.CHUNK_SIZE] = 0;
+        DataProfile array = DataProfile.of(values);
+        DataProfile series = DataProfile.of(DataSeries.of("x", DoubleBuffer.wrap(values)));
+        assertEquals(array.getN(), series.getN());
+        assertEquals(array.getSum(), series.getSum(), 0);
+        assertEquals(values.length - 1, series.getMax(), 0);
+        assertFalse(series.isSorted());
+    }
+
+    @Test
+    public void testMinMaxAcrossBlocks(){
+        Random random = new Random(11);
+        double[] values = new double[5003];
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 97 == 0 ? Double.NaN : random.nextGaussian();
+            if (values[i] < min) min = values[i];
+            if (values[i] > max) max = values[i];
+        }
+        DataProfile profile = DataProfile.of(values);
+        assertEquals(min, profile.getMin(), 0);
+        assertEquals(max, profile.getMax(), 0);
+        assertEquals(52, profile.getNaNCount());
+    }
+
+    @Test
+    public void testChangedValuesAreProfiledAgain(){
+        double[] values = {1, 2, 3};
+        assertEquals(1, DataProfile.of(values).getMin(), 0);
+        assertTrue(DataProfile.of(values).isSorted());
+
+        values[0] = 5;
+        assertEquals(2, DataProfile.of(values).getMin(), 0);
+        assertEquals(5, DataProfile.of(values).getMax(), 0);
+        assertFalse(DataProfile.of(values).isSorted());
+    }
+}
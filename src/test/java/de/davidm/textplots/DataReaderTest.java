@@ -0,0 +1,68 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DataReaderTest {
+
+    @Test
+    public void testHeaderAndRows() throws IOException {
+        // Tiny buffer to force lines across buffer boundaries
+        DataReader reader = new DataReader(new StringReader("size, latency\r\n1,2.5\n\n 3 ,  -4e2\n5,6"), 4);
+        assertTrue(reader.next());
+        assertArrayEquals(new String[]{"size", "latency"}, reader.getHeader());
+        assertEquals(2, reader.columns());
+        assertEquals(1d, reader.get(0), 0d);
+        assertEquals(2.5d, reader.get(1), 0d);
+        assertTrue(reader.next());
+        assertEquals(3d, reader.get(0), 0d);
+        assertEquals(-400d, reader.get(1), 0d);
+        assertTrue(reader.next());
+        assertEquals(6d, reader.get(1), 0d);
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testWithoutHeader() throws IOException {
+        DataReader reader = new DataReader(new StringReader("1\n2\n"));
+        assertTrue(reader.next());
+        assertNull(reader.getHeader());
+        assertEquals(1, reader.columns());
+        assertTrue(reader.next());
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRaggedRows() throws IOException {
+        DataReader reader = new DataReader(new StringReader("1,2\n3\n"));
+        while (reader.next());
+    }
+
+    @Test
+    public void testParseDouble() {
+        String[] values = {"0", "-0", "1", "+1", "0.1", "1e-5", "1E+22", "123456789012345", "1234567890123456789",
+                "0.000000000000000000000000001", "4.9e-324", "1.7976931348623157e308", "NaN", "-Infinity", ".5", "5."};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), DataReader.parseDouble(value.toCharArray(), 0, value.length()), 0d);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            String value = Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+            assertEquals(value, Double.parseDouble(value), DataReader.parseDouble(value.toCharArray(), 0, value.length()), 0d);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseInvalid() {
+        DataReader.parseDouble("1.2.3".toCharArray(), 0, 5);
+    }
+}
@@ -0,0 +1,84 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DataSeriesTest {
+
+    @Test
+    public void testPrimitiveArrays() {
+        double[] expected = {3, -1, 4, 1, 5};
+        List<DataSeries> series = Arrays.asList(
+                DataSeries.of("a", expected.clone()),
+                DataSeries.of("a", new float[]{3, -1, 4, 1, 5}),
+                DataSeries.of("a", new int[]{3, -1, 4, 1, 5}),
+                DataSeries.of("a", new long[]{3, -1, 4, 1, 5}),
+                DataSeries.of("a", DoubleBuffer.wrap(expected.clone())));
+        for (DataSeries variable : series) {
+            assertEquals("a", variable.getName());
+            assertEquals(5, variable.size());
+            assertEquals(4, variable.get(2), 0d);
+            assertArrayEquals(expected, variable.toArray(), 0d);
+            assertArrayEquals(new double[]{-1, 5}, variable.minMax(), 0d);
+        }
+    }
+
+    @Test
+    public void testSlicesAndChunks() {
+        float[] values = {9, 9, 1, 2, 3, 9};
+        DataSeries slice = DataSeries.of("slice", values, 2, 3);
+        assertArrayEquals(new double[]{1, 2, 3}, slice.toArray(), 0d);
+
+        double[] chunk = new double[2];
+        assertEquals(2, slice.read(0, chunk, 0, 2));
+        assertArrayEquals(new double[]{1, 2}, chunk, 0d);
+        assertEquals(1, slice.read(2, chunk, 0, 2));
+        assertEquals(3, chunk[0], 0d);
+        assertEquals(0, slice.read(3, chunk, 0, 2));
+
+        DoubleBuffer buffer = DoubleBuffer.wrap(new double[]{7, 1, 2});
+        buffer.position(1);
+        assertArrayEquals(new double[]{1, 2}, DataSeries.of("buffer", buffer).toArray(), 0d);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() {
+        DataSeries.of("slice", new int[3], 2, 2);
+    }
+
+    @Test
+    public void testBuildersMatchArrays() {
+        float[] length = new float[IrisData.IRIS_SEPAL_LENGTH.length];
+        float[] width = new float[IrisData.IRIS_SEPAL_WIDTH.length];
+        double[] lengthRounded = new double[length.length];
+        double[] widthRounded = new double[width.length];
+        for (int i = 0; i < length.length; i++) {
+            length[i] = (float) IrisData.IRIS_SEPAL_LENGTH[i];
+            width[i] = (float) IrisData.IRIS_SEPAL_WIDTH[i];
+            lengthRounded[i] = length[i];
+            widthRounded[i] = width[i];
+        }
+        DataSeries seriesLength = DataSeries.of("length", length);
+        DataSeries seriesWidth = DataSeries.of("width", width);
+
+        assertEquals(new Histogram.HistogramBuilder(Pair.create("length", lengthRounded)).plotObject().plot(true),
+                new Histogram.HistogramBuilder(seriesLength).plotObject().plot(true));
+
+        List<Pair<String, double[]>> data = new ArrayList<>();
+        data.add(Pair.create("length", lengthRounded));
+        data.add(Pair.create("width", widthRounded));
+        assertEquals(new Boxplot.BoxplotBuilder(data).plotObject().plot(true),
+                Boxplot.BoxplotBuilder.fromSeries(Arrays.asList(seriesLength, seriesWidth)).plotObject().plot(true));
+
+        assertEquals(new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1)).plotObject().plot(true),
+                new Scatterplot.ScatterplotBuilder(seriesLength, seriesWidth).plotObject().plot(true));
+    }
+}
@@ -0,0 +1,41 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DensityGridTest {
+
+    @Test
+    public void testMatchesScatterplotGrid() {
+        double[] X = IrisData.IRIS_SEPAL_LENGTH;
+        double[] Y = IrisData.IRIS_SEPAL_WIDTH;
+        DensityGrid grid = new DensityGrid(50, 20, 4.3, 7.9, 2.0, 4.4, true);
+        grid.addAll(X, Y);
+        assertArrayEquals(Scatterplot.densityGrid(X, Y, 50, 20, 4.3, 7.9, 2.0, 4.4, true, null, 1), grid.densities(), 0d);
+    }
+
+    @Test
+    public void testMergeEqualsCombinedData() {
+        double[] X = IrisData.IRIS_SEPAL_LENGTH;
+        double[] Y = IrisData.IRIS_SEPAL_WIDTH;
+        int half = X.length / 2;
+        DensityGrid first = new DensityGrid(30, 10, 4.3, 7.9, 2.0, 4.4, false);
+        DensityGrid second = new DensityGrid(30, 10, 4.3, 7.9, 2.0, 4.4, false);
+        DensityGrid all = new DensityGrid(30, 10, 4.3, 7.9, 2.0, 4.4, false);
+        first.addAll(Arrays.copyOfRange(X, 0, half), Arrays.copyOfRange(Y, 0, half));
+        second.addAll(Arrays.copyOfRange(X, half, X.length), Arrays.copyOfRange(Y, half, Y.length));
+        all.addAll(X, Y);
+        first.merge(second);
+        assertArrayEquals(all.densities(), first.densities(), 0d);
+        assertEquals(all.getDensity(3, 4), first.getDensity(3, 4), 0d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentLimits() {
+        new DensityGrid(30, 10, 0, 1, 0, 1, true).merge(new DensityGrid(30, 10, 0, 2, 0, 1, true));
+    }
+}
@@ -0,0 +1,101 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DensityQuantizerTest {
+
+    @Test
+    public void testDefaultRampMatchesPercentiles() {
+        Random random = new Random(42);
+        double[] densities = new double[500];
+        for (int i = 0; i < densities.length; i++) {
+            densities[i] = random.nextInt(4) == 0 ? 0 : random.nextInt(20) + random.nextDouble();
+        }
+        char[] output = new DensityQuantizer().quantize(densities, new char[densities.length]);
+
+        DescriptiveStatistics stats = new DescriptiveStatistics();
+        for (double density : densities) {
+            if (density > 0) stats.addValue(density);
+        }
+        for (int i = 0; i < densities.length; i++) {
+            String expected;
+            if (densities[i] == 0 || densities[i] < stats.getPercentile(Scatterplot.BOUNDARY_NO_DENSITY)) {
+                expected = Scatterplot.CHARACTER_NO_DENSITY;
+            } else if (densities[i] < stats.getPercentile(Scatterplot.BOUNDARY_MEDIUM_DENSITY)) {
+                expected = Scatterplot.CHARACTER_MEDIUM_DENSITY;
+            } else if (densities[i] < stats.getPercentile(Scatterplot.BOUNDARY_HIGH_DENSITY)) {
+                expected = Scatterplot.CHARACTER_HIGH_DENSITY;
+            } else {
+                expected = Scatterplot.CHARACTER_HIGHEST_DENSITY;
+            }
+            assertEquals(expected.charAt(0), output[i]);
+        }
+    }
+
+    @Test
+    public void testLinearScale() {
+        DensityQuantizer quantizer = new DensityQuantizer(new DensityQuantizer.Ramp(" .:#"), DensityQuantizer.Scale.LINEAR);
+        double[] densities = {0, 1, 3, 4, 6, 7};
+        assertArrayEquals(new double[]{1, 3, 5}, quantizer.thresholds(densities), 1e-12);
+        assertArrayEquals(" .::##".toCharArray(), quantizer.quantize(densities, new char[densities.length]));
+    }
+
+    @Test
+    public void testLogScale() {
+        DensityQuantizer quantizer = new DensityQuantizer(new DensityQuantizer.Ramp(" .:#"), DensityQuantizer.Scale.LOG);
+        double[] densities = {1, 9, 11, 99, 101, 1000};
+        assertArrayEquals(new double[]{1, 10, 100}, quantizer.thresholds(densities), 1e-9);
+        assertArrayEquals("..::##".toCharArray(), quantizer.quantize(densities, new char[densities.length]));
+    }
+
+    @Test
+    public void testEvenRampNeverHidesNonEmptyCells() {
+        DensityQuantizer quantizer = new DensityQuantizer(DensityQuantizer.Ramp.ASCII_10, DensityQuantizer.Scale.RANK);
+        double[] densities = {0, 0.5, 0.5, 0.5, 1, 2, 3, 100};
+        char[] output = quantizer.quantize(densities, new char[densities.length]);
+        assertEquals(' ', output[0]);
+        for (int i = 1; i < output.length; i++) {
+            assertTrue(output[i] != ' ');
+        }
+        assertEquals('@', output[output.length - 1]);
+    }
+
+    @Test
+    public void testEmptyGrid() {
+        char[] output = new DensityQuantizer(DensityQuantizer.Ramp.SHADES, DensityQuantizer.Scale.LINEAR)
+                .quantize(new double[3], new char[3]);
+        assertArrayEquals("   ".toCharArray(), output);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRamp() {
+        DensityQuantizer.Ramp.forName("rainbow");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBoundaries() {
+        new DensityQuantizer.Ramp(" .#", new double[]{50, 10});
+    }
+
+    @Test
+    public void testOccupiedCellsWithNegativeValues() {
+        double[] values = {-4, 0, 0, 4};
+        boolean[] occupied = {true, true, false, true};
+        DensityQuantizer quantizer = new DensityQuantizer(new DensityQuantizer.Ramp(" abc"), DensityQuantizer.Scale.LINEAR);
+        assertArrayEquals(new double[]{-4, -4d / 3, 4d / 3}, quantizer.thresholds(values, occupied), 1e-9);
+        assertArrayEquals(new char[]{'a', 'b', ' ', 'c'}, quantizer.quantize(values, occupied, new char[4]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLogScaleNeedsPositiveValues() {
+        new DensityQuantizer(DensityQuantizer.Ramp.SHADES, DensityQuantizer.Scale.LOG)
+                .thresholds(new double[]{-1, 1}, new boolean[]{true, true});
+    }
+}
@@ -0,0 +1,130 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalPercentilesTest {
+
+    private static final double[] PERCENTILES = {0, 0.01, 1, 25, 33.3, 50, 75, 99, 99.99, 100};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[] expected(double[] values) {
+        Percentile percentile = new Percentile();
+        percentile.setData(values);
+        double[] expected = new double[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            // Percentile rejects 0, the smallest value is its limit
+            expected[i] = PERCENTILES[i] == 0 ? percentile.evaluate(Double.MIN_VALUE) : percentile.evaluate(PERCENTILES[i]);
+        }
+        return expected;
+    }
+
+    @Test
+    public void testSpilledRunsMatchPercentile() throws IOException {
+        Random random = new Random(42);
+        double[] values = new double[10007];
+        for (int i = 0; i < values.length; i++) {
+            // Many duplicates across runs
+            values[i] = random.nextInt(3) == 0 ? random.nextInt(20) : random.nextGaussian() * 100;
+        }
+        File directory = folder.newFolder();
+        // 112 values per run, about 90 runs merged 3 at a time in several passes
+        double[] actual = ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES,
+                ExternalPercentiles.MIN_MEMORY_BUDGET, directory);
+        assertArrayEquals(expected(values), actual, 0);
+        // Runs are deleted after the merge
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testRunsOfDifferentLengths() throws IOException {
+        Random random = new Random(7);
+        for (int n = 1; n < 600; n += 37) {
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = random.nextDouble();
+            }
+            double[] actual = ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES,
+                    ExternalPercentiles.MIN_MEMORY_BUDGET, folder.getRoot());
+            assertArrayEquals("n = " + n, expected(values), actual, 0);
+        }
+    }
+
+    @Test
+    public void testNaNIsOrderedLast() throws IOException {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 10 == 0 ? Double.NaN : values.length - i;
+        }
+        double[] actual = ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES,
+                ExternalPercentiles.MIN_MEMORY_BUDGET, folder.getRoot());
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            assertEquals(Boxplot.percentileOfSorted(sorted, PERCENTILES[i]), actual[i], 0);
+        }
+        assertTrue(Double.isNaN(actual[actual.length - 1]));
+    }
+
+    @Test
+    public void testInMemoryAndSorted() throws IOException {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sqrt(i);
+        }
+        File directory = folder.newFolder();
+        // Sorted values are read at their ranks
+        assertArrayEquals(expected(values), ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES,
+                ExternalPercentiles.MIN_MEMORY_BUDGET, directory), 0);
+        // Values within the budget are sorted in memory
+        double[] reversed = values.clone();
+        for (int i = 0; i < reversed.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+        }
+        assertArrayEquals(expected(values), ExternalPercentiles.evaluate(DataSeries.of("x", reversed), PERCENTILES,
+                8 * reversed.length, directory), 0);
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testManyRunsAreMergedInPasses() throws IOException {
+        Random random = new Random(3);
+        double[] values = new double[200000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        // About 1800 runs of the smallest budget, more than the open files of a single merge could hold
+        double[] actual = ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES,
+                ExternalPercentiles.MIN_MEMORY_BUDGET, folder.getRoot());
+        assertArrayEquals(expected(values), actual, 0);
+        // A larger budget merges all runs at once
+        actual = ExternalPercentiles.evaluate(DataSeries.of("x", values), PERCENTILES, 1 << 16, folder.getRoot());
+        assertArrayEquals(expected(values), actual, 0);
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        double[] actual = ExternalPercentiles.evaluate(DataSeries.of("x", new double[0]), new double[]{50},
+                ExternalPercentiles.MIN_MEMORY_BUDGET);
+        assertTrue(Double.isNaN(actual[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBudgetTooSmall() throws IOException {
+        ExternalPercentiles.evaluate(DataSeries.of("x", new double[]{1, 2}), new double[]{50}, 8);
+    }
+}
@@ -0,0 +1,108 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FastDoubleParserTest {
+
+    private static void assertParsed(String value) {
+        // Padding around the number checks that only the given range is read
+        byte[] bytes = (";" + value + ";").getBytes(StandardCharsets.UTF_8);
+        assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+                Double.doubleToLongBits(FastDoubleParser.parse(bytes, 1, value.length() + 1)));
+    }
+
+    @Test
+    public void testHardCases(){
+        String[] values = {"0", "-0", "0.0e10", "1", "-1", "+1.5", " 2.5 ", "1e23", "8.41e21", "9007199254740993",
+                "9007199254740992", "123456789012345678", "1234567890123456789", "0.30000000000000004",
+                "2.2250738585072014E-308", "2.2250738585072011E-308", "4.9e-324", "2.4703282292062328e-324",
+                "1.7976931348623157e308", "1.7976931348623158e308", "1.7976931348623159e308", "1e-400", "1e400",
+                "7.3177701707893310e+15", "5e-324", "1.0000000000000002", "0.1", "0.7", "3.14159265358979323846",
+                "4.35679359e-10", "1.00000005960464477550", "1.8446744073709552e19", "NaN", "-Infinity", "0x1p3"};
+        for (String value : values) {
+            assertParsed(value);
+        }
+    }
+
+    @Test
+    public void testShortestRepresentations(){
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                continue;
+            }
+            assertParsed(Double.toString(value));
+        }
+        for (int i = 0; i < 200000; i++) {
+            assertParsed(Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20)));
+        }
+    }
+
+    @Test
+    public void testRandomDigits(){
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            int digits = 1 + random.nextInt(19);
+            StringBuilder value = new StringBuilder();
+            for (int d = 0; d < digits; d++) {
+                value.append((char) ('0' + random.nextInt(10)));
+            }
+            value.append('e').append(random.nextInt(700) - 350);
+            assertParsed(value.toString());
+        }
+    }
+
+    @Test
+    public void testHalfwayCases(){
+        // Midpoints between adjacent doubles need the exact digits to round to even
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++) {
+            double value = Math.abs(random.nextDouble() * Math.pow(10, random.nextInt(20) - 10));
+            java.math.BigDecimal midpoint = new java.math.BigDecimal(value)
+                    .add(new java.math.BigDecimal(Math.nextUp(value))).divide(java.math.BigDecimal.valueOf(2));
+            assertParsed(midpoint.toString());
+            assertParsed(midpoint.round(new java.math.MathContext(17)).toString());
+        }
+    }
+
+    @Test
+    public void testPowersOfTen(){
+        for (int exponent = -330; exponent <= 310; exponent++) {
+            assertParsed("1e" + exponent);
+            assertParsed("999999999999999999e" + exponent);
+        }
+    }
+
+    @Test
+    public void testMultiplyHigh(){
+        Random random = new Random(1);
+        BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int i = 0; i < 10000; i++) {
+            long x = random.nextLong(), y = i == 0 ? -1L : random.nextLong();
+            if (i == 0) x = -1L;
+            BigInteger product = new BigInteger(1, ByteBuffer.allocate(8).putLong(x).array())
+                    .multiply(new BigInteger(1, ByteBuffer.allocate(8).putLong(y).array()));
+            assertEquals(product.shiftRight(64).and(mask).longValue(), FastDoubleParser.multiplyHigh(x, y));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalid(){
+        FastDoubleParser.parse("1.2.3".getBytes(StandardCharsets.UTF_8), 0, 5);
+    }
+
+    @Test
+    public void testUncertainConversionIsNaN(){
+        // More digits than the mantissa holds exactly are never converted on the fast path
+        assertTrue(Double.isNaN(FastDoubleParser.toDouble(false, 1, 400)));
+    }
+}
@@ -0,0 +1,126 @@
+package de.davidm.textplots;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileFollowerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompleteLinesOnly() throws IOException {
+        File file = folder.newFile("values.csv");
+        try (FileFollower follower = new FileFollower(file.getPath())) {
+            assertFalse(follower.poll());
+            append(file, "x\n1\n2");
+            assertTrue(follower.poll());
+            assertEquals("x\n1\n", drain(follower));
+            assertFalse(follower.poll());
+            append(file, "5\n3\n");
+            assertTrue(follower.poll());
+            assertEquals("25\n3\n", drain(follower));
+        }
+    }
+
+    @Test
+    public void testDataReaderResumes() throws IOException {
+        File file = folder.newFile("values.csv");
+        try (FileFollower follower = new FileFollower(file.getPath())) {
+            DataReader reader = new DataReader(follower);
+            append(file, "a,b\n1,2\n");
+            follower.poll();
+            assertTrue(reader.next());
+            assertEquals(2d, reader.get(1), 0d);
+            assertFalse(reader.next());
+
+            append(file, "3,4\n");
+            follower.poll();
+            reader.resume();
+            assertTrue(reader.next());
+            assertEquals(3d, reader.get(0), 0d);
+            assertEquals("b", reader.getHeader()[1]);
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsFollowedFromStart() throws IOException {
+        File file = folder.newFile("values.csv");
+        try (FileFollower follower = new FileFollower(file.getPath())) {
+            append(file, "100\n200\n");
+            follower.poll();
+            drain(follower);
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(0);
+            }
+            append(file, "7\n");
+            assertTrue(follower.poll());
+            assertEquals("7\n", drain(follower));
+        }
+    }
+
+    @Test
+    public void testRotatedFileIsFollowedByPath() throws IOException {
+        File file = folder.newFile("values.csv");
+        try (FileFollower follower = new FileFollower(file.getPath())) {
+            append(file, "1\n2\n");
+            follower.poll();
+            drain(follower);
+
+            // Renamed like by logrotate, the old file still receives a line and ends with an incomplete one
+            File rotated = new File(folder.getRoot(), "values.csv.1");
+            assertTrue(file.renameTo(rotated));
+            append(rotated, "3\n4");
+            append(file, "10\n");
+            assertTrue(follower.poll());
+            assertEquals("3\n10\n", drain(follower));
+
+            append(file, "20\n");
+            append(rotated, "5\n");
+            assertTrue(follower.poll());
+            assertEquals("20\n", drain(follower));
+        }
+    }
+
+    @Test
+    public void testLongLine() throws IOException {
+        File file = folder.newFile("values.csv");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            line.append('1');
+        }
+        line.append('\n');
+        try (FileFollower follower = new FileFollower(file.getPath())) {
+            append(file, line.toString());
+            assertTrue(follower.poll());
+            assertEquals(line.toString(), drain(follower));
+        }
+    }
+
+    private static void append(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String drain(FileFollower follower) throws IOException {
+        StringBuilder out = new StringBuilder();
+        char[] buffer = new char[7];
+        int read;
+        while ((read = follower.read(buffer, 0, buffer.length)) >= 0) {
+            out.append(buffer, 0, read);
+        }
+        return out.toString();
+    }
+}
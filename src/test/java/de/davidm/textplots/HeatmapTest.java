@@ -0,0 +1,96 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeatmapTest {
+    @Test
+    public void testAggregations(){
+        // Two values in the lower left and one in the upper right cell
+        double[] X = {0, 0.1, 10};
+        double[] Y = {0, 0.1, 10};
+        double[] W = {1, 3, -2};
+        double[] limits = {0, 10, 0, 10};
+        Heatmap.Cells cells = Heatmap.bin(X, Y, W, 20, 10, limits, null);
+        int lowerLeft = 9 * 20;
+        int upperRight = 19;
+        assertEquals(2, cells.values(Heatmap.Aggregation.COUNT)[lowerLeft], 0d);
+        assertEquals(4, cells.values(Heatmap.Aggregation.SUM)[lowerLeft], 0d);
+        assertEquals(2, cells.values(Heatmap.Aggregation.MEAN)[lowerLeft], 0d);
+        assertEquals(3, cells.values(Heatmap.Aggregation.MAX)[lowerLeft], 0d);
+        assertEquals(-2, cells.values(Heatmap.Aggregation.MAX)[upperRight], 0d);
+        assertEquals(0, cells.values(Heatmap.Aggregation.MAX)[0], 0d);
+        assertTrue(cells.occupied()[upperRight]);
+        assertTrue(!cells.occupied()[0]);
+    }
+
+    @Test
+    public void testPlot(){
+        double[] X = {0, 0.1, 10};
+        double[] Y = {0, 0.1, 10};
+        String[] rows = new Heatmap.HeatmapBuilder(Pair.create("x", X), Pair.create("y", Y))
+                .setSize(20, 10)
+                .setDensityRamp(new DensityQuantizer.Ramp(" ab"))
+                .plotObject()
+                .plot(true).split("\n");
+        assertEquals(13, rows.length);
+        assertEquals("y|10.00|                   a|", rows[0]);
+        assertEquals(" |0.00 |b                   |", rows[9]);
+        assertEquals("       |count: a >=1.00 b >=1.50", rows[12]);
+    }
+
+    @Test
+    public void testParallelBinning(){
+        Random random = new Random(42);
+        double[] X = new double[300000];
+        double[] Y = new double[X.length];
+        double[] W = new double[X.length];
+        for (int i = 0; i < X.length; i++) {
+            X[i] = random.nextGaussian();
+            Y[i] = random.nextGaussian();
+            W[i] = random.nextInt(100);
+        }
+        double[] limits = {-3, 3, -3, 3};
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Heatmap.Cells sequential = Heatmap.bin(X, Y, W, 50, 20, limits, null);
+            Heatmap.Cells parallel = Heatmap.bin(X, Y, W, 50, 20, limits, executor);
+            assertArrayEquals(sequential.counts, parallel.counts);
+            assertArrayEquals(sequential.sums, parallel.sums, 1e-6);
+            assertArrayEquals(sequential.maxima, parallel.maxima, 0d);
+
+            Heatmap.HeatmapBuilder builder = new Heatmap.HeatmapBuilder(Pair.create("x", X), Pair.create("y", Y),
+                    Pair.create("w", W)).setAggregation(Heatmap.Aggregation.MEAN);
+            assertEquals(builder.plotObject().plot(true), builder.setExecutor(executor).plotObject().plot(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMeanNeedsWeights(){
+        new Heatmap.HeatmapBuilder(Pair.create("x", new double[]{1}), Pair.create("y", new double[]{1}))
+                .setAggregation(Heatmap.Aggregation.MEAN)
+                .plotObject();
+    }
+
+    @Test
+    public void testGivenProfilesAreUsed(){
+        double[] X = {0, 0.1, 10};
+        double[] Y = {0, 0.1, 10};
+        String plot = new Heatmap.HeatmapBuilder(Pair.create("x", X), Pair.create("y", Y))
+                .setProfiles(DataProfile.of(new double[]{-10, 0, 10}), DataProfile.of(Y))
+                .setSize(20, 10)
+                .plotObject()
+                .plot(true);
+        assertTrue(plot, plot.contains("|-10.00") && plot.contains("y|10.00|"));
+    }
+}
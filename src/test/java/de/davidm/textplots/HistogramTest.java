@@ -51,6 +51,51 @@ public class HistogramTest {
         assertEquals(Plot.DEFAULT_WIDTH, count, 1);
     }
 
+    @Test
+    public void testAggregationRunsOnceOnFirstRender(){
+        double[] values = IrisData.IRIS_SEPAL_LENGTH.clone();
+        Histogram histogram = new Histogram.HistogramBuilder(Pair.create("IRIS_SEPAL_LENGTH", values)).plotObject();
+        String withLegend = histogram.plot(true);
+        // Later renders reuse the bins counted by the first render
+        values[0] = 100;
+        assertEquals(withLegend, histogram.plot(true));
+        assertTrue(withLegend.contains(histogram.plot(false).split("\n")[0].trim()));
+    }
+
+    @Test
+    public void testLogLinearHistogram(){
+        // Latencies from 50 microseconds to 30 seconds land in the first of equal-width bins
+        double[] latencies = new double[1000];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = 50e-6 * Math.pow(10, 5.78 * i / (latencies.length - 1));
+        }
+        Histogram histogram = new Histogram.HistogramBuilder(Pair.create("latency", latencies))
+                .setLogLinear(2)
+                .plotObject();
+        List<Pair<double[], String>> bins = histogram.histogram();
+        assertEquals(Histogram.DEFAULT_NR_BINS, bins.size());
+        assertEquals(50e-6, bins.get(0).getFirst()[0], 1e-12);
+        assertEquals(latencies[latencies.length - 1], bins.get(bins.size() - 1).getFirst()[1], 0d);
+        for (int i = 1; i < bins.size(); i++) {
+            // Rows are spaced logarithmically
+            assertEquals(bins.get(i - 1).getFirst()[1], bins.get(i).getFirst()[0], 0d);
+            assertTrue(binLength(bins.get(i).getSecond()) > 0);
+        }
+
+        String[] rows = histogram.plot(true).split("\n");
+        assertTrue(rows[0], rows[0].startsWith("[0.00005,"));
+        assertTrue(rows[9], rows[9].contains(",30.1]"));
+        assertTrue(rows[11], rows[11].matches(" +\\|p50=0\\.03\\d* p90=\\d\\.\\d+ p99=\\d+\\.?\\d* p99\\.9=\\d+\\.?\\d*"));
+    }
+
+    @Test
+    public void testFormatSignificant(){
+        assertEquals("0.00005", Histogram.formatSignificant(50e-6));
+        assertEquals("1.23", Histogram.formatSignificant(1.2345));
+        assertEquals("30", Histogram.formatSignificant(30));
+        assertEquals("12300", Histogram.formatSignificant(12345));
+    }
+
     private int binLength(String bin) {
         int count = 0;
         for (char c : bin.toCharArray()) {
@@ -60,4 +105,40 @@ public class HistogramTest {
         }
         return count;
     }
+
+    @Test
+    public void testSample(){
+        Pair<String, double[]> data = Pair.create("x", IrisData.IRIS_SEPAL_LENGTH);
+        String plot = new Histogram.HistogramBuilder(data).setSample(50).setSeed(1).plotObject().plot(true);
+        assertTrue(plot, plot.contains("|sample of 50 of 150 rows, ±"));
+        assertTrue(plot, plot.endsWith("% at 95% confidence\n"));
+        // The same seed draws the same sample
+        assertEquals(plot, new Histogram.HistogramBuilder(data).setSample(50).setSeed(1).plotObject().plot(true));
+
+        // A sample larger than the data counts all values without a note
+        assertEquals(new Histogram.HistogramBuilder(data).plotObject().plot(true),
+                new Histogram.HistogramBuilder(data).setSample(1000).plotObject().plot(true));
+    }
+
+    @Test
+    public void testGivenProfileIsUsed(){
+        Pair<String, double[]> data = Pair.create("x", new double[]{2, 3, 4});
+        // The bins span the limits of the profile instead of the limits of the values
+        List<Pair<double[], String>> bins = new Histogram.HistogramBuilder(data)
+                .setProfile(DataProfile.of(new double[]{0, 5, 10}))
+                .plotObject()
+                .histogram();
+        assertEquals(0, bins.get(0).getFirst()[0], 0d);
+        assertEquals(10, bins.get(bins.size() - 1).getFirst()[1], 0d);
+        // A profile of the values gives the same plot as no profile
+        assertEquals(new Histogram.HistogramBuilder(data).plotObject().plot(true),
+                new Histogram.HistogramBuilder(data).setProfile(DataProfile.of(data.getSecond())).plotObject().plot(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProfileOfOtherValuesIsRejected(){
+        new Histogram.HistogramBuilder(Pair.create("x", new double[]{2, 3, 4}))
+                .setProfile(DataProfile.of(new double[]{2, 3}))
+                .plotObject();
+    }
 }
@@ -0,0 +1,109 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class KernelsTest {
+
+    @Test
+    public void testMinMax(){
+        Random random = new Random(42);
+        double[] values = new double[37];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        values[5] = Double.NaN;
+        values[30] = Double.NaN;
+        // All offsets and lengths, so every remainder of the unrolled loop is covered
+        for (int off = 0; off < values.length; off++) {
+            for (int len = 0; off + len <= values.length; len++) {
+                double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                for (int i = off; i < off + len; i++) {
+                    if (values[i] < min) min = values[i];
+                    if (values[i] > max) max = values[i];
+                }
+                double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+                Kernels.minMax(values, off, len, minMax);
+                assertArrayEquals(new double[]{min, max}, minMax, 0);
+            }
+        }
+    }
+
+    @Test
+    public void testMinMaxAccumulates(){
+        double[] minMax = {-1, 1};
+        Kernels.minMax(new double[]{0, 0.5, -0.5}, 0, 3, minMax);
+        assertArrayEquals(new double[]{-1, 1}, minMax, 0);
+        Kernels.minMax(new double[]{2, -3}, 0, 2, minMax);
+        assertArrayEquals(new double[]{-3, 2}, minMax, 0);
+    }
+
+    @Test
+    public void testCountMatchesStreamingHistogram(){
+        Random random = new Random(7);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Many values on the boundaries of the bins
+            values[i] = random.nextInt(4) == 0 ? random.nextInt(11) * 0.7 : random.nextDouble() * 8 - 0.5;
+        }
+        values[1] = Double.NaN;
+        values[2] = Double.POSITIVE_INFINITY;
+        values[3] = Double.NEGATIVE_INFINITY;
+
+        StreamingHistogram expected = new StreamingHistogram(10, 0, 7);
+        for (double value : values) {
+            expected.add(value);
+        }
+        StreamingHistogram actual = new StreamingHistogram(10, 0, 7);
+        actual.addAll(values, 0, values.length);
+
+        assertEquals(expected.getN(), actual.getN());
+        assertEquals(expected.getMin(), actual.getMin(), 0);
+        assertEquals(expected.getMax(), actual.getMax(), 0);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected.getCount(i), actual.getCount(i));
+        }
+    }
+
+    @Test
+    public void testCountSkipsNonFiniteValues(){
+        long[] counts = new long[2];
+        double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        long n = Kernels.count(new double[]{Double.NaN, 0.5, Double.POSITIVE_INFINITY, 1.5, 3}, 0, 5, 0, 1, counts, minMax);
+        assertEquals(3, n);
+        assertArrayEquals(new long[]{1, 2}, counts);
+        assertArrayEquals(new double[]{0.5, 3}, minMax, 0);
+    }
+
+    @Test
+    public void testCountClampsFarOutliers(){
+        long[] counts = new long[10];
+        double[] minMax = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Kernels.count(new double[]{-1e10, -Double.MAX_VALUE, 1e300, 0.5}, 0, 4, 0, 0.1, counts, minMax);
+        assertArrayEquals(new long[]{2, 0, 0, 0, 1, 0, 0, 0, 0, 1}, counts);
+
+        // A range of width 0
+        counts = new long[4];
+        Kernels.count(new double[]{1, 5, 9}, 0, 3, 5, 0, counts, minMax);
+        assertArrayEquals(new long[]{2, 0, 0, 1}, counts);
+    }
+
+    @Test
+    public void testAddAllMatchesAddOnFixedRange(){
+        double[] values = {-1e10, 1, 5, 9, 1e300};
+        StreamingHistogram expected = new StreamingHistogram(4, 5, 5);
+        for (double value : values) {
+            expected.add(value);
+        }
+        StreamingHistogram actual = new StreamingHistogram(4, 5, 5);
+        actual.addAll(values, 0, values.length);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected.getCount(i), actual.getCount(i));
+        }
+        assertEquals(3, actual.getCount(0));
+    }
+}
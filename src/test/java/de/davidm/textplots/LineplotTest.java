@@ -0,0 +1,129 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LineplotTest {
+    @Test
+    public void testDiagonal(){
+        double[] Y = new double[1000];
+        for (int i = 0; i < Y.length; i++) {
+            Y[i] = i;
+        }
+        String[] rows = new Lineplot.LineplotBuilder(Pair.create("y", Y))
+                .setSize(20, 10)
+                .plotObject()
+                .plot(false).split("\n");
+        assertEquals(10, rows.length);
+        // Neighbouring columns share the value at their border
+        assertEquals("                 ***", rows[0]);
+        assertEquals("**                  ", rows[9]);
+    }
+
+    @Test
+    public void testMinMaxKeepsSinglePeaks(){
+        double[] Y = new double[100000];
+        Y[12345] = 10;
+        Y[54321] = -10;
+        double[][] envelope = Lineplot.envelope(null, Y, 50, 0, Y.length - 1, null);
+        int up = (int) (12345L * 50 / (Y.length - 1));
+        int down = (int) (54321L * 50 / (Y.length - 1));
+        assertEquals(10, envelope[1][up], 1e-9);
+        assertEquals(-10, envelope[0][down], 1e-9);
+        for (int column = 0; column < 50; column++) {
+            assertTrue(envelope[0][column] <= 0 && envelope[1][column] >= 0);
+        }
+    }
+
+    @Test
+    public void testSegmentsAreInterpolatedAtColumnBorders(){
+        // Two points far apart still draw every column in between
+        double[][] envelope = Lineplot.envelope(new double[]{0, 100}, new double[]{0, 100}, 10, 0, 100, null);
+        for (int column = 0; column < 10; column++) {
+            assertEquals(column * 10, envelope[0][column], 1e-9);
+            assertEquals((column + 1) * 10, envelope[1][column], 1e-9);
+        }
+    }
+
+    @Test
+    public void testLargestTriangleThreeBuckets(){
+        double[] Y = new double[1000];
+        Y[500] = 100;
+        int[] selected = Lineplot.largestTriangleThreeBuckets(null, Y, 0, Y.length - 1, 20);
+        assertEquals(20, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(999, selected[19]);
+        boolean peak = false;
+        for (int i = 1; i < selected.length; i++) {
+            assertTrue(selected[i] > selected[i - 1]);
+            peak |= selected[i] == 500;
+        }
+        assertTrue(peak);
+
+        // Fewer points than the threshold are all kept
+        assertArrayEquals(new int[]{0, 1, 2}, Lineplot.largestTriangleThreeBuckets(null, new double[3], 0, 2, 20));
+    }
+
+    @Test
+    public void testParallelEnvelope(){
+        Random random = new Random(42);
+        double[] X = new double[500000];
+        double[] Y = new double[X.length];
+        for (int i = 0; i < X.length; i++) {
+            X[i] = i * 0.5 + random.nextDouble() * 0.1;
+            Y[i] = random.nextGaussian();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Lineplot.LineplotBuilder builder = new Lineplot.LineplotBuilder(Pair.create("t", X), Pair.create("y", Y));
+            String sequential = builder.plotObject().plot(true);
+            assertEquals(sequential, builder.setExecutor(executor).plotObject().plot(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLimits(){
+        double[] X = {0, 1, 2, 3, 4};
+        double[] Y = {5, 1, 4, 2, 3};
+        String plot = new Lineplot.LineplotBuilder(Pair.create("x", X), Pair.create("y", Y))
+                .setSize(20, 10)
+                .setDecimation(Lineplot.Decimation.LTTB)
+                .plotObject()
+                .plot(true);
+        assertTrue(plot.startsWith("y|5.00|"));
+        assertTrue(plot.contains("|0.00            4.00|"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnorderedX(){
+        new Lineplot.LineplotBuilder(Pair.create("x", new double[]{0, 2, 1}), Pair.create("y", new double[]{0, 1, 2}))
+                .setSize(20, 10)
+                .plotObject()
+                .plot(true);
+    }
+
+    @Test
+    public void testProfileOfXIsUsed(){
+        Pair<String, double[]> x = Pair.create("x", new double[]{0, 1, 2, 3, 4});
+        Pair<String, double[]> y = Pair.create("y", new double[]{5, 1, 4, 2, 3});
+        assertEquals(new Lineplot.LineplotBuilder(x, y).setSize(20, 10).plotObject().plot(true),
+                new Lineplot.LineplotBuilder(x, y).setSize(20, 10).setProfileX(DataProfile.of(x.getSecond())).plotObject().plot(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProfileOfOtherValuesIsRejected(){
+        new Lineplot.LineplotBuilder(Pair.create("x", new double[]{0, 1, 2}), Pair.create("y", new double[]{0, 1, 2}))
+                .setProfileX(DataProfile.of(new double[]{0, 1}))
+                .plotObject();
+    }
+}
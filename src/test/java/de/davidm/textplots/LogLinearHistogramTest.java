@@ -0,0 +1,98 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LogLinearHistogramTest {
+
+    @Test
+    public void testBucketsHoldTheirValues() {
+        LogLinearHistogram histogram = new LogLinearHistogram(50e-6, 30, 2);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // Log-uniform between 50 microseconds and 30 seconds
+            double value = 50e-6 * Math.pow(30 / 50e-6, random.nextDouble());
+            int bucket = histogram.bucket(value);
+            assertTrue(histogram.getLowerBound(bucket) <= value && value < histogram.getUpperBound(bucket));
+            // Width of a bucket is at most 1% of its lower bound
+            assertTrue(histogram.getUpperBound(bucket) - histogram.getLowerBound(bucket) <= 0.01 * histogram.getLowerBound(bucket));
+        }
+    }
+
+    @Test
+    public void testMemoryIsFixed() {
+        LogLinearHistogram histogram = new LogLinearHistogram(1, 1024, 2);
+        // 11 powers of two with 128 buckets each
+        assertEquals(11 * 128, histogram.getBucketCount());
+        for (int i = 0; i < 1000000; i++) {
+            histogram.add(i);
+        }
+        assertEquals(11 * 128, histogram.getBucketCount());
+        assertEquals(1000000, histogram.getN());
+    }
+
+    @Test
+    public void testValuesOutsideOfTheRange() {
+        LogLinearHistogram histogram = new LogLinearHistogram(1, 100, 1);
+        histogram.add(-5);
+        histogram.add(0);
+        histogram.add(0.5);
+        histogram.add(1e9);
+        histogram.add(Double.NaN);
+        histogram.add(Double.POSITIVE_INFINITY);
+        assertEquals(4, histogram.getN());
+        assertEquals(3, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+        assertEquals(-5, histogram.getMin(), 0d);
+        assertEquals(1e9, histogram.getMax(), 0d);
+    }
+
+    @Test
+    public void testPercentiles() {
+        Random random = new Random(7);
+        double[] values = new double[100000];
+        LogLinearHistogram histogram = new LogLinearHistogram(1e-6, 100, 3);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2 - 6);
+            histogram.add(values[i]);
+        }
+        Percentile percentile = new Percentile().withEstimationType(Percentile.EstimationType.R_1);
+        percentile.setData(values);
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            double expected = percentile.evaluate(p);
+            assertEquals(expected, histogram.getValueAtPercentile(p), expected * 1e-3);
+        }
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100), 0d);
+    }
+
+    @Test
+    public void testMerge() {
+        LogLinearHistogram first = new LogLinearHistogram(1, 1000, 2);
+        LogLinearHistogram second = new LogLinearHistogram(1, 1000, 2);
+        LogLinearHistogram all = new LogLinearHistogram(1, 1000, 2);
+        for (int i = 1; i <= 1000; i++) {
+            (i % 3 == 0 ? first : second).add(i);
+            all.add(i);
+        }
+        LogLinearHistogram merged = first.copy();
+        merged.merge(second);
+        assertEquals(all.getN(), merged.getN());
+        assertEquals(all.getMin(), merged.getMin(), 0d);
+        assertEquals(all.getMax(), merged.getMax(), 0d);
+        for (int i = 0; i < all.getBucketCount(); i++) {
+            assertEquals(all.getCount(i), merged.getCount(i));
+        }
+        // The copy was not changed by the merge
+        assertEquals(333, first.getN());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentRanges() {
+        new LogLinearHistogram(1, 1000, 2).merge(new LogLinearHistogram(1, 2000, 2));
+    }
+}
@@ -6,6 +6,11 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 
@@ -80,4 +85,65 @@ public class PlotTest {
         assertEquals(7.9, minMax.getSecond(), 0.0001);
     }
 
+    /**
+     * @return one plot of every type, none of them computed yet
+     */
+    private List<Plot> plots(){
+        double[] X = IrisData.IRIS_SEPAL_LENGTH;
+        double[] Y = IrisData.IRIS_SEPAL_WIDTH;
+        List<Plot> plots = new ArrayList<>();
+        plots.add(new Boxplot.BoxplotBuilder(data).plotObject());
+        plots.add(new Histogram.HistogramBuilder(data.get(0)).plotObject());
+        plots.add(new Histogram.HistogramBuilder(data.get(0)).setLogLinear(3).plotObject());
+        plots.add(new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1)).plotObject());
+        plots.add(new Scatterplot.ScatterplotBuilder(data.get(0), data.get(1)).setBraille(true).plotObject());
+        plots.add(new Lineplot.LineplotBuilder(data.get(1)).plotObject());
+        plots.add(new Heatmap.HeatmapBuilder(Pair.create("x", X), Pair.create("y", Y), Pair.create("w", Y))
+                .setAggregation(Heatmap.Aggregation.MEAN).plotObject());
+        return plots;
+    }
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (Plot plot : plots()) {
+            expected.add(plot.plot(true));
+            expected.add(plot.plot(false));
+        }
+
+        // All threads start at once so the first use of the shared plots races as well
+        final List<Plot> shared = plots();
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws InterruptedException {
+                        start.await();
+                        List<String> rendered = new ArrayList<>();
+                        for (int i = 0; i < 50; i++) {
+                            for (Plot plot : shared) {
+                                rendered.add(plot.plot(true));
+                                rendered.add(plot.plot(false));
+                            }
+                        }
+                        return rendered;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> result : results) {
+                List<String> rendered = result.get();
+                for (int i = 0; i < rendered.size(); i++) {
+                    assertEquals(expected.get(i % expected.size()), rendered.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
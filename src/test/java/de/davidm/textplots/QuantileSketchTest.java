@@ -0,0 +1,83 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0.01, 0.25, 0.5, 0.75, 0.99};
+
+    @Test
+    public void testAccuracy() {
+        double[] data = gaussian(1000000, 42);
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.addAll(data, 0, data.length);
+        assertRankError(sketch, data);
+        assertTrue(sketch.retained() < 4 * QuantileSketch.DEFAULT_K);
+    }
+
+    @Test
+    public void testMerge() {
+        double[] data = gaussian(300000, 7);
+        QuantileSketch merged = new QuantileSketch();
+        for (int i = 0; i < 3; i++) {
+            QuantileSketch part = new QuantileSketch();
+            part.addAll(data, i * 100000, 100000);
+            merged.merge(part);
+        }
+        assertEquals(data.length, merged.getN());
+        assertRankError(merged, data);
+    }
+
+    @Test
+    public void testSmallInputIsExact() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 100; i++) {
+            sketch.add(i);
+        }
+        assertEquals(1d, sketch.getQuantile(0), 0d);
+        assertEquals(50d, sketch.getQuantile(0.5), 0d);
+        assertEquals(100d, sketch.getQuantile(1), 0d);
+    }
+
+    private static void assertRankError(QuantileSketch sketch, double[] data) {
+        double[] sorted = data.clone();
+        Arrays.sort(sorted);
+        double[] estimates = sketch.getQuantiles(QUANTILES);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            double rank = Arrays.binarySearch(sorted, estimates[i]) / (double) sorted.length;
+            assertEquals(QUANTILES[i], rank, sketch.getNormalizedRankError());
+        }
+        assertEquals(sorted[0], sketch.getMin(), 0d);
+        assertEquals(sorted[sorted.length - 1], sketch.getMax(), 0d);
+    }
+
+    private static double[] gaussian(int size, long seed) {
+        Random random = new Random(seed);
+        double[] data = new double[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = random.nextGaussian();
+        }
+        return data;
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        QuantileSketch sketch = new QuantileSketch(16);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(i);
+        }
+        QuantileSketch copy = sketch.copy();
+        assertEquals(sketch.getQuantile(0.5), copy.getQuantile(0.5), 0d);
+        for (int i = 0; i < 1000; i++) {
+            copy.add(1000 + i);
+        }
+        assertEquals(1000, sketch.getN());
+        assertEquals(2000, copy.getN());
+    }
+}
@@ -0,0 +1,103 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReservoirTest {
+
+    private static double[] range(int n) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    @Test
+    public void testKeepsAllRowsBelowCapacity(){
+        Reservoir reservoir = new Reservoir(10, 1, 1);
+        reservoir.addAll(new double[][]{range(7)}, 0, 7);
+        assertEquals(7, reservoir.getSize());
+        assertArrayEquals(range(7), reservoir.getSample(0), 0);
+        assertEquals(0, reservoir.getMarginOfError(), 0);
+        assertNull(reservoir.note());
+    }
+
+    @Test
+    public void testSampleDoesNotDependOnChunks(){
+        double[] values = range(100000);
+        Reservoir whole = new Reservoir(100, 1, 42);
+        whole.addAll(new double[][]{values}, 0, values.length);
+
+        Reservoir chunked = new Reservoir(100, 1, 42);
+        for (int off = 0; off < values.length; off += 77) {
+            chunked.addAll(new double[][]{values}, off, Math.min(77, values.length - off));
+        }
+        assertEquals(100000, chunked.getN());
+        assertArrayEquals(whole.getSample(0), chunked.getSample(0), 0);
+
+        // Read from a series in chunks of DataSeries.CHUNK_SIZE
+        assertArrayEquals(whole.getSample(0), Reservoir.of(100, 42, DataSeries.of("x", DoubleBuffer.wrap(values))).getSample(0), 0);
+
+        Reservoir other = new Reservoir(100, 1, 43);
+        other.addAll(new double[][]{values}, 0, values.length);
+        assertFalse(Arrays.equals(whole.getSample(0), other.getSample(0)));
+    }
+
+    @Test
+    public void testRowsStayAligned(){
+        double[] x = range(50000);
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            y[i] = -2 * x[i];
+        }
+        Reservoir reservoir = Reservoir.of(500, 3, DataSeries.of("x", x), DataSeries.of("y", y));
+        double[] sampleX = reservoir.getSample(0);
+        double[] sampleY = reservoir.getSample(1);
+        for (int i = 0; i < sampleX.length; i++) {
+            assertEquals(-2 * sampleX[i], sampleY[i], 0);
+        }
+    }
+
+    @Test
+    public void testUniform(){
+        // Every row is in the sample with probability k / n, count how often rows of each tenth are drawn
+        int n = 10000, k = 100, trials = 2000;
+        double[] values = range(n);
+        long[] tenths = new long[10];
+        for (int seed = 0; seed < trials; seed++) {
+            Reservoir reservoir = new Reservoir(k, 1, seed);
+            reservoir.addAll(new double[][]{values}, 0, n);
+            for (double value : reservoir.getSample(0)) {
+                tenths[(int) value * 10 / n]++;
+            }
+        }
+        double expected = (double) trials * k / 10;
+        for (long count : tenths) {
+            assertEquals(expected, count, 0.03 * expected);
+        }
+    }
+
+    @Test
+    public void testMarginOfError(){
+        Reservoir reservoir = new Reservoir(1000, 1, 1);
+        double[] values = range(1000000);
+        reservoir.addAll(new double[][]{values}, 0, values.length);
+        // 1.96 * sqrt(0.25 / 1000) = 3.1%, the finite population correction is close to 1
+        assertEquals(0.031, reservoir.getMarginOfError(), 0.0005);
+        assertTrue(reservoir.note().startsWith("sample of 1000 of 1000000 rows"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentSizes(){
+        Reservoir.of(10, 1, DataSeries.of("x", new double[5]), DataSeries.of("y", new double[6]));
+    }
+}
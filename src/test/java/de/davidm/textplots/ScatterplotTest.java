@@ -1,8 +1,15 @@
 package de.davidm.textplots;
 
+import org.apache.commons.math3.util.Pair;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ScatterplotTest {
     @Test
@@ -13,4 +20,127 @@ public class ScatterplotTest {
         assertEquals("          +            #  ·                       ", plot[18]);
         assertEquals("         ·                                        ", plot[19]);
     }
+
+    @Test
+    public void testParallelDensityGrid(){
+        Random random = new Random(42);
+        double[] x = new double[100000];
+        double[] y = new double[100000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+            y[i] = x[i] + random.nextGaussian();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (boolean smoothing : new boolean[]{true, false}) {
+                double[] sequential = Scatterplot.densityGrid(x, y, 50, 20, -3, 3, -4, 4, smoothing, null, 1);
+                double[] parallel = Scatterplot.densityGrid(x, y, 50, 20, -3, 3, -4, 4, smoothing, executor, 7);
+                assertArrayEquals(sequential, parallel, 1e-6);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testScatterplotFromDensityGrid(){
+        DensityGrid grid = new DensityGrid(50, 20, 4.3, 7.9, 2.0, 4.4, true);
+        grid.addAll(IrisData.IRIS_SEPAL_LENGTH, IrisData.IRIS_SEPAL_WIDTH);
+        Plot fromGrid = new Scatterplot.ScatterplotBuilder("IRIS_SEPAL_LENGTH", "IRIS_SEPAL_WIDTH", grid).plotObject();
+        Plot fromData = new Scatterplot.ScatterplotBuilder(
+                Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH),
+                Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH)).plotObject();
+        assertEquals(fromData.plot(true), fromGrid.plot(true));
+    }
+
+    @Test
+    public void testRenderReusesDensities(){
+        double[] X = IrisData.IRIS_SEPAL_LENGTH.clone();
+        double[] Y = IrisData.IRIS_SEPAL_WIDTH.clone();
+        Plot scatterplot = new Scatterplot.ScatterplotBuilder(Pair.create("IRIS_SEPAL_LENGTH", X),
+                Pair.create("IRIS_SEPAL_WIDTH", Y)).plotObject();
+        String withoutLegend = scatterplot.plot(false);
+        // Later renders reuse the grid counted by the first render
+        X[0] = 100;
+        assertEquals(withoutLegend, scatterplot.plot(false));
+        assertTrue(scatterplot.plot(true).contains(withoutLegend.split("\n")[0]));
+    }
+
+    @Test
+    public void testBrailleScatterplot(){
+        double[] X = new double[1000];
+        double[] Y = new double[1000];
+        for (int i = 0; i < X.length; i++) {
+            X[i] = i;
+            Y[i] = i;
+        }
+        Scatterplot.ScatterplotBuilder builder = new Scatterplot.ScatterplotBuilder(Pair.create("x", X), Pair.create("y", Y))
+                .setSize(20, 10)
+                .setBraille(true);
+        String[] rows = builder.plotObject().plot(false).split("\n");
+        assertEquals(10, rows.length);
+        // The diagonal crosses two dots of each corner cell
+        assertEquals('⠊', rows[0].charAt(19));
+        assertEquals('⡠', rows[9].charAt(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            double[] bigX = new double[300000];
+            double[] bigY = new double[bigX.length];
+            Random random = new Random(7);
+            for (int i = 0; i < bigX.length; i++) {
+                bigX[i] = random.nextGaussian();
+                bigY[i] = random.nextGaussian();
+            }
+            Scatterplot.ScatterplotBuilder big = new Scatterplot.ScatterplotBuilder(Pair.create("x", bigX), Pair.create("y", bigY))
+                    .setBraille(true);
+            String sequential = big.plotObject().plot(true);
+            assertEquals(sequential, big.setExecutor(executor).plotObject().plot(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSample(){
+        double[] X = new double[10000];
+        double[] Y = new double[X.length];
+        for (int i = 0; i < X.length; i++) {
+            X[i] = i;
+            Y[i] = i % 2 == 0 ? i : -i;
+        }
+        String plot = new Scatterplot.ScatterplotBuilder(Pair.create("x", X), Pair.create("y", Y))
+                .setSample(100)
+                .setBraille(true)
+                .plotObject()
+                .plot(true);
+        assertTrue(plot, plot.contains("|sample of 100 of 10000 rows"));
+    }
+
+    @Test
+    public void testGivenProfilesAreUsed(){
+        Pair<String, double[]> x = Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH);
+        Pair<String, double[]> y = Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH);
+        assertEquals(new Scatterplot.ScatterplotBuilder(x, y).plotObject().plot(true),
+                new Scatterplot.ScatterplotBuilder(x, y)
+                        .setProfiles(DataProfile.of(x.getSecond()), DataProfile.of(y.getSecond()))
+                        .plotObject()
+                        .plot(true));
+
+        // Limits which are not set are taken from the profiles
+        double[] spread = new double[IrisData.IRIS_SEPAL_LENGTH.length];
+        spread[spread.length - 1] = 10;
+        String plot = new Scatterplot.ScatterplotBuilder(x, y)
+                .setProfiles(DataProfile.of(spread), null)
+                .plotObject()
+                .plot(true);
+        assertTrue(plot, plot.contains("|0.00") && plot.contains("10.00|"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProfileOfOtherValuesIsRejected(){
+        new Scatterplot.ScatterplotBuilder(Pair.create("x", new double[]{1, 2}), Pair.create("y", new double[]{1, 2}))
+                .setProfiles(null, DataProfile.of(new double[]{1, 2, 3}))
+                .plotObject();
+    }
 }
@@ -0,0 +1,135 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.random.EmpiricalDistribution;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingHistogramTest {
+
+    @Test
+    public void testFixedRangeMatchesEmpiricalDistribution() {
+        double[] data = IrisData.IRIS_SEPAL_LENGTH;
+        EmpiricalDistribution dist = new EmpiricalDistribution(8);
+        dist.load(data);
+
+        StreamingHistogram histogram = new StreamingHistogram(8, 4.3, 7.9);
+        histogram.addAll(data, 0, data.length);
+
+        assertEquals(data.length, histogram.getN());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(dist.getBinStats().get(i).getN(), histogram.getCount(i));
+            assertEquals(dist.getUpperBounds()[i], histogram.getUpperBound(i), 0d);
+        }
+    }
+
+    @Test
+    public void testFixedRangeClampsOutliers() {
+        StreamingHistogram histogram = new StreamingHistogram(4, 0, 4);
+        histogram.add(-10);
+        histogram.add(10);
+        histogram.add(Double.NaN);
+        assertEquals(2, histogram.getN());
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(3));
+    }
+
+    @Test
+    public void testFarOutliersAreCountedInTheFirstBin() {
+        StreamingHistogram histogram = new StreamingHistogram(10, 0, 1);
+        histogram.add(-1e10);
+        histogram.add(-Double.MAX_VALUE);
+        histogram.add(1e300);
+        assertEquals(2, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(9));
+    }
+
+    @Test
+    public void testRangeOfWidthZero() {
+        StreamingHistogram histogram = new StreamingHistogram(4, 5, 5);
+        histogram.add(1);
+        histogram.add(5);
+        histogram.add(9);
+        assertEquals(2, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(3));
+    }
+
+    @Test
+    public void testExpandingRange() {
+        StreamingHistogram histogram = new StreamingHistogram(10);
+        histogram.add(5);
+        histogram.add(5);
+        assertEquals(2, histogram.getCount(0));
+
+        Random random = new Random(42);
+        long count = 2;
+        for (int i = 0; i < 10000; i++) {
+            histogram.add(random.nextGaussian() * Math.pow(10, random.nextInt(4)));
+            count++;
+        }
+        long sum = 0;
+        for (int i = 0; i < histogram.getBinCount(); i++) {
+            sum += histogram.getCount(i);
+        }
+        assertEquals(count, sum);
+        assertEquals(count, histogram.getN());
+        assertTrue(histogram.getLowerBound(0) <= histogram.getMin());
+        assertTrue(histogram.getUpperBound(9) >= histogram.getMax());
+    }
+
+    @Test
+    public void testExpandingRangeKeepsOrder() {
+        StreamingHistogram histogram = new StreamingHistogram(4);
+        histogram.add(1);
+        histogram.add(2); // range [1, 2]
+        histogram.add(3); // range [1, 3]
+        histogram.add(-1); // range [-1, 3]
+        assertEquals(-1d, histogram.getLowerBound(0), 1e-9);
+        assertEquals(3d, histogram.getUpperBound(3), 1e-9);
+        assertEquals(1, histogram.getCount(0));
+        // 1 is on the previous lower boundary and moves to the neighbouring bin
+        assertEquals(2, histogram.getCount(1) + histogram.getCount(2));
+        assertEquals(1, histogram.getCount(3));
+    }
+
+    @Test
+    public void testMergeSameRange() {
+        StreamingHistogram first = new StreamingHistogram(4, 0, 4);
+        StreamingHistogram second = new StreamingHistogram(4, 0, 4);
+        first.add(0.5);
+        second.add(0.5);
+        second.add(3.5);
+        first.merge(second);
+        assertEquals(3, first.getN());
+        assertEquals(2, first.getCount(0));
+        assertEquals(1, first.getCount(3));
+        assertEquals(3.5, first.getMax(), 0d);
+    }
+
+    @Test
+    public void testMergeExpandsRange() {
+        StreamingHistogram first = new StreamingHistogram(4);
+        StreamingHistogram second = new StreamingHistogram(4);
+        for (int i = 1; i <= 4; i++) {
+            first.add(i);
+            second.add(10 * i);
+        }
+        first.merge(second);
+        assertEquals(8, first.getN());
+        assertTrue(first.getUpperBound(3) >= 40);
+        long total = 0;
+        for (int i = 0; i < 4; i++) {
+            total += first.getCount(i);
+        }
+        assertEquals(8, total);
+
+        StreamingHistogram empty = new StreamingHistogram(4);
+        empty.merge(second);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(second.getCount(i), empty.getCount(i));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SummaryTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StreamingHistogram histogram = new StreamingHistogram(8);
+        histogram.addAll(IrisData.IRIS_SEPAL_LENGTH, 0, IrisData.IRIS_SEPAL_LENGTH.length);
+        QuantileSketch sketch = new QuantileSketch(16);
+        for (int i = 0; i < 10000; i++) {
+            sketch.add(i % 977);
+        }
+        DensityGrid grid = new DensityGrid(20, 10, 4.3, 7.9, 2.0, 4.4, true);
+        grid.addAll(IrisData.IRIS_SEPAL_LENGTH, IrisData.IRIS_SEPAL_WIDTH);
+
+        List<Summary> summaries = roundTrip(Arrays.asList(
+                Summary.of("h", histogram), Summary.of("q", sketch), Summary.of("x", "y", grid)));
+        assertEquals(3, summaries.size());
+
+        StreamingHistogram readHistogram = summaries.get(0).getHistogram();
+        assertEquals("h", summaries.get(0).getNames()[0]);
+        assertEquals(histogram.getN(), readHistogram.getN());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(histogram.getCount(i), readHistogram.getCount(i));
+            assertEquals(histogram.getUpperBound(i), readHistogram.getUpperBound(i), 0d);
+        }
+
+        QuantileSketch readSketch = summaries.get(1).getSketch();
+        assertEquals(sketch.getN(), readSketch.getN());
+        assertEquals(sketch.retained(), readSketch.retained());
+        assertArrayEquals(sketch.getQuantiles(new double[]{0.1, 0.5, 0.9}), readSketch.getQuantiles(new double[]{0.1, 0.5, 0.9}), 0d);
+
+        assertArrayEquals(new String[]{"x", "y"}, summaries.get(2).getNames());
+        assertArrayEquals(grid.densities(), summaries.get(2).getGrid().densities(), 0d);
+    }
+
+    @Test
+    public void testMergeAll() {
+        List<Summary> summaries = new ArrayList<>();
+        for (int host = 0; host < 3; host++) {
+            QuantileSketch a = new QuantileSketch();
+            QuantileSketch b = new QuantileSketch();
+            for (int i = 0; i < 100; i++) {
+                a.add(host * 100 + i);
+                b.add(-i);
+            }
+            summaries.add(Summary.of("a", a));
+            summaries.add(Summary.of("b", b));
+        }
+        List<Summary> merged = Summary.mergeAll(summaries);
+        assertEquals(2, merged.size());
+        assertEquals("a", merged.get(0).getNames()[0]);
+        assertEquals(300, merged.get(0).getSketch().getN());
+        assertEquals(299, merged.get(0).getSketch().getMax(), 0d);
+        assertEquals(300, merged.get(1).getSketch().getN());
+        // Inputs are not modified
+        assertEquals(100, summaries.get(0).getSketch().getN());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentVariables() {
+        Summary.of("a", new QuantileSketch()).merge(Summary.of("b", new QuantileSketch()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMagic() throws IOException {
+        Summary.readAll(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Summary.writeAll(out, Arrays.asList(Summary.of("h", new StreamingHistogram(4))));
+        byte[] bytes = out.toByteArray();
+        Summary.readAll(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    public void testCorruptSizesAreRejected() throws IOException {
+        // Offsets of the first size after magic, version, type and the names
+        assertCorrupt(Summary.of("h", new StreamingHistogram(4)), 9, -1, "bins");
+        assertCorrupt(Summary.of("h", new StreamingHistogram(4)), 9, Integer.MAX_VALUE, "bins");
+        assertCorrupt(Summary.of("q", new QuantileSketch()), 9, Integer.MAX_VALUE, "k = ");
+        DensityGrid grid = new DensityGrid(Plot.DEFAULT_WIDTH, Plot.DEFAULT_HEIGHT, 0, 1, 0, 1, true);
+        assertCorrupt(Summary.of("x", "y", grid), 12, 1 << 20, "Density grid");
+        assertCorrupt(Summary.of("x", "y", grid), 12, -5, "Density grid");
+    }
+
+    /**
+     * Overwrite an int of a written summary and expect it to be rejected before the truncation is noticed
+     */
+    private static void assertCorrupt(Summary summary, int offset, int value, String message) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Summary.writeAll(out, Arrays.asList(summary));
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        bytes.putInt(offset, value);
+        try {
+            Summary.readAll(new ByteArrayInputStream(bytes.array()));
+            fail("Corrupt size " + value + " was accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Summary 1 of the file is corrupt"));
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static List<Summary> roundTrip(List<Summary> summaries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Summary.writeAll(out, summaries);
+        return Summary.readAll(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
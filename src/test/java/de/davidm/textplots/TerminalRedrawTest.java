@@ -0,0 +1,41 @@
+package de.davidm.textplots;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class TerminalRedrawTest {
+
+    @Test
+    public void testFirstFrameIsPrintedAsIs() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new TerminalRedraw(out).draw("a\nb\n");
+        assertEquals("\u001B[2Ka\n\u001B[2Kb\n", out.toString());
+    }
+
+    @Test
+    public void testOnlyChangedRowsAreRedrawn() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TerminalRedraw redraw = new TerminalRedraw(out);
+        redraw.draw("a\nb\nc\n");
+        out.setLength(0);
+        redraw.draw("a\nx\nc\n");
+        assertEquals("\r\u001B[3A\u001B[1B\u001B[2Kx\n\u001B[1B", out.toString());
+
+        out.setLength(0);
+        redraw.draw("a\nx\nc\n");
+        assertEquals("\r\u001B[3A\u001B[3B", out.toString());
+    }
+
+    @Test
+    public void testShorterFrameClearsRows() throws IOException {
+        StringBuilder out = new StringBuilder();
+        TerminalRedraw redraw = new TerminalRedraw(out);
+        redraw.draw("a\nb\n");
+        out.setLength(0);
+        redraw.draw("a\n");
+        assertEquals("\r\u001B[2A\u001B[1B\u001B[2K\n", out.toString());
+    }
+}
@@ -0,0 +1,124 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TextFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String write(String content) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file.getPath();
+    }
+
+    @Test
+    public void testHeader() throws IOException {
+        List<Pair<String, double[]>> data = TextFile.read(write("x,y\n1,2\n3,4\n5,6\n"), null, null);
+        assertEquals(2, data.size());
+        assertEquals("x", data.get(0).getFirst());
+        assertEquals("y", data.get(1).getFirst());
+        assertArrayEquals(new double[]{1, 3, 5}, data.get(0).getSecond(), 0d);
+        assertArrayEquals(new double[]{2, 4, 6}, data.get(1).getSecond(), 0d);
+    }
+
+    @Test
+    public void testWithoutHeader() throws IOException {
+        List<Pair<String, double[]>> data = TextFile.read(write("\n1\t-2e3\r\n \r\n3.5\t4"), null, null);
+        assertEquals("V1", data.get(0).getFirst());
+        assertEquals("V2", data.get(1).getFirst());
+        assertArrayEquals(new double[]{1, 3.5}, data.get(0).getSecond(), 0d);
+        assertArrayEquals(new double[]{-2000, 4}, data.get(1).getSecond(), 0d);
+    }
+
+    @Test
+    public void testColumnsAreSelectedInOrder() throws IOException {
+        // Fields of other columns are not parsed
+        String file = write("name,size,latency\nfoo,1,0.5\nbar,2,0.25\n");
+        List<Pair<String, double[]>> data = TextFile.read(file, Arrays.asList("latency", "size"), null);
+        assertEquals(2, data.size());
+        assertEquals("latency", data.get(0).getFirst());
+        assertArrayEquals(new double[]{0.5, 0.25}, data.get(0).getSecond(), 0d);
+        assertArrayEquals(new double[]{1, 2}, data.get(1).getSecond(), 0d);
+        try {
+            TextFile.read(file, Arrays.asList("size", "count"), null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("count not found"));
+        }
+    }
+
+    @Test
+    public void testChunksMatchDataReader() throws IOException {
+        Random random = new Random(42);
+        StringBuilder content = new StringBuilder("a,b,c\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append(random.nextGaussian()).append(',').append(random.nextInt(1000)).append(',')
+                    .append((float) random.nextDouble()).append(i % 7 == 0 ? "\r\n" : "\n");
+            if (i % 100 == 0) {
+                content.append('\n');
+            }
+        }
+        List<Pair<String, double[]>> expected = new CLI().read(new StringReader(content.toString()));
+        String file = write(content.toString());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // Chunks of at least 1000 bytes end in the middle of lines and are extended to the line break
+            List<Pair<String, double[]>> actual = TextFile.read(file, null, executor, 1000);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getFirst(), actual.get(i).getFirst());
+                assertArrayEquals(expected.get(i).getSecond(), actual.get(i).getSecond(), 0d);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrorsNameTheLine() throws IOException {
+        String file = write("x,y\n1,2\n\n3,a\n");
+        try {
+            TextFile.read(file, null, null, 4);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Could not parse value in line 4", e.getMessage());
+        }
+        // The field is not decoded if its column is not selected
+        assertArrayEquals(new double[]{1, 3}, TextFile.read(file, Arrays.asList("x"), null, 4).get(0).getSecond(), 0d);
+
+        try {
+            TextFile.read(write("1,2\n3\n"), null, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Line 2 contains 1 values but 2 are expected", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmpty() throws IOException {
+        TextFile.read(write("x,y\n\n"), null, null);
+    }
+}
@@ -0,0 +1,57 @@
+package de.davidm.textplots;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Utf8SinkTest {
+
+    @Test
+    public void testEncoding() throws IOException {
+        String text = "a|·#▓😀\n";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // Small buffer to force several drains
+        Utf8Sink sink = new Utf8Sink(Channels.newChannel(bytes), 4);
+        sink.append(text);
+        sink.flush();
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+
+    @Test
+    public void testUnpairedSurrogates() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Sink sink = new Utf8Sink(bytes);
+        sink.append("a\uDC00b\uD83Dc");
+        // A high surrogate at the end may be completed after a flush
+        sink.append('\uD83D');
+        sink.flush();
+        assertEquals("a?b?c", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        sink.append('\uDE00');
+        sink.flush();
+        assertEquals("a?b?c\uD83D\uDE00", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        // Closing the sink writes a pending high surrogate as unpaired
+        sink.append('\uD83D');
+        sink.close();
+        assertEquals("a?b?c\uD83D\uDE00?", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRenderEqualsPlot() throws IOException {
+        Plot plot = new Scatterplot.ScatterplotBuilder(
+                Pair.create("IRIS_SEPAL_LENGTH", IrisData.IRIS_SEPAL_LENGTH),
+                Pair.create("IRIS_SEPAL_WIDTH", IrisData.IRIS_SEPAL_WIDTH))
+                .plotObject();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Utf8Sink sink = new Utf8Sink(bytes);
+        plot.render(sink, true);
+        sink.flush();
+        assertEquals(plot.plot(true), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+}